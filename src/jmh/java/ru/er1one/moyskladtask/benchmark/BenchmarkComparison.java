@@ -0,0 +1,82 @@
+package ru.er1one.moyskladtask.benchmark;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+/**
+ * Сравнивает два прогона {@link BenchmarkRunner}: {@code <базовый> <текущий> [допуск, %]}.
+ * Аргументами служат JSON-файлы JMH или каталоги с ними; в каталогах сравниваются одноимённые файлы.
+ * Печатает изменение каждого результата и завершается с кодом 1, если хотя бы один
+ * ухудшился больше допуска (по умолчанию 10%).
+ */
+public class BenchmarkComparison {
+
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Использование: BenchmarkComparison <базовый> <текущий> [допуск, %]");
+            System.exit(2);
+        }
+        double tolerance = args.length > 2 ? Double.parseDouble(args[2]) : 10.0;
+        Map<String, Result> baseline = read(Path.of(args[0]));
+        Map<String, Result> current = read(Path.of(args[1]));
+
+        int regressions = 0;
+        for (Map.Entry<String, Result> entry : current.entrySet()) {
+            Result before = baseline.get(entry.getKey());
+            if (before == null) {
+                System.out.printf("%-90s %14s -> %12.3f %s%n", entry.getKey(), "новый", entry.getValue().score(), entry.getValue().unit());
+                continue;
+            }
+            Result after = entry.getValue();
+            double change = (after.score() - before.score()) / before.score() * 100;
+            double worsening = after.higherIsBetter() ? -change : change;
+            boolean regression = worsening > tolerance;
+            if (regression) {
+                regressions++;
+            }
+            System.out.printf("%-90s %12.3f -> %12.3f %s %+7.1f%%%s%n", entry.getKey(), before.score(), after.score(),
+                    after.unit(), change, regression ? "  УХУДШЕНИЕ" : "");
+        }
+        if (regressions > 0) {
+            System.out.printf("Ухудшений больше %.1f%%: %d%n", tolerance, regressions);
+            System.exit(1);
+        }
+    }
+
+    private static Map<String, Result> read(Path path) throws IOException {
+        Map<String, Result> results = new LinkedHashMap<>();
+        List<Path> files;
+        if (Files.isDirectory(path)) {
+            try (Stream<Path> listing = Files.list(path)) {
+                files = listing.filter(file -> file.toString().endsWith(".json")).sorted().toList();
+            }
+        } else {
+            files = List.of(path);
+        }
+        for (Path file : files) {
+            for (JsonNode run : OBJECT_MAPPER.readTree(file.toFile())) {
+                StringBuilder key = new StringBuilder(run.get("benchmark").asText())
+                        .append(" t=").append(run.get("threads").asInt());
+                run.path("params").fields().forEachRemaining(param ->
+                        key.append(' ').append(param.getKey()).append('=').append(param.getValue().asText()));
+                JsonNode metric = run.get("primaryMetric");
+                results.put(key.toString(), new Result(metric.get("score").asDouble(), metric.get("scoreUnit").asText(),
+                        "thrpt".equals(run.get("mode").asText())));
+            }
+        }
+        return results;
+    }
+
+    private record Result(double score, String unit, boolean higherIsBetter) {
+    }
+}
@@ -0,0 +1,36 @@
+package ru.er1one.moyskladtask.benchmark;
+
+import lombok.experimental.UtilityClass;
+import ru.er1one.moyskladtask.model.Product;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+@UtilityClass
+class BenchmarkProducts {
+
+    Product product(long number) {
+        Product product = new Product();
+        product.setName("Товар номер " + number);
+        product.setDescription("Описание товара " + number + " для нагрузочного теста");
+        product.setPrice(number % 10_000 / 100.0);
+        product.setInStock(number % 3 != 0);
+        return product;
+    }
+
+    /**
+     * Каталог из {@code size} товаров, которым хранилище назначит id от 1 до {@code size}.
+     */
+    List<Product> catalog(int size) {
+        List<Product> catalog = new ArrayList<>(size);
+        for (int i = 1; i <= size; i++) {
+            catalog.add(product(i));
+        }
+        return catalog;
+    }
+
+    long randomId(int catalogSize) {
+        return ThreadLocalRandom.current().nextLong(1, catalogSize + 1);
+    }
+}
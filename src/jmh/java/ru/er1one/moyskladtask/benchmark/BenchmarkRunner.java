@@ -0,0 +1,36 @@
+package ru.er1one.moyskladtask.benchmark;
+
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Запускает бенчмарки для каждого числа потоков из {@code -Djmh.threads} (через запятую)
+ * и пишет результаты в JSON, по файлу {@code threads-N.json} на число потоков, в каталог
+ * {@code -Djmh.resultDir}. Остальные параметры передаются JMH как есть, например
+ * {@code -Djmh.args="ProductRepositoryBenchmark -p catalogSize=1000"}.
+ */
+public class BenchmarkRunner {
+
+    public static void main(String[] args) throws Exception {
+        String jmhArgs = System.getProperty("jmh.args", "").trim();
+        CommandLineOptions commandLine = new CommandLineOptions(jmhArgs.isEmpty() ? args : jmhArgs.split("\\s+"));
+        Path resultDir = Path.of(System.getProperty("jmh.resultDir", "target/jmh"));
+        Files.createDirectories(resultDir);
+
+        for (String value : System.getProperty("jmh.threads", "1").split(",")) {
+            int threads = Integer.parseInt(value.trim());
+            new Runner(new OptionsBuilder()
+                    .parent(commandLine)
+                    .threads(threads)
+                    .resultFormat(ResultFormatType.JSON)
+                    .result(resultDir.resolve("threads-" + threads + ".json").toString())
+                    .build())
+                    .run();
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package ru.er1one.moyskladtask.benchmark;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.er1one.moyskladtask.model.Product;
+import ru.er1one.moyskladtask.model.ProductPatch;
+import ru.er1one.moyskladtask.util.ProductPatchParser;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ProductJsonBenchmark {
+
+    private final ObjectMapper objectMapper = JsonMapper.builder().findAndAddModules().build();
+
+    private Product product;
+    private byte[] json;
+    private final byte[] patchJson = "{\"price\":99.9,\"inStock\":true}".getBytes(StandardCharsets.UTF_8);
+
+    @Setup
+    public void setup() throws IOException {
+        product = BenchmarkProducts.product(1);
+        product.setId(1L);
+        json = objectMapper.writeValueAsBytes(product);
+    }
+
+    @Benchmark
+    public byte[] serialize() throws IOException {
+        return objectMapper.writeValueAsBytes(product);
+    }
+
+    @Benchmark
+    public Product deserialize() throws IOException {
+        return objectMapper.readValue(json, Product.class);
+    }
+
+    /**
+     * Прежний разбор тела PATCH в карту. Аллокации на операцию с {@link #parsePatch()} сравниваются
+     * запуском с {@code -prof gc} (метрика {@code gc.alloc.rate.norm}).
+     */
+    @Benchmark
+    public Map<String, Object> parsePatchAsMap() throws IOException {
+        return objectMapper.readValue(new ByteArrayInputStream(patchJson), new TypeReference<>() {
+        });
+    }
+
+    @Benchmark
+    public ProductPatch parsePatch() throws IOException {
+        return ProductPatchParser.parse(objectMapper.getFactory(), new ByteArrayInputStream(patchJson));
+    }
+}
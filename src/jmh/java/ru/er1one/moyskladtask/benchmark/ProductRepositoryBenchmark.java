@@ -0,0 +1,116 @@
+package ru.er1one.moyskladtask.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.er1one.moyskladtask.exception.ProductNotFoundException;
+import ru.er1one.moyskladtask.model.CatalogTotals;
+import ru.er1one.moyskladtask.model.Product;
+import ru.er1one.moyskladtask.repository.CompactProductRepository;
+import ru.er1one.moyskladtask.repository.InMemoryProductRepository;
+import ru.er1one.moyskladtask.repository.ProductRepository;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ProductRepositoryBenchmark {
+
+    @Param({"1000", "100000"})
+    public int catalogSize;
+
+    @Param({"memory", "compact"})
+    public String storage;
+
+    private ProductRepository repository;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        repository = switch (storage) {
+            case "memory" -> new InMemoryProductRepository();
+            case "compact" -> new CompactProductRepository(false);
+            default -> throw new IllegalArgumentException("Неизвестное хранилище: " + storage);
+        };
+        repository.saveAll(BenchmarkProducts.catalog(catalogSize));
+    }
+
+    @Benchmark
+    public Product findById() {
+        return repository.findById(BenchmarkProducts.randomId(catalogSize));
+    }
+
+    /**
+     * Промах через {@link ProductRepository#findById(long)} — путь с исключением; сравнивается с {@link #lookupMissing()}.
+     */
+    @Benchmark
+    public ProductNotFoundException findByIdMissing() {
+        try {
+            repository.findById(-BenchmarkProducts.randomId(catalogSize));
+            throw new IllegalStateException("Найден товар с отрицательным id");
+        } catch (ProductNotFoundException e) {
+            return e;
+        }
+    }
+
+    @Benchmark
+    public Optional<Product> lookupMissing() {
+        return repository.lookup(-BenchmarkProducts.randomId(catalogSize));
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public List<Product> findAll() {
+        return repository.findAll();
+    }
+
+    /**
+     * Итоги ведутся при записи, поэтому время не должно расти с {@code catalogSize}.
+     */
+    @Benchmark
+    public CatalogTotals totals() {
+        return repository.totals();
+    }
+
+    /**
+     * Перезаписывает существующий товар, чтобы размер каталога не менялся.
+     */
+    @Benchmark
+    public Product save() {
+        long id = BenchmarkProducts.randomId(catalogSize);
+        Product product = BenchmarkProducts.product(id);
+        product.setId(id);
+        return repository.save(product);
+    }
+
+    /**
+     * Удаляет товар и сразу сохраняет его обратно, чтобы размер каталога не менялся.
+     * Товар, удалённый параллельным потоком, просто сохраняется.
+     */
+    @Benchmark
+    public Product deleteById() {
+        long id = BenchmarkProducts.randomId(catalogSize);
+        try {
+            repository.deleteById(id);
+        } catch (ProductNotFoundException e) {
+            // Товар удалён другим потоком бенчмарка
+        }
+        Product product = BenchmarkProducts.product(id);
+        product.setId(id);
+        return repository.save(product);
+    }
+}
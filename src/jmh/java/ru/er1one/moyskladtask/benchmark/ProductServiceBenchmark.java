@@ -0,0 +1,88 @@
+package ru.er1one.moyskladtask.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.er1one.moyskladtask.exception.ProductNotFoundException;
+import ru.er1one.moyskladtask.model.Product;
+import ru.er1one.moyskladtask.model.ProductPatch;
+import ru.er1one.moyskladtask.repository.InMemoryProductRepository;
+import ru.er1one.moyskladtask.service.ProductCache;
+import ru.er1one.moyskladtask.service.ProductChangeFeed;
+import ru.er1one.moyskladtask.service.ProductService;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ProductServiceBenchmark {
+
+    @Param({"1000", "100000"})
+    public int catalogSize;
+
+    private ProductService productService;
+    private ProductChangeFeed productChangeFeed;
+    private Product replacement;
+    private ProductPatch patch;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        InMemoryProductRepository repository = new InMemoryProductRepository();
+        repository.saveAll(BenchmarkProducts.catalog(catalogSize));
+        productChangeFeed = new ProductChangeFeed(10_000);
+        productService = new ProductService(repository, new ProductCache(catalogSize, Duration.ofSeconds(30)), productChangeFeed);
+        replacement = BenchmarkProducts.product(0);
+        patch = new ProductPatch(ProductPatch.PRICE | ProductPatch.IN_STOCK, null, null, 99.9, true);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        productChangeFeed.close();
+    }
+
+    /**
+     * Поток запросов с несуществующими id через исключение, как до появления {@link ProductService#findProductById(long)}.
+     * Id берутся из того же диапазона, что у товаров, но с обратным знаком, поэтому промахи тоже
+     * кэшируются и сравнение с {@link #findMissingProduct()} показывает цену самого исключения.
+     */
+    @Benchmark
+    public ProductNotFoundException getMissingProduct() {
+        try {
+            productService.getProductById(-BenchmarkProducts.randomId(catalogSize));
+            throw new IllegalStateException("Найден товар с отрицательным id");
+        } catch (ProductNotFoundException e) {
+            return e;
+        }
+    }
+
+    @Benchmark
+    public Optional<Product> findMissingProduct() {
+        return productService.findProductById(-BenchmarkProducts.randomId(catalogSize));
+    }
+
+    @Benchmark
+    public Product updateProduct() {
+        return productService.updateProduct(BenchmarkProducts.randomId(catalogSize), replacement);
+    }
+
+    @Benchmark
+    public Product patchProduct() {
+        return productService.updateProduct(BenchmarkProducts.randomId(catalogSize), patch);
+    }
+}
@@ -0,0 +1,60 @@
+package ru.er1one.moyskladtask.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.er1one.moyskladtask.exception.ProductValidationException;
+import ru.er1one.moyskladtask.model.Product;
+import ru.er1one.moyskladtask.util.ProductValidator;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ProductValidatorBenchmark {
+
+    private Product valid;
+    private Product invalid;
+
+    @Setup
+    public void setup() {
+        valid = BenchmarkProducts.product(1);
+        invalid = BenchmarkProducts.product(2);
+        invalid.setPrice(-1.0);
+    }
+
+    @Benchmark
+    public Product validate() {
+        ProductValidator.validate(valid);
+        return valid;
+    }
+
+    @Benchmark
+    public ProductValidationException validateInvalid() {
+        try {
+            ProductValidator.validate(invalid);
+            throw new IllegalStateException("Товар с отрицательной ценой прошёл проверку");
+        } catch (ProductValidationException e) {
+            return e;
+        }
+    }
+
+    /**
+     * Тот же отказ без исключения, как его получает обработчик POST.
+     */
+    @Benchmark
+    public String checkInvalid() {
+        return ProductValidator.check(invalid);
+    }
+}
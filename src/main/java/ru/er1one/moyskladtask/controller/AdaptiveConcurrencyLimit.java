@@ -0,0 +1,76 @@
+package ru.er1one.moyskladtask.controller;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Предел одновременно обрабатываемых запросов, подстраиваемый по задержке (AIMD).
+ * <p>
+ * Пока запросы укладываются в целевую задержку и предел действительно используется, он растёт
+ * на единицу за каждые {@code limit} завершённых запросов. Первый запрос, превысивший цель, уменьшает
+ * предел на 10%, и следующее уменьшение возможно не раньше, чем через целевую задержку: иначе
+ * запросы одной волны перегрузки сбросили бы предел до минимума.
+ */
+final class AdaptiveConcurrencyLimit {
+
+    private static final double BACKOFF = 0.9;
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final long targetLatencyNanos;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private volatile double limit;
+    private long lastDecrease;
+
+    AdaptiveConcurrencyLimit(int initialLimit, int minLimit, int maxLimit, long targetLatencyNanos) {
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.targetLatencyNanos = targetLatencyNanos;
+        this.limit = Math.clamp(initialLimit, minLimit, maxLimit);
+        this.lastDecrease = System.nanoTime() - targetLatencyNanos;
+    }
+
+    /**
+     * Занимает место, если сейчас обрабатывается меньше {@code share} от предела.
+     */
+    boolean tryAcquire(double share) {
+        int allowed = Math.max(1, (int) (limit * share));
+        while (true) {
+            int current = inFlight.get();
+            if (current >= allowed) {
+                return false;
+            }
+            if (inFlight.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Освобождает место и учитывает задержку запроса; отрицательная задержка не учитывается.
+     */
+    void release(long latencyNanos, long now) {
+        int current = inFlight.getAndDecrement();
+        if (latencyNanos >= 0) {
+            adjust(latencyNanos, current, now);
+        }
+    }
+
+    int limit() {
+        return (int) limit;
+    }
+
+    int inFlight() {
+        return inFlight.get();
+    }
+
+    private synchronized void adjust(long latencyNanos, int inFlightBefore, long now) {
+        if (latencyNanos > targetLatencyNanos) {
+            if (now - lastDecrease >= targetLatencyNanos) {
+                limit = Math.max(minLimit, limit * BACKOFF);
+                lastDecrease = now;
+            }
+        } else if (inFlightBefore * 2 >= limit) {
+            limit = Math.min(maxLimit, limit + 1 / limit);
+        }
+    }
+}
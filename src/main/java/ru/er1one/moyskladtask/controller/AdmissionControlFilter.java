@@ -0,0 +1,196 @@
+package ru.er1one.moyskladtask.controller;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Допуск запросов к {@code /api/product}: лишняя работа отклоняется сразу, а не замедляет всех.
+ * <ul>
+ *     <li>Каждый клиент ограничен маркерной корзиной; превысивший её получает 429 с {@code Retry-After},
+ *     через сколько секунд маркеров хватит.</li>
+ *     <li>Число одновременно обрабатываемых запросов ограничено {@link AdaptiveConcurrencyLimit}; запрос
+ *     сверх предела получает 503 с {@code Retry-After: 1}.</li>
+ *     <li>Дорогим запросам — всему каталогу, экспорту и пакетам — доступна только часть предела
+ *     и они стоят клиенту нескольких маркеров, поэтому при перегрузке первыми отклоняются они,
+ *     а чтения по id и страницами продолжают обслуживаться.</li>
+ * </ul>
+ * Фильтр стоит первым в цепочке, поэтому отказ не доходит ни до разбора тела, ни до Spring MVC.
+ * Лента изменений держит соединение открытым, а импорт длится, пока передаётся файл, поэтому они учитываются
+ * только корзиной клиента: их длительность не говорит о перегрузке и не должна уменьшать предел. Дорогие запросы
+ * занимают место в пределе, но их задержка в подстройку не идёт: они медленны сами по себе, и поток таких запросов
+ * иначе снизил бы предел до минимума и отсёк дешёвые чтения. Запрос, пересланный
+ * другим узлом кластера ({@link ForwardedRequests}), уже оплачен клиентом там и проверяется только пределом.
+ * Для асинхронных ответов место освобождается по завершении ответа, а их длительность в предел не учитывается.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 10)
+@ConditionalOnProperty(prefix = "product.admission", name = "enabled", havingValue = "true", matchIfMissing = true)
+public class AdmissionControlFilter extends OncePerRequestFilter {
+
+    private static final String API = "/api/product";
+    private static final String REJECTED = "product.admission.rejected";
+    private static final byte[] RATE_LIMITED_BODY = body("Слишком много запросов");
+    private static final byte[] OVERLOADED_BODY = body("Сервис перегружен");
+
+    private final AdmissionProperties properties;
+    private final ForwardedRequests forwardedRequests;
+    private final Cache<String, TokenBucket> buckets;
+    private final AdaptiveConcurrencyLimit limit;
+    private final Counter rateLimited;
+    private final Counter overloaded;
+
+    @Autowired
+    public AdmissionControlFilter(AdmissionProperties properties, ForwardedRequests forwardedRequests, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.forwardedRequests = forwardedRequests;
+        this.buckets = Caffeine.newBuilder()
+                .maximumSize(properties.maxClients())
+                .expireAfterAccess(refillTime(properties))
+                .build();
+        this.limit = new AdaptiveConcurrencyLimit(properties.initialLimit(), properties.minLimit(), properties.maxLimit(),
+                properties.targetLatency().toNanos());
+        this.rateLimited = Counter.builder(REJECTED).tag("reason", "rate-limit").register(meterRegistry);
+        this.overloaded = Counter.builder(REJECTED).tag("reason", "overload").register(meterRegistry);
+        Gauge.builder("product.admission.limit", limit, AdaptiveConcurrencyLimit::limit).register(meterRegistry);
+        Gauge.builder("product.admission.in-flight", limit, AdaptiveConcurrencyLimit::inFlight).register(meterRegistry);
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        String path = path(request);
+        return !path.equals(API) && !path.startsWith(API + "/");
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        String path = path(request);
+        boolean expensive = isExpensive(request, path);
+        long start = System.nanoTime();
+
+        if (properties.clientRate() > 0 && !forwardedRequests.isForwarded(request)) {
+            long wait = buckets.get(client(request), key -> new TokenBucket(properties.clientRate(), properties.clientBurst(), start))
+                    .tryAcquire(expensive ? properties.expensiveCost() : 1, start);
+            if (wait > 0) {
+                rateLimited.increment();
+                reject(response, HttpStatus.TOO_MANY_REQUESTS.value(), TimeUnit.NANOSECONDS.toSeconds(wait - 1) + 1, RATE_LIMITED_BODY);
+                return;
+            }
+        }
+        if (path.equals(API + "/changes") || path.equals(API + "/import")) {
+            chain.doFilter(request, response);
+            return;
+        }
+        if (!limit.tryAcquire(expensive ? properties.expensiveShare() : 1.0)) {
+            overloaded.increment();
+            reject(response, HttpStatus.SERVICE_UNAVAILABLE.value(), 1, OVERLOADED_BODY);
+            return;
+        }
+
+        boolean async = false;
+        try {
+            chain.doFilter(request, response);
+            async = request.isAsyncStarted();
+        } finally {
+            if (async) {
+                request.getAsyncContext().addListener(new Release());
+            } else {
+                long now = System.nanoTime();
+                limit.release(expensive ? -1 : now - start, now);
+            }
+        }
+    }
+
+    private boolean isExpensive(HttpServletRequest request, String path) {
+        return switch (request.getMethod()) {
+            case "GET" -> path.equals(API) && request.getParameter("limit") == null || path.equals(API + "/export");
+            case "POST" -> path.equals(API + "/bulk") || path.equals(API + "/import");
+            default -> false;
+        };
+    }
+
+    private String client(HttpServletRequest request) {
+        String header = properties.clientHeader();
+        String client = header == null || header.isEmpty() ? null : request.getHeader(header);
+        return client == null ? request.getRemoteAddr() : client;
+    }
+
+    private static void reject(HttpServletResponse response, int status, long retryAfterSeconds, byte[] body) throws IOException {
+        response.setStatus(status);
+        response.setHeader(HttpHeaders.RETRY_AFTER, Long.toString(retryAfterSeconds));
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.setContentLength(body.length);
+        response.getOutputStream().write(body);
+    }
+
+    private static String path(HttpServletRequest request) {
+        return request.getRequestURI().substring(request.getContextPath().length());
+    }
+
+    /**
+     * За это время простоя корзина наполняется целиком, и её можно забыть.
+     */
+    private static Duration refillTime(AdmissionProperties properties) {
+        return properties.clientRate() > 0
+                ? Duration.ofMillis((long) Math.ceil(properties.clientBurst() / properties.clientRate() * 1000) + 1)
+                : Duration.ofMinutes(1);
+    }
+
+    private static byte[] body(String message) {
+        return ("{\"message\":\"" + message + "\",\"details\":null}").getBytes(StandardCharsets.UTF_8);
+    }
+
+    private final class Release implements AsyncListener {
+
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        @Override
+        public void onComplete(AsyncEvent event) {
+            release();
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event) {
+            release();
+        }
+
+        @Override
+        public void onError(AsyncEvent event) {
+            release();
+        }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+        }
+
+        private void release() {
+            if (released.compareAndSet(false, true)) {
+                limit.release(-1, System.nanoTime());
+            }
+        }
+    }
+}
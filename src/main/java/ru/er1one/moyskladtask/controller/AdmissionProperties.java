@@ -0,0 +1,30 @@
+package ru.er1one.moyskladtask.controller;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+/**
+ * @param clientHeader   заголовок с идентификатором клиента; если не задан или не пришёл, клиент — адрес отправителя
+ * @param clientRate     запросов в секунду на клиента в среднем; 0 отключает ограничение по клиентам
+ * @param clientBurst    сколько запросов клиент может отправить подряд после простоя
+ * @param maxClients     сколько клиентов одновременно отслеживается
+ * @param initialLimit   начальное число одновременно обрабатываемых запросов
+ * @param targetLatency  задержка недорогого запроса, выше которой предел одновременных запросов уменьшается
+ * @param expensiveShare доля предела, доступная дорогим запросам: выдаче всего каталога, экспорту и пакетам
+ * @param expensiveCost  сколько запросов клиента стоит один дорогой запрос
+ */
+@ConfigurationProperties("product.admission")
+public record AdmissionProperties(@DefaultValue("true") boolean enabled,
+                                  String clientHeader,
+                                  @DefaultValue("1000") double clientRate,
+                                  @DefaultValue("2000") double clientBurst,
+                                  @DefaultValue("100000") long maxClients,
+                                  @DefaultValue("100") int initialLimit,
+                                  @DefaultValue("8") int minLimit,
+                                  @DefaultValue("1000") int maxLimit,
+                                  @DefaultValue("50ms") Duration targetLatency,
+                                  @DefaultValue("0.25") double expensiveShare,
+                                  @DefaultValue("10") int expensiveCost) {
+}
@@ -0,0 +1,85 @@
+package ru.er1one.moyskladtask.controller;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Component;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+import org.springframework.web.servlet.mvc.method.RequestMappingInfo;
+import org.springframework.web.servlet.mvc.method.annotation.RequestMappingHandlerMapping;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Гистограммы задержек по эндпоинтам ({@code product.http.requests}, теги {@code method} и {@code uri}).
+ * <p>
+ * Таймеры создаются при старте для каждого шаблона пути и метода из {@link RequestMappingHandlerMapping},
+ * а на запросе лишь находятся по шаблону, который Spring MVC выбрал для обработчика, поэтому
+ * запрос не создаёт ни объектов, ни строк. Запросы, не дошедшие ни до одного обработчика,
+ * учитываются с {@code uri=UNKNOWN}. Для асинхронных ответов измеряется время до освобождения
+ * потока запроса.
+ */
+@Component
+public class EndpointMetricsFilter extends OncePerRequestFilter {
+
+    private static final String METRIC = "product.http.requests";
+    private static final String UNKNOWN = "UNKNOWN";
+
+    private final Map<String, Map<String, Timer>> timers = new HashMap<>();
+    private final Map<String, Timer> unknownTimers = new HashMap<>();
+    private final Timer otherTimer;
+
+    @Autowired
+    public EndpointMetricsFilter(MeterRegistry meterRegistry,
+                                 @Qualifier("requestMappingHandlerMapping") RequestMappingHandlerMapping handlerMapping) {
+        for (RequestMappingInfo mapping : handlerMapping.getHandlerMethods().keySet()) {
+            Set<RequestMethod> methods = mapping.getMethodsCondition().getMethods();
+            for (String pattern : mapping.getPatternValues()) {
+                for (RequestMethod method : methods.isEmpty() ? Set.of(RequestMethod.values()) : methods) {
+                    timers.computeIfAbsent(pattern, key -> new HashMap<>())
+                            .computeIfAbsent(method.name(), key -> timer(meterRegistry, key, pattern));
+                }
+            }
+        }
+        for (RequestMethod method : RequestMethod.values()) {
+            unknownTimers.put(method.name(), timer(meterRegistry, method.name(), UNKNOWN));
+        }
+        otherTimer = timer(meterRegistry, "OTHER", UNKNOWN);
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        long start = System.nanoTime();
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            timerFor(request).record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private Timer timerFor(HttpServletRequest request) {
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        Map<String, Timer> byMethod = pattern == null ? unknownTimers : timers.getOrDefault(pattern.toString(), unknownTimers);
+        return byMethod.getOrDefault(request.getMethod(), otherTimer);
+    }
+
+    private static Timer timer(MeterRegistry meterRegistry, String method, String uri) {
+        return Timer.builder(METRIC)
+                .tag("method", method)
+                .tag("uri", uri)
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+}
@@ -0,0 +1,77 @@
+package ru.er1one.moyskladtask.controller;
+
+import jakarta.servlet.http.HttpServletRequest;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import ru.er1one.moyskladtask.repository.ProductClusterProperties;
+
+import java.net.InetAddress;
+import java.net.URI;
+import java.net.UnknownHostException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Решает, переслан ли запрос другим узлом кластера. Такой запрос не тратит маркеры клиента
+ * ({@link AdmissionControlFilter}) и выполняется на принявшем узле без пересылки ({@link ProductRoutingFilter}),
+ * поэтому заголовку {@value ProductRoutingFilter#FORWARDED} от клиента верить нельзя.
+ * <p>
+ * Заголовок принимается только в режиме кластера. Если задан {@code product.cluster.secret}, значение заголовка
+ * должно с ним совпасть; иначе запрос должен прийти с адреса одного из узлов {@code product.cluster.nodes},
+ * которые разрешаются один раз при запуске. В остальных случаях запрос считается обычным запросом клиента.
+ */
+@Slf4j
+@Component
+public class ForwardedRequests {
+
+    private final boolean enabled;
+    private final byte[] secret;
+    private final Set<InetAddress> peers = new HashSet<>();
+    private final String headerValue;
+
+    @Autowired
+    public ForwardedRequests(ProductClusterProperties properties) {
+        this.enabled = properties.enabled();
+        boolean hasSecret = properties.secret() != null && !properties.secret().isEmpty();
+        this.secret = hasSecret ? properties.secret().getBytes(StandardCharsets.UTF_8) : null;
+        this.headerValue = properties.forwardedHeaderValue();
+        if (enabled && !hasSecret) {
+            for (URI node : properties.nodes()) {
+                try {
+                    peers.addAll(Arrays.asList(InetAddress.getAllByName(node.getHost())));
+                } catch (UnknownHostException e) {
+                    log.warn("Не удалось разрешить адрес узла кластера {}", node);
+                }
+            }
+        }
+    }
+
+    public boolean isForwarded(HttpServletRequest request) {
+        String header = request.getHeader(ProductRoutingFilter.FORWARDED);
+        if (!enabled || header == null) {
+            return false;
+        }
+        if (secret != null) {
+            return MessageDigest.isEqual(secret, header.getBytes(StandardCharsets.UTF_8));
+        }
+        if (request.getRemoteAddr() == null) {
+            return false;
+        }
+        try {
+            return peers.contains(InetAddress.getByName(request.getRemoteAddr()));
+        } catch (UnknownHostException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Значение заголовка для запросов, которые этот узел пересылает другим.
+     */
+    String headerValue() {
+        return headerValue;
+    }
+}
@@ -1,63 +1,283 @@
 package ru.er1one.moyskladtask.controller;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
 import lombok.Setter;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.BindingResult;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import ru.er1one.moyskladtask.exception.ProductNotFoundException;
 import ru.er1one.moyskladtask.exception.ProductValidationException;
+import ru.er1one.moyskladtask.exception.ProductVersionConflictException;
+import ru.er1one.moyskladtask.handler.GlobalExceptionHandler;
+import ru.er1one.moyskladtask.model.BulkOperation;
+import ru.er1one.moyskladtask.model.BulkResult;
+import ru.er1one.moyskladtask.model.CatalogStats;
+import ru.er1one.moyskladtask.model.ImportReport;
 import ru.er1one.moyskladtask.model.Product;
+import ru.er1one.moyskladtask.model.ProductCacheStats;
+import ru.er1one.moyskladtask.model.ProductChange;
+import ru.er1one.moyskladtask.model.ProductPage;
+import ru.er1one.moyskladtask.model.ProductPatch;
+import ru.er1one.moyskladtask.model.ProductQuery;
+import ru.er1one.moyskladtask.service.ProductCatalogSnapshot;
+import ru.er1one.moyskladtask.service.ProductChangeFeed;
+import ru.er1one.moyskladtask.service.ProductImporter;
 import ru.er1one.moyskladtask.service.ProductService;
+import ru.er1one.moyskladtask.util.ProductPatchParser;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Iterator;
 import java.util.List;
-import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Stream;
 
 @Setter
 @RestController
 @RequestMapping("/api/product")
 public class ProductController {
 
+    public static final MediaType APPLICATION_NDJSON = MediaType.parseMediaType("application/x-ndjson");
+    public static final MediaType TEXT_CSV = MediaType.parseMediaType("text/csv");
+
+    private static final int EXPORT_FLUSH_INTERVAL = 512;
+
+    private static final MediaType SMILE_TYPE = MediaType.parseMediaType("application/x-jackson-smile");
+    private static final MediaType CBOR_TYPE = MediaType.parseMediaType("application/cbor");
+    private static final String SMILE = "smile";
+    private static final String CBOR = "cbor";
+    private static final String GZIP = "gzip";
+    private static final Set<String> REPRESENTATIONS = Set.of(SMILE, CBOR, GZIP);
+
     private ProductService productService;
+    private ProductChangeFeed productChangeFeed;
+    private ProductCatalogSnapshot catalogSnapshot;
+    private ProductImporter productImporter;
+    private ObjectMapper objectMapper;
+    private GlobalExceptionHandler errors;
 
     @Autowired
-    public ProductController(ProductService productService) {
+    public ProductController(ProductService productService, ProductChangeFeed productChangeFeed,
+                             ProductCatalogSnapshot catalogSnapshot, ProductImporter productImporter,
+                             ObjectMapper objectMapper, GlobalExceptionHandler errors) {
         this.productService = productService;
+        this.productChangeFeed = productChangeFeed;
+        this.catalogSnapshot = catalogSnapshot;
+        this.productImporter = productImporter;
+        this.objectMapper = objectMapper;
+        this.errors = errors;
     }
 
+    /**
+     * ETag выдачи — версия каталога и представление ответа, см. {@link #etag(long, String)}. Если он совпал
+     * с {@code If-None-Match}, отвечает 304, не обращаясь к хранилищу.
+     * <p>
+     * Весь каталог в JSON отдаётся из {@link ProductCatalogSnapshot} готовыми байтами, сжатыми gzip,
+     * если клиент его принимает. Фильтры, двоичные форматы и каталог, не поместившийся в снимок,
+     * сериализуются при каждом запросе.
+     */
     @GetMapping
-    public List<Product> getAllProducts() {
-        return productService.getAllProducts();
+    public ResponseEntity<?> getAllProducts(@RequestParam(name = "minPrice", required = false) Double minPrice,
+                                            @RequestParam(name = "maxPrice", required = false) Double maxPrice,
+                                            @RequestParam(name = "inStock", required = false) Boolean inStock,
+                                            @RequestParam(name = "sort", required = false) String sort,
+                                            @RequestHeader(name = HttpHeaders.ACCEPT, required = false) String accept,
+                                            @RequestHeader(name = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding,
+                                            WebRequest request, HttpServletResponse response) throws ProductValidationException {
+        ProductQuery query = ProductQuery.of(minPrice, maxPrice, inStock, sort);
+        response.setHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT + ", " + HttpHeaders.ACCEPT_ENCODING);
+        if (query.isUnfiltered() && acceptsJsonSnapshot(accept)) {
+            Optional<ProductCatalogSnapshot.Snapshot> snapshot = catalogSnapshot.current();
+            if (snapshot.isPresent()) {
+                return snapshotResponse(snapshot.get(), acceptEncoding, request);
+            }
+        }
+        if (request.checkNotModified(etag(productService.getCatalogVersion(), representation(accept)))) {
+            return null;
+        }
+        if (query.isUnfiltered()) {
+            return ResponseEntity.ok(productService.getAllProducts());
+        }
+        return ResponseEntity.ok(productService.findProducts(query));
+    }
+
+    @GetMapping(params = "limit")
+    public ProductPage getProductPage(@RequestParam(name = "limit") int limit,
+                                      @RequestParam(name = "after", required = false) String after,
+                                      @RequestParam(name = "minPrice", required = false) Double minPrice,
+                                      @RequestParam(name = "maxPrice", required = false) Double maxPrice,
+                                      @RequestParam(name = "inStock", required = false) Boolean inStock,
+                                      @RequestParam(name = "sort", required = false) String sort,
+                                      @RequestHeader(name = HttpHeaders.ACCEPT, required = false) String accept,
+                                      WebRequest request, HttpServletResponse response) throws ProductValidationException {
+        ProductQuery query = ProductQuery.of(minPrice, maxPrice, inStock, sort);
+        response.setHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT);
+        if (request.checkNotModified(etag(productService.getCatalogVersion(), representation(accept)))) {
+            return null;
+        }
+        return productService.getProductPage(query, after, limit);
+    }
+
+    @GetMapping(value = "/export", produces = "application/x-ndjson")
+    public ResponseEntity<StreamingResponseBody> exportProducts() {
+        return ResponseEntity.ok()
+                .contentType(APPLICATION_NDJSON)
+                .body(this::writeNdjson);
+    }
+
+    @GetMapping("/search")
+    public List<Product> searchProducts(@RequestParam(name = "q") String query,
+                                        @RequestParam(name = "limit", defaultValue = "20") int limit) throws ProductValidationException {
+        return productService.searchProducts(query, limit);
+    }
+
+    /**
+     * Лента изменений каталога (Server-Sent Events). Событие {@code change} несёт {@link ProductChange},
+     * его id — номер события; переподключение с {@code Last-Event-ID} или {@code after} продолжает ленту
+     * с места обрыва. Событие {@code reset} означает, что часть событий уже недоступна и каталог нужно перечитать.
+     */
+    @GetMapping(value = "/changes", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamChanges(@RequestHeader(name = "Last-Event-ID", required = false) Long lastEventId,
+                                    @RequestParam(name = "after", required = false) Long after) {
+        SseEmitter emitter = new SseEmitter(0L);
+        ProductChangeFeed.Subscription subscription = productChangeFeed.subscribe(lastEventId != null ? lastEventId : after,
+                new ProductChangeFeed.Subscriber() {
+                    @Override
+                    public void send(ProductChange change) throws IOException {
+                        emitter.send(SseEmitter.event()
+                                .id(Long.toString(change.sequence()))
+                                .name("change")
+                                .data(change, MediaType.APPLICATION_JSON));
+                    }
+
+                    @Override
+                    public void reset(long sequence) throws IOException {
+                        emitter.send(SseEmitter.event()
+                                .id(Long.toString(sequence))
+                                .name("reset")
+                                .data(sequence));
+                    }
+                });
+        emitter.onCompletion(subscription::close);
+        emitter.onTimeout(subscription::close);
+        emitter.onError(error -> subscription.close());
+        return emitter;
+    }
+
+    /**
+     * Число товаров, число товаров в наличии и сводка по ценам; с {@code histogram=true} — ещё и гистограмма
+     * цен. Итоги ведутся хранилищем при записи, поэтому ответ не требует обхода каталога.
+     */
+    @GetMapping("/stats")
+    public CatalogStats getCatalogStats(@RequestParam(name = "histogram", defaultValue = "false") boolean histogram) {
+        return productService.getCatalogStats(histogram);
     }
 
+    @GetMapping("/cache/stats")
+    public ProductCacheStats getCacheStats() {
+        return productService.getCacheStats();
+    }
+
+    /**
+     * ETag товара — его версия и представление ответа; при совпадении с {@code If-None-Match} тело
+     * не сериализуется. Промах отвечает 404 без исключения: несуществующие id обходятся не дороже существующих.
+     */
     @GetMapping("/{id}")
-    public ResponseEntity<Product> getProductById(@PathVariable(name = "id") long id) throws ProductNotFoundException {
-        Product product = productService.getProductById(id);
-        return new ResponseEntity<>(product, HttpStatus.OK);
+    public ResponseEntity<?> getProductById(@PathVariable(name = "id") long id,
+                                            @RequestHeader(name = HttpHeaders.ACCEPT, required = false) String accept,
+                                            WebRequest request, HttpServletResponse response) {
+        Optional<Product> product = productService.findProductById(id);
+        if (product.isEmpty()) {
+            return errors.notFound(null);
+        }
+        response.setHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT);
+        if (request.checkNotModified(etag(product.get().getVersion(), representation(accept)))) {
+            return null;
+        }
+        return new ResponseEntity<>(product.get(), HttpStatus.OK);
     }
 
+    /**
+     * Некорректный товар отклоняется с 400 без исключения. Правила проверяются один раз,
+     * {@link ProductService#checkNewProduct}, и сохранение их не повторяет.
+     */
     @PostMapping
-    public ResponseEntity<?> addProduct(@Valid @RequestBody Product product, BindingResult result) throws ProductValidationException {
-        if (result.hasErrors()) {
-            var message = result.getFieldError() == null ? "Ошибка валидации" : result.getFieldError().getDefaultMessage();
-            throw new ProductValidationException(message);
+    public ResponseEntity<?> addProduct(@Valid @RequestBody Product product, BindingResult result) {
+        String error = result.hasErrors()
+                ? result.getFieldError() == null ? "Ошибка валидации" : result.getFieldError().getDefaultMessage()
+                : productService.checkNewProduct(product);
+        if (error != null) {
+            return errors.validationFailed(error);
         }
-        Product createdProduct = productService.addProduct(product);
+        Product createdProduct = productService.addCheckedProduct(product);
         return new ResponseEntity<>(createdProduct, HttpStatus.CREATED);
     }
 
+    @PostMapping("/bulk")
+    public List<BulkResult> bulkProducts(@RequestBody List<BulkOperation> operations) throws ProductValidationException {
+        return productService.applyBulk(operations);
+    }
+
+    /**
+     * Импорт каталога из тела в CSV ({@code text/csv}) или NDJSON ({@code application/x-ndjson}), см. {@link ProductImporter}.
+     * Тело читается потоком, поэтому размер файла не ограничен памятью. Некорректные записи не прерывают импорт
+     * и перечисляются в отчёте с номерами строк; если импорт остановил отказ хранилища, отчёт описывает уже
+     * сохранённое, а причина — в {@code failure}.
+     */
+    @PostMapping(value = "/import", consumes = {"text/csv", "application/x-ndjson"})
+    public ImportReport importProducts(InputStream body, @RequestHeader(name = HttpHeaders.CONTENT_TYPE) String contentType)
+            throws IOException, ProductValidationException {
+        ProductImporter.Format format = TEXT_CSV.isCompatibleWith(MediaType.parseMediaType(contentType))
+                ? ProductImporter.Format.CSV
+                : ProductImporter.Format.NDJSON;
+        return productImporter.importProducts(body, format, ProductImporter.Progress.NONE);
+    }
+
+    /**
+     * Тело — JSON Merge Patch ({@code application/merge-patch+json} или {@code application/json}), которое
+     * разбирается потоково, см. {@link ProductPatchParser}. С заголовком {@code If-Match} изменение
+     * применяется, только если ETag товара не изменился, иначе 412; подходит ETag любого представления.
+     */
     @PatchMapping("/{id}")
-    public ResponseEntity<Product> patchProduct(@PathVariable(name = "id") long id, @RequestBody Map<String, Object> updates) throws ProductNotFoundException, ProductValidationException {
-        Product updatedProduct = productService.updateProduct(id, updates);
-        return new ResponseEntity<>(updatedProduct, HttpStatus.OK);
+    public ResponseEntity<Product> patchProduct(@PathVariable(name = "id") long id,
+                                                InputStream body,
+                                                @RequestHeader(name = HttpHeaders.IF_MATCH, required = false) String ifMatch,
+                                                @RequestHeader(name = HttpHeaders.ACCEPT, required = false) String accept)
+            throws IOException, ProductNotFoundException, ProductValidationException, ProductVersionConflictException {
+        Long expectedVersion = expectedVersion(ifMatch);
+        ProductPatch patch = ProductPatchParser.parse(objectMapper.getFactory(), body);
+        Product updatedProduct = productService.updateProduct(id, patch, expectedVersion);
+        return ResponseEntity.ok()
+                .eTag(etag(updatedProduct.getVersion(), representation(accept)))
+                .varyBy(HttpHeaders.ACCEPT)
+                .body(updatedProduct);
     }
 
+    /**
+     * {@code If-Match} — как в {@link #patchProduct}.
+     */
     @PutMapping("/{id}")
-    public ResponseEntity<Void> putProduct(@PathVariable(name = "id") long id, @RequestBody Product product) throws ProductNotFoundException, ProductValidationException {
-        productService.updateProduct(id, product);
-        return new ResponseEntity<>(HttpStatus.NO_CONTENT);
+    public ResponseEntity<Void> putProduct(@PathVariable(name = "id") long id,
+                                           @RequestBody Product product,
+                                           @RequestHeader(name = HttpHeaders.IF_MATCH, required = false) String ifMatch)
+            throws ProductNotFoundException, ProductValidationException, ProductVersionConflictException {
+        Product updatedProduct = productService.updateProduct(id, product, expectedVersion(ifMatch));
+        return ResponseEntity.noContent().eTag(etag(updatedProduct.getVersion(), null)).build();
     }
 
     @DeleteMapping("/{id}")
@@ -65,4 +285,145 @@ public class ProductController {
         productService.deleteProduct(id);
         return new ResponseEntity<>(HttpStatus.NO_CONTENT);
     }
+
+    private static ResponseEntity<byte[]> snapshotResponse(ProductCatalogSnapshot.Snapshot snapshot, String acceptEncoding,
+                                                           WebRequest request) {
+        boolean gzip = acceptsGzip(acceptEncoding) && snapshot.gzip() != null;
+        if (request.checkNotModified(etag(snapshot.version(), gzip ? GZIP : null))) {
+            return null;
+        }
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON);
+        if (gzip) {
+            return response.header(HttpHeaders.CONTENT_ENCODING, "gzip").body(snapshot.gzip());
+        }
+        return response.body(snapshot.json());
+    }
+
+    /**
+     * Снимок подходит, если клиент принимает JSON и не называет явно другой формат: выбор между
+     * JSON и двоичными форматами остаётся за обычным согласованием.
+     */
+    private static boolean acceptsJsonSnapshot(String accept) {
+        if (accept == null || accept.isBlank()) {
+            return true;
+        }
+        List<MediaType> types;
+        try {
+            types = MediaType.parseMediaTypes(accept);
+        } catch (InvalidMediaTypeException e) {
+            return false;
+        }
+        boolean json = false;
+        for (MediaType type : types) {
+            if (type.isCompatibleWith(MediaType.APPLICATION_JSON)) {
+                json = true;
+            } else if (!type.isWildcardType() && !type.isWildcardSubtype()) {
+                return false;
+            }
+        }
+        return json;
+    }
+
+    private static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        for (String coding : acceptEncoding.split(",")) {
+            String[] parts = coding.split(";");
+            if (parts[0].trim().equalsIgnoreCase("gzip")) {
+                return parts.length == 1 || !parts[1].replace(" ", "").matches("q=0(\\.0{0,3})?");
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Формат, который выберет согласование по {@code Accept}: {@code null} для JSON, иначе суффикс ETag
+     * двоичного формата. Как и в Spring, выигрывает наибольшее {@code q}, при равенстве — конкретный тип,
+     * а шаблоны достаются JSON, чей конвертер стоит первым.
+     */
+    private static String representation(String accept) {
+        if (accept == null || accept.isBlank()) {
+            return null;
+        }
+        List<MediaType> types;
+        try {
+            types = MediaType.parseMediaTypes(accept);
+        } catch (InvalidMediaTypeException e) {
+            return null;
+        }
+        String best = null;
+        double bestQuality = 0;
+        boolean bestConcrete = false;
+        for (MediaType type : types) {
+            String format;
+            if (type.isCompatibleWith(MediaType.APPLICATION_JSON)) {
+                format = null;
+            } else if (type.isCompatibleWith(SMILE_TYPE)) {
+                format = SMILE;
+            } else if (type.isCompatibleWith(CBOR_TYPE)) {
+                format = CBOR;
+            } else {
+                continue;
+            }
+            double quality = type.getQualityValue();
+            boolean concrete = !type.isWildcardType() && !type.isWildcardSubtype();
+            if (quality > bestQuality || quality == bestQuality && concrete && !bestConcrete) {
+                best = format;
+                bestQuality = quality;
+                bestConcrete = concrete;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Сильный ETag: версия, а для представления, отличного от несжатого JSON, — ещё и его суффикс
+     * ({@code "7-smile"}, {@code "9-gzip"}), чтобы кэш не выдал байты одного формата в ответ на другой.
+     */
+    private static String etag(long version, String representation) {
+        return representation == null ? "\"" + version + "\"" : "\"" + version + "-" + representation + "\"";
+    }
+
+    /**
+     * Версия из {@code If-Match}: {@code null}, если заголовка нет или он равен {@code *}. Суффикс
+     * представления не учитывается: условие относится к товару, а не к формату, в котором его прочли.
+     * Слабый или не выданный сервисом ETag не может совпасть с текущим, поэтому сразу даёт 412.
+     */
+    private static Long expectedVersion(String ifMatch) throws ProductVersionConflictException {
+        if (ifMatch == null || ifMatch.isBlank() || ifMatch.trim().equals("*")) {
+            return null;
+        }
+        String etag = ifMatch.trim();
+        if (etag.length() < 2 || etag.charAt(0) != '"' || etag.charAt(etag.length() - 1) != '"') {
+            throw new ProductVersionConflictException();
+        }
+        int end = etag.indexOf('-', 1);
+        if (end < 0 || !REPRESENTATIONS.contains(etag.substring(end + 1, etag.length() - 1))) {
+            end = etag.length() - 1;
+        }
+        try {
+            return Long.parseLong(etag, 1, end, 10);
+        } catch (NumberFormatException e) {
+            throw new ProductVersionConflictException();
+        }
+    }
+
+    private void writeNdjson(OutputStream out) throws IOException {
+        ObjectWriter writer = objectMapper.writerFor(Product.class)
+                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        try (JsonGenerator generator = objectMapper.createGenerator(out);
+             Stream<Product> products = productService.streamAllProducts()) {
+            generator.setRootValueSeparator(null);
+            Iterator<Product> iterator = products.iterator();
+            int written = 0;
+            while (iterator.hasNext()) {
+                writer.writeValue(generator, iterator.next());
+                generator.writeRaw('\n');
+                if (++written % EXPORT_FLUSH_INTERVAL == 0) {
+                    generator.flush();
+                }
+            }
+        }
+    }
 }
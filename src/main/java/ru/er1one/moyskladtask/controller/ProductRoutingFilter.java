@@ -0,0 +1,148 @@
+package ru.er1one.moyskladtask.controller;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import ru.er1one.moyskladtask.repository.ProductClusterProperties;
+import ru.er1one.moyskladtask.repository.ShardedProductRepository;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Пересылает запросы к товару по id ({@code /api/product/{id}}) узлу, который его хранит, и возвращает
+ * клиенту его ответ. Так товар читается, изменяется и кэшируется только на своём узле, и кэш другого узла
+ * не отдаёт устаревшую копию. Остальные запросы выполняются на принявшем их узле через
+ * {@link ShardedProductRepository}.
+ * <p>
+ * Пересланный запрос помечается {@value #FORWARDED}: получатель выполняет его сам, даже если считает
+ * владельцем другой узел, поэтому запрос не ходит по кругу при расхождении настроек. Заголовок от клиента,
+ * а не от узла кластера, не учитывается, см. {@link ForwardedRequests}.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 20)
+@ConditionalOnProperty(prefix = "product.cluster", name = "enabled", havingValue = "true")
+public class ProductRoutingFilter extends OncePerRequestFilter {
+
+    static final String FORWARDED = ProductClusterProperties.FORWARDED_HEADER;
+
+    private static final String API = "/api/product/";
+    private static final int MAX_ID_DIGITS = 19;
+    private static final List<String> FORWARDED_REQUEST_HEADERS = List.of(
+            HttpHeaders.CONTENT_TYPE, HttpHeaders.ACCEPT, HttpHeaders.IF_MATCH, HttpHeaders.IF_NONE_MATCH);
+    private static final Set<String> SKIPPED_RESPONSE_HEADERS = Set.of(
+            "connection", "content-length", "keep-alive", "transfer-encoding", "upgrade");
+    private static final byte[] UNAVAILABLE_BODY =
+            "{\"message\":\"Узел кластера недоступен\",\"details\":null}".getBytes(StandardCharsets.UTF_8);
+
+    private final ShardedProductRepository cluster;
+    private final ForwardedRequests forwardedRequests;
+    private final HttpClient client;
+    private final Duration timeout;
+
+    @Autowired
+    public ProductRoutingFilter(ShardedProductRepository cluster, ForwardedRequests forwardedRequests,
+                                ProductClusterProperties properties) {
+        this.cluster = cluster;
+        this.forwardedRequests = forwardedRequests;
+        this.timeout = properties.timeout();
+        this.client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(timeout)
+                .build();
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return id(request) < 0 || forwardedRequests.isForwarded(request);
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        int owner = cluster.owner(id(request));
+        if (owner == cluster.nodeId()) {
+            chain.doFilter(request, response);
+            return;
+        }
+
+        String query = request.getQueryString();
+        URI target = cluster.nodeUri(owner).resolve(request.getRequestURI() + (query == null ? "" : "?" + query));
+        byte[] body = request.getInputStream().readAllBytes();
+        HttpRequest.Builder forwarded = HttpRequest.newBuilder(target)
+                .timeout(timeout)
+                .header(FORWARDED, forwardedRequests.headerValue())
+                .method(request.getMethod(), body.length == 0
+                        ? HttpRequest.BodyPublishers.noBody()
+                        : HttpRequest.BodyPublishers.ofByteArray(body));
+        for (String header : FORWARDED_REQUEST_HEADERS) {
+            String value = request.getHeader(header);
+            if (value != null) {
+                forwarded.header(header, value);
+            }
+        }
+
+        HttpResponse<byte[]> answer;
+        try {
+            answer = client.send(forwarded.build(), HttpResponse.BodyHandlers.ofByteArray());
+        } catch (IOException | InterruptedException e) {
+            if (e instanceof InterruptedException) {
+                Thread.currentThread().interrupt();
+            }
+            response.setStatus(HttpStatus.SERVICE_UNAVAILABLE.value());
+            response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+            response.setContentLength(UNAVAILABLE_BODY.length);
+            response.getOutputStream().write(UNAVAILABLE_BODY);
+            return;
+        }
+
+        response.setStatus(answer.statusCode());
+        answer.headers().map().forEach((name, values) -> {
+            if (!SKIPPED_RESPONSE_HEADERS.contains(name.toLowerCase(Locale.ROOT))) {
+                values.forEach(value -> response.addHeader(name, value));
+            }
+        });
+        response.setContentLength(answer.body().length);
+        response.getOutputStream().write(answer.body());
+    }
+
+    /**
+     * Id из пути {@code /api/product/{id}} или -1 для других путей.
+     */
+    private static long id(HttpServletRequest request) {
+        String uri = request.getRequestURI();
+        int start = request.getContextPath().length() + API.length();
+        int length = uri.length() - start;
+        if (length < 1 || length > MAX_ID_DIGITS || !uri.startsWith(API, request.getContextPath().length())) {
+            return -1;
+        }
+        for (int i = start; i < uri.length(); i++) {
+            if (uri.charAt(i) < '0' || uri.charAt(i) > '9') {
+                return -1;
+            }
+        }
+        try {
+            return Long.parseLong(uri, start, uri.length(), 10);
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+}
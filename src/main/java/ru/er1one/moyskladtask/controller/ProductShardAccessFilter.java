@@ -0,0 +1,58 @@
+package ru.er1one.moyskladtask.controller;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Пропускает к {@link ProductShardController} только запросы других узлов кластера — с тем же секретом
+ * или с адреса узла, как решает {@link ForwardedRequests}. Эти эндпоинты пишут прямо в хранилище узла
+ * без проверок, поэтому остальным запросам отвечает 403.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+@ConditionalOnProperty(prefix = "product.cluster", name = "enabled", havingValue = "true")
+public class ProductShardAccessFilter extends OncePerRequestFilter {
+
+    private static final String INTERNAL = "/internal/product";
+    private static final byte[] FORBIDDEN_BODY =
+            "{\"message\":\"Доступно только узлам кластера\",\"details\":null}".getBytes(StandardCharsets.UTF_8);
+
+    private final ForwardedRequests forwardedRequests;
+
+    @Autowired
+    public ProductShardAccessFilter(ForwardedRequests forwardedRequests) {
+        this.forwardedRequests = forwardedRequests;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        return !path.equals(INTERNAL) && !path.startsWith(INTERNAL + "/");
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        if (forwardedRequests.isForwarded(request)) {
+            chain.doFilter(request, response);
+            return;
+        }
+        response.setStatus(HttpStatus.FORBIDDEN.value());
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.setContentLength(FORBIDDEN_BODY.length);
+        response.getOutputStream().write(FORBIDDEN_BODY);
+    }
+}
@@ -0,0 +1,122 @@
+package ru.er1one.moyskladtask.controller;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import ru.er1one.moyskladtask.exception.ProductNotFoundException;
+import ru.er1one.moyskladtask.exception.ProductValidationException;
+import ru.er1one.moyskladtask.exception.ProductVersionConflictException;
+import ru.er1one.moyskladtask.model.CatalogTotals;
+import ru.er1one.moyskladtask.model.Product;
+import ru.er1one.moyskladtask.model.ProductQuery;
+import ru.er1one.moyskladtask.model.ProductShardStats;
+import ru.er1one.moyskladtask.model.ProductSort;
+import ru.er1one.moyskladtask.repository.ProductRepository;
+import ru.er1one.moyskladtask.service.ProductCache;
+import ru.er1one.moyskladtask.util.ProductCursor;
+
+import java.util.List;
+
+/**
+ * Часть каталога этого узла для других узлов кластера. Запросы выполняются прямо на хранилище узла,
+ * без проверок и ленты изменений: их уже выполнил узел, принявший запрос клиента. Записи сбрасывают
+ * кэш этого узла, потому что запросы к товару по id обслуживает его владелец, см. {@link ProductRoutingFilter}.
+ * <p>
+ * Запросы не от узлов кластера отклоняются с 403 до контроллера, см. {@link ProductShardAccessFilter}.
+ */
+@RestController
+@RequestMapping("/internal/product")
+@ConditionalOnProperty(prefix = "product.cluster", name = "enabled", havingValue = "true")
+public class ProductShardController {
+
+    private final ProductRepository productRepository;
+    private final ProductCache productCache;
+
+    @Autowired
+    public ProductShardController(@Qualifier(ProductRepository.LOCAL) ProductRepository productRepository, ProductCache productCache) {
+        this.productRepository = productRepository;
+        this.productCache = productCache;
+    }
+
+    @GetMapping
+    public List<Product> findAll() {
+        return productRepository.findAll();
+    }
+
+    @GetMapping("/find")
+    public List<Product> find(@RequestParam(name = "sort") String sort,
+                              @RequestParam(name = "limit") int limit,
+                              @RequestParam(name = "after", required = false) String after,
+                              @RequestParam(name = "minPrice", required = false) Double minPrice,
+                              @RequestParam(name = "maxPrice", required = false) Double maxPrice,
+                              @RequestParam(name = "inStock", required = false) Boolean inStock) throws ProductValidationException {
+        ProductQuery query = new ProductQuery(minPrice, maxPrice, inStock, ProductSort.parse(sort));
+        return productRepository.find(query, ProductCursor.decode(query.sort(), after), limit);
+    }
+
+    @GetMapping("/search")
+    public List<Product> search(@RequestParam(name = "q") String query, @RequestParam(name = "limit") int limit) {
+        return productRepository.search(query, limit);
+    }
+
+    @GetMapping("/stats")
+    public ProductShardStats stats() {
+        return new ProductShardStats(productRepository.count(), productRepository.catalogVersion());
+    }
+
+    @GetMapping("/totals")
+    public CatalogTotals totals() {
+        return productRepository.totals();
+    }
+
+    @GetMapping("/{id}")
+    public ResponseEntity<Product> lookup(@PathVariable(name = "id") long id) {
+        return ResponseEntity.of(productRepository.lookup(id));
+    }
+
+    /**
+     * Без {@code X-Expected-Version} сохраняет товар как есть, с ним — заменяет товар этой версии
+     * и отвечает 412, если версия уже другая.
+     */
+    @PutMapping("/{id}")
+    public Product save(@PathVariable(name = "id") long id,
+                        @RequestHeader(name = "X-Expected-Version", required = false) Long expectedVersion,
+                        @RequestBody Product product) throws ProductNotFoundException, ProductVersionConflictException {
+        product.setId(id);
+        Product saved = expectedVersion == null
+                ? productRepository.save(product)
+                : productRepository.update(id, expectedVersion, existingProduct -> product);
+        productCache.invalidate(id);
+        return saved;
+    }
+
+    @PostMapping("/batch")
+    public List<Product> saveAll(@RequestBody List<Product> batch) {
+        List<Product> saved = productRepository.saveAll(batch);
+        for (Product product : saved) {
+            productCache.invalidate(product.getId());
+        }
+        return saved;
+    }
+
+    /**
+     * Возвращает версию удаления, чтобы узел, принявший запрос, передал её в ленту изменений.
+     */
+    @DeleteMapping("/{id}")
+    public long delete(@PathVariable(name = "id") long id) throws ProductNotFoundException {
+        long version = productRepository.deleteById(id);
+        productCache.invalidate(id);
+        return version;
+    }
+}
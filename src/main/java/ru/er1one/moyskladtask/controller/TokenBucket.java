@@ -0,0 +1,35 @@
+package ru.er1one.moyskladtask.controller;
+
+/**
+ * Маркерная корзина одного клиента: пополняется со скоростью {@code rate} до {@code capacity} маркеров.
+ */
+final class TokenBucket {
+
+    private final double tokensPerNano;
+    private final double capacity;
+    private double tokens;
+    private long updated;
+
+    TokenBucket(double ratePerSecond, double capacity, long now) {
+        this.tokensPerNano = ratePerSecond / 1_000_000_000.0;
+        this.capacity = capacity;
+        this.tokens = capacity;
+        this.updated = now;
+    }
+
+    /**
+     * Списывает {@code cost} маркеров.
+     *
+     * @return 0, если маркеры списаны, иначе через сколько наносекунд их станет достаточно
+     */
+    synchronized long tryAcquire(double cost, long now) {
+        double required = Math.min(cost, capacity);
+        tokens = Math.min(capacity, tokens + (now - updated) * tokensPerNano);
+        updated = now;
+        if (tokens >= required) {
+            tokens -= required;
+            return 0;
+        }
+        return (long) Math.ceil((required - tokens) / tokensPerNano);
+    }
+}
@@ -0,0 +1,42 @@
+package ru.er1one.moyskladtask.controller;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.util.List;
+
+/**
+ * Двоичные форматы API: Smile ({@code application/x-jackson-smile}) и CBOR ({@code application/cbor}).
+ * Выбираются заголовками {@code Accept} и {@code Content-Type} для ответов и тел запросов, включая
+ * списки товаров и пакетные операции.
+ * <p>
+ * Конвертеры добавляются после JSON, поэтому запрос без явного формата по-прежнему получает JSON.
+ * Мапперы строятся тем же {@link Jackson2ObjectMapperBuilder}, что и JSON-маппер приложения,
+ * так что настройки и аннотации сериализации у всех форматов общие.
+ */
+@Configuration
+public class WireFormatConfiguration implements WebMvcConfigurer {
+
+    private final ObjectProvider<Jackson2ObjectMapperBuilder> builders;
+
+    @Autowired
+    public WireFormatConfiguration(ObjectProvider<Jackson2ObjectMapperBuilder> builders) {
+        this.builders = builders;
+    }
+
+    @Override
+    public void extendMessageConverters(List<HttpMessageConverter<?>> converters) {
+        converters.add(new MappingJackson2SmileHttpMessageConverter(builder().smile().build()));
+        converters.add(new MappingJackson2CborHttpMessageConverter(builder().cbor().build()));
+    }
+
+    private Jackson2ObjectMapperBuilder builder() {
+        return builders.getIfAvailable(Jackson2ObjectMapperBuilder::new);
+    }
+}
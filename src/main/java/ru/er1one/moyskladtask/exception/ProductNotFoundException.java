@@ -4,4 +4,12 @@ import lombok.experimental.StandardException;
 
 @StandardException
 public class ProductNotFoundException extends RuntimeException {
+
+    /**
+     * Промах по id — ожидаемый исход, а не сбой: стек вызовов не нужен, а его заполнение дороже самого поиска.
+     */
+    @Override
+    public synchronized Throwable fillInStackTrace() {
+        return this;
+    }
 }
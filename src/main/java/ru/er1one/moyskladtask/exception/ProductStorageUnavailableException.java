@@ -0,0 +1,7 @@
+package ru.er1one.moyskladtask.exception;
+
+import lombok.experimental.StandardException;
+
+@StandardException
+public class ProductStorageUnavailableException extends RuntimeException {
+}
@@ -11,4 +11,12 @@ public class ProductValidationException extends RuntimeException {
     public ProductValidationException(Set<ConstraintViolation<Product>> violations) {
         super(String.join(", ", violations.stream().map(ConstraintViolation::getMessage).toList()));
     }
+
+    /**
+     * Описывает ошибку в запросе клиента, поэтому стек вызовов не заполняется.
+     */
+    @Override
+    public synchronized Throwable fillInStackTrace() {
+        return this;
+    }
 }
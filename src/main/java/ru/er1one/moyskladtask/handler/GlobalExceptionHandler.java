@@ -1,34 +1,106 @@
 package ru.er1one.moyskladtask.handler;
 
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
 import ru.er1one.moyskladtask.exception.ProductNotFoundException;
+import ru.er1one.moyskladtask.exception.ProductShardUnavailableException;
+import ru.er1one.moyskladtask.exception.ProductStorageUnavailableException;
 import ru.er1one.moyskladtask.exception.ProductValidationException;
+import ru.er1one.moyskladtask.exception.ProductVersionConflictException;
 
 @RestControllerAdvice
 public class GlobalExceptionHandler {
+
+    private static final String ERRORS = "product.api.errors";
+
+    private final Counter notFoundErrors;
+    private final Counter validationErrors;
+    private final Counter conflictErrors;
+    private final Counter unavailableErrors;
+    private final Counter internalErrors;
+
+    @Autowired
+    public GlobalExceptionHandler(MeterRegistry meterRegistry) {
+        notFoundErrors = Counter.builder(ERRORS).tag("type", "not-found").register(meterRegistry);
+        validationErrors = Counter.builder(ERRORS).tag("type", "validation").register(meterRegistry);
+        conflictErrors = Counter.builder(ERRORS).tag("type", "conflict").register(meterRegistry);
+        unavailableErrors = Counter.builder(ERRORS).tag("type", "unavailable").register(meterRegistry);
+        internalErrors = Counter.builder(ERRORS).tag("type", "internal").register(meterRegistry);
+    }
+
     @ExceptionHandler(ProductNotFoundException.class)
     public ResponseEntity<ApiError> handleProductNotFound(ProductNotFoundException ex) {
+        return notFound(ex.getMessage());
+    }
+
+    @ExceptionHandler(ProductValidationException.class)
+    public ResponseEntity<ApiError> handleValidationErrors(ProductValidationException ex) {
+        return validationFailed(ex.getMessage());
+    }
+
+    /**
+     * Ответ 404 для обработчиков, которые узнают о промахе без исключения.
+     */
+    public ResponseEntity<ApiError> notFound(String details) {
+        notFoundErrors.increment();
         ApiError error = new ApiError(
                 "Товар не найден",
-                ex.getMessage()
+                details
         );
         return new ResponseEntity<>(error, HttpStatus.NOT_FOUND);
     }
 
-    @ExceptionHandler(ProductValidationException.class)
-    public ResponseEntity<ApiError> handleValidationErrors(ProductValidationException ex) {
+    /**
+     * Ответ 400 для обработчиков, получивших сообщение об ошибке проверки без исключения,
+     * например от {@link ru.er1one.moyskladtask.service.ProductService#checkNewProduct}.
+     */
+    public ResponseEntity<ApiError> validationFailed(String details) {
+        validationErrors.increment();
         ApiError error = new ApiError(
                 "Ошибка валидации",
-                ex.getMessage()
+                details
         );
         return new ResponseEntity<>(error, HttpStatus.BAD_REQUEST);
     }
 
+    @ExceptionHandler(ProductVersionConflictException.class)
+    public ResponseEntity<ApiError> handleVersionConflict(ProductVersionConflictException ex) {
+        conflictErrors.increment();
+        ApiError error = new ApiError(
+                "Товар изменён другим запросом",
+                ex.getMessage()
+        );
+        return new ResponseEntity<>(error, HttpStatus.PRECONDITION_FAILED);
+    }
+
+    @ExceptionHandler(ProductShardUnavailableException.class)
+    public ResponseEntity<ApiError> handleShardUnavailable(ProductShardUnavailableException ex) {
+        unavailableErrors.increment();
+        ApiError error = new ApiError(
+                "Узел кластера недоступен",
+                ex.getMessage()
+        );
+        return new ResponseEntity<>(error, HttpStatus.SERVICE_UNAVAILABLE);
+    }
+
+    @ExceptionHandler(ProductStorageUnavailableException.class)
+    public ResponseEntity<ApiError> handleStorageUnavailable(ProductStorageUnavailableException ex) {
+        unavailableErrors.increment();
+        ApiError error = new ApiError(
+                "Хранилище товаров недоступно для записи",
+                ex.getMessage()
+        );
+        return new ResponseEntity<>(error, HttpStatus.SERVICE_UNAVAILABLE);
+    }
+
     @ExceptionHandler(Exception.class)
     public ResponseEntity<ApiError> handleGeneralErrors(Exception ex) {
+        internalErrors.increment();
         ApiError error = new ApiError(
                 "Внутренняя ошибка сервера",
                 ex.getMessage()
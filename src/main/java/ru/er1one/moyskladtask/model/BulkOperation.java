@@ -0,0 +1,15 @@
+package ru.er1one.moyskladtask.model;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+public record BulkOperation(Action action, Long id, Product product) {
+
+    public enum Action {
+        @JsonProperty("create")
+        CREATE,
+        @JsonProperty("update")
+        UPDATE,
+        @JsonProperty("delete")
+        DELETE
+    }
+}
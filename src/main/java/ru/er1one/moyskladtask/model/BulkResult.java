@@ -0,0 +1,23 @@
+package ru.er1one.moyskladtask.model;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record BulkResult(int index, Status status, Long id, String error) {
+
+    public enum Status {
+        CREATED,
+        UPDATED,
+        DELETED,
+        INVALID,
+        NOT_FOUND
+    }
+
+    public static BulkResult success(int index, Status status, long id) {
+        return new BulkResult(index, status, id, null);
+    }
+
+    public static BulkResult failure(int index, Status status, Long id, String error) {
+        return new BulkResult(index, status, id, error);
+    }
+}
@@ -0,0 +1,53 @@
+package ru.er1one.moyskladtask.model;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Статистика каталога для {@code GET /api/product/stats}. Цены — в рублях с точностью до копейки;
+ * без товаров с ценой ценовые поля не заполняются. Гистограмма охватывает интервалы от самого дешёвого
+ * товара до самого дорогого, включая пустые между ними.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record CatalogStats(long count, long inStock, BigDecimal minPrice, BigDecimal maxPrice, BigDecimal averagePrice,
+                           BigDecimal sumPrice, List<PriceBucket> histogram) {
+
+    private static final int SCALE = 2;
+
+    /**
+     * @param to верхняя граница (не включительно); {@code null} у последнего интервала
+     */
+    public record PriceBucket(BigDecimal from, BigDecimal to, long count) {
+    }
+
+    public static CatalogStats of(CatalogTotals totals, boolean withHistogram) {
+        if (totals.priced() == 0) {
+            return new CatalogStats(totals.count(), totals.inStock(), null, null, null, null, withHistogram ? List.of() : null);
+        }
+        return new CatalogStats(totals.count(), totals.inStock(),
+                rubles(totals.minPrice()),
+                rubles(totals.maxPrice()),
+                rubles(totals.priceSum()).divide(BigDecimal.valueOf(totals.priced()), SCALE, RoundingMode.HALF_EVEN),
+                rubles(totals.priceSum()),
+                withHistogram ? histogram(totals) : null);
+    }
+
+    private static List<PriceBucket> histogram(CatalogTotals totals) {
+        long[] counts = totals.histogram();
+        List<PriceBucket> buckets = new ArrayList<>();
+        for (int bucket = CatalogTotals.bucket(totals.minPrice()); bucket <= CatalogTotals.bucket(totals.maxPrice()); bucket++) {
+            long to = CatalogTotals.bucketTo(bucket);
+            buckets.add(new PriceBucket(rubles(CatalogTotals.bucketFrom(bucket)), to < 0 ? null : rubles(to),
+                    bucket < counts.length ? counts[bucket] : 0));
+        }
+        return buckets;
+    }
+
+    private static BigDecimal rubles(long minorUnits) {
+        return BigDecimal.valueOf(minorUnits, SCALE);
+    }
+}
@@ -0,0 +1,71 @@
+package ru.er1one.moyskladtask.model;
+
+/**
+ * Точные итоги каталога или его части. Цены — в копейках: {@code priced} товаров с ценой, их сумма,
+ * минимум и максимум (при {@code priced == 0} минимум и максимум не определены) и число товаров
+ * в каждом интервале цен шкалы 1–2–5: до 1 ₽, от 1 до 2 ₽, от 2 до 5 ₽, от 5 до 10 ₽ и так далее.
+ * Итоги разных частей каталога складываются через {@link #merge}.
+ */
+public record CatalogTotals(long count, long inStock, long priced, long priceSum, long minPrice, long maxPrice,
+                            long[] histogram) {
+
+    public static final int MINOR_UNITS = 100;
+    public static final CatalogTotals EMPTY = new CatalogTotals(0, 0, 0, 0, Long.MAX_VALUE, Long.MIN_VALUE, new long[0]);
+
+    private static final long[] BOUNDS = bounds();
+
+    /**
+     * Число интервалов гистограммы; последний не ограничен сверху.
+     */
+    public static final int BUCKETS = BOUNDS.length + 1;
+
+    public static long toMinorUnits(double price) {
+        return Math.round(price * MINOR_UNITS);
+    }
+
+    /**
+     * Номер интервала гистограммы, в который попадает цена.
+     */
+    public static int bucket(long minorUnits) {
+        int bucket = 0;
+        while (bucket < BOUNDS.length && minorUnits >= BOUNDS[bucket]) {
+            bucket++;
+        }
+        return bucket;
+    }
+
+    /**
+     * Нижняя граница интервала в копейках.
+     */
+    public static long bucketFrom(int bucket) {
+        return bucket == 0 ? 0 : BOUNDS[bucket - 1];
+    }
+
+    /**
+     * Верхняя граница интервала в копейках (не включительно) или -1 для последнего интервала.
+     */
+    public static long bucketTo(int bucket) {
+        return bucket < BOUNDS.length ? BOUNDS[bucket] : -1;
+    }
+
+    public CatalogTotals merge(CatalogTotals other) {
+        long[] merged = new long[Math.max(histogram.length, other.histogram.length)];
+        for (int i = 0; i < merged.length; i++) {
+            merged[i] = (i < histogram.length ? histogram[i] : 0) + (i < other.histogram.length ? other.histogram[i] : 0);
+        }
+        return new CatalogTotals(count + other.count, inStock + other.inStock, priced + other.priced,
+                priceSum + other.priceSum, Math.min(minPrice, other.minPrice), Math.max(maxPrice, other.maxPrice), merged);
+    }
+
+    private static long[] bounds() {
+        long[] bounds = new long[51];
+        long decade = MINOR_UNITS;
+        for (int i = 0; i < bounds.length; i += 3) {
+            bounds[i] = decade;
+            bounds[i + 1] = decade * 2;
+            bounds[i + 2] = decade * 5;
+            decade *= 10;
+        }
+        return bounds;
+    }
+}
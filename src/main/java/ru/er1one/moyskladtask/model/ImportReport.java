@@ -0,0 +1,24 @@
+package ru.er1one.moyskladtask.model;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.util.List;
+
+/**
+ * Итог импорта каталога.
+ *
+ * @param records  число прочитанных записей без пустых строк
+ * @param imported число сохранённых товаров
+ * @param failed   число отклонённых записей
+ * @param errors   первые ошибки по записям, не больше {@code product.import.max-errors}
+ * @param failure  причина, по которой импорт остановлен до конца файла; {@code null} — файл прочитан целиком
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record ImportReport(long records, long imported, long failed, List<LineError> errors, String failure) {
+
+    /**
+     * @param line номер строки файла, с которой начинается запись
+     */
+    public record LineError(long line, String error) {
+    }
+}
@@ -19,4 +19,20 @@ public class Product {
 
     private Boolean inStock = false;
 
+    /**
+     * Версия, назначаемая хранилищем при каждой записи товара; значение из запроса игнорируется.
+     */
+    private Long version;
+
+    public Product copy() {
+        Product copy = new Product();
+        copy.setId(id);
+        copy.setName(name);
+        copy.setDescription(description);
+        copy.setPrice(price);
+        copy.setInStock(inStock);
+        copy.setVersion(version);
+        return copy;
+    }
+
 }
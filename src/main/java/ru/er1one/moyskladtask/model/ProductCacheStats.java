@@ -0,0 +1,4 @@
+package ru.er1one.moyskladtask.model;
+
+public record ProductCacheStats(long size, long hitCount, long missCount, double hitRate, long evictionCount) {
+}
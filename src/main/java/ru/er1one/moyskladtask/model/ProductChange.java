@@ -0,0 +1,40 @@
+package ru.er1one.moyskladtask.model;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * Событие ленты изменений каталога. Для удалённого товара {@code product} не передаётся.
+ * <p>
+ * События публикуются после записи, вне блокировки хранилища, поэтому изменения одного товара могут
+ * прийти не по порядку. Порядок восстанавливается по {@code version}: это версия товара после изменения,
+ * а для удаления — версия, выданная удалению тем же счётчиком.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record ProductChange(long sequence, Type type, long id, Long version, Product product) {
+
+    public enum Type {
+        @JsonProperty("created")
+        CREATED,
+        @JsonProperty("updated")
+        UPDATED,
+        @JsonProperty("deleted")
+        DELETED
+    }
+
+    public static ProductChange created(Product product) {
+        return new ProductChange(0, Type.CREATED, product.getId(), product.getVersion(), product.copy());
+    }
+
+    public static ProductChange updated(Product product) {
+        return new ProductChange(0, Type.UPDATED, product.getId(), product.getVersion(), product.copy());
+    }
+
+    public static ProductChange deleted(long id, long version) {
+        return new ProductChange(0, Type.DELETED, id, version, null);
+    }
+
+    public ProductChange withSequence(long sequence) {
+        return new ProductChange(sequence, type, id, version, product);
+    }
+}
@@ -0,0 +1,6 @@
+package ru.er1one.moyskladtask.model;
+
+import java.util.List;
+
+public record ProductPage(List<Product> items, String nextCursor) {
+}
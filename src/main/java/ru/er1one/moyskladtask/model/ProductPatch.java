@@ -0,0 +1,37 @@
+package ru.er1one.moyskladtask.model;
+
+/**
+ * Частичное изменение товара по правилам JSON Merge Patch (RFC 7386): поле, которого нет в {@link #fields()},
+ * не меняется, а {@code null} удаляет значение. Для названия и цены это делает товар некорректным,
+ * а описание и наличие возвращаются к значениям по умолчанию, как у нового товара.
+ */
+public record ProductPatch(int fields, String name, String description, Double price, Boolean inStock) {
+
+    public static final int NAME = 1;
+    public static final int DESCRIPTION = 1 << 1;
+    public static final int PRICE = 1 << 2;
+    public static final int IN_STOCK = 1 << 3;
+
+    public boolean has(int field) {
+        return (fields & field) != 0;
+    }
+
+    /**
+     * Переносит поля изменения в {@code product} и возвращает его же.
+     */
+    public Product applyTo(Product product) {
+        if (has(NAME)) {
+            product.setName(name);
+        }
+        if (has(DESCRIPTION)) {
+            product.setDescription(description == null ? "" : description);
+        }
+        if (has(PRICE)) {
+            product.setPrice(price);
+        }
+        if (has(IN_STOCK)) {
+            product.setInStock(inStock == null ? Boolean.FALSE : inStock);
+        }
+        return product;
+    }
+}
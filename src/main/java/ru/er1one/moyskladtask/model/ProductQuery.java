@@ -0,0 +1,38 @@
+package ru.er1one.moyskladtask.model;
+
+import ru.er1one.moyskladtask.exception.ProductValidationException;
+
+/**
+ * Фильтр и порядок выдачи каталога. Без явной сортировки товары упорядочены по цене,
+ * если задан диапазон цен, и по id в остальных случаях.
+ */
+public record ProductQuery(Double minPrice, Double maxPrice, Boolean inStock, ProductSort sort) {
+
+    public static final ProductQuery ALL = new ProductQuery(null, null, null, ProductSort.ID);
+
+    public static ProductQuery of(Double minPrice, Double maxPrice, Boolean inStock, String sort) throws ProductValidationException {
+        ProductSort productSort;
+        if (sort != null) {
+            productSort = ProductSort.parse(sort);
+        } else if (minPrice != null || maxPrice != null) {
+            productSort = ProductSort.PRICE;
+        } else {
+            productSort = ProductSort.ID;
+        }
+        return new ProductQuery(minPrice, maxPrice, inStock, productSort);
+    }
+
+    public boolean isUnfiltered() {
+        return minPrice == null && maxPrice == null && inStock == null && sort == ProductSort.ID;
+    }
+
+    public boolean matches(Product product) {
+        if (minPrice != null && (product.getPrice() == null || product.getPrice() < minPrice)) {
+            return false;
+        }
+        if (maxPrice != null && (product.getPrice() == null || product.getPrice() > maxPrice)) {
+            return false;
+        }
+        return inStock == null || inStock.equals(product.getInStock());
+    }
+}
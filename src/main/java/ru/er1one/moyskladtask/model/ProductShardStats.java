@@ -0,0 +1,7 @@
+package ru.er1one.moyskladtask.model;
+
+/**
+ * Размер и версия части каталога, хранящейся на одном узле кластера.
+ */
+public record ProductShardStats(long count, long catalogVersion) {
+}
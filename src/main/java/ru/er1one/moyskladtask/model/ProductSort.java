@@ -0,0 +1,19 @@
+package ru.er1one.moyskladtask.model;
+
+import ru.er1one.moyskladtask.exception.ProductValidationException;
+
+import java.util.Locale;
+
+public enum ProductSort {
+    ID,
+    PRICE,
+    NAME;
+
+    public static ProductSort parse(String value) throws ProductValidationException {
+        try {
+            return valueOf(value.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new ProductValidationException("Неверная сортировка: " + value, e);
+        }
+    }
+}
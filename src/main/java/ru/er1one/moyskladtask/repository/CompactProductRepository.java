@@ -0,0 +1,515 @@
+package ru.er1one.moyskladtask.repository;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Repository;
+import ru.er1one.moyskladtask.exception.ProductNotFoundException;
+import ru.er1one.moyskladtask.model.CatalogTotals;
+import ru.er1one.moyskladtask.model.Product;
+import ru.er1one.moyskladtask.model.ProductQuery;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.IntFunction;
+import java.util.function.UnaryOperator;
+import java.util.stream.Stream;
+
+/**
+ * Компактное хранилище товаров в памяти для больших каталогов.
+ * <p>
+ * Товар занимает ячейку в наборе примитивных колонок: id, версия, цена, ссылки на название и описание
+ * в {@link ProductStringStore} и биты «в наличии» и «занято». Id сопоставляются ячейкам через
+ * {@link LongIntHashMap}, а объекты {@link Product} создаются только при выдаче наружу.
+ * Ячейки упорядочены по id, поэтому выдача в порядке id идёт подряд по колонкам от позиции,
+ * найденной двоичным поиском. Сохранение с явным id меньше уже выданных нарушает порядок,
+ * и он восстанавливается при следующем упорядоченном чтении.
+ * <p>
+ * Удалённые ячейки и освобождённые строки копятся до уплотнения, которое переносит живые
+ * товары в новые колонки. Вторичных индексов нет: сортировка по цене и названию и поиск
+ * выполняются просмотром колонок, в обмен на несколько десятков байт на товар вместо сотен.
+ * Итоги каталога ({@link #totals()}) обновляются при каждой записи одной заменой старых значений колонок на новые
+ * и читаются под той же блокировкой, что и каталог.
+ * Чтения выполняются параллельно, записи сериализуются одной блокировкой.
+ */
+@Repository
+@Qualifier(ProductRepository.LOCAL)
+@ConditionalOnProperty(prefix = "product.storage", name = "type", havingValue = "compact")
+public class CompactProductRepository implements ProductRepository {
+
+    private static final int INITIAL_CAPACITY = 1024;
+    private static final int STREAM_PAGE_SIZE = 1000;
+    private static final int MIN_COMPACTION_SLOTS = 1024;
+    private static final long MIN_COMPACTION_BYTES = 1 << 20;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final boolean offHeap;
+
+    private final LongIntHashMap slots = new LongIntHashMap(INITIAL_CAPACITY);
+    private final ProductAggregates aggregates = new ProductAggregates();
+    private ProductStringStore strings;
+    private long[] ids;
+    private long[] versions;
+    private double[] prices;
+    private long[] names;
+    private long[] descriptions;
+    private long[] inStock;
+    private long[] live;
+    private int size;
+    private int deleted;
+    private boolean ordered = true;
+    private long lastId;
+    private long lastVersion = ProductVersions.initial();
+    private volatile long catalogVersion = ProductVersions.initial();
+
+    @Autowired
+    public CompactProductRepository(@Value("${product.storage.compact.off-heap:false}") boolean offHeap) {
+        this.offHeap = offHeap;
+        this.strings = new ProductStringStore(offHeap);
+        allocate(INITIAL_CAPACITY);
+    }
+
+    @Override
+    public List<Product> findAll() {
+        lockOrdered();
+        try {
+            List<Product> found = new ArrayList<>(slots.size());
+            for (int slot = 0; slot < size; slot++) {
+                if (isSet(live, slot)) {
+                    found.add(materialize(slot));
+                }
+            }
+            return found;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Обходит каталог страницами по {@value #STREAM_PAGE_SIZE} товаров, не удерживая блокировку между ними.
+     */
+    @Override
+    public Stream<Product> streamAll() {
+        return ProductPages.stream(this, STREAM_PAGE_SIZE);
+    }
+
+    @Override
+    public List<Product> find(ProductQuery query, Product after, int limit) {
+        return switch (query.sort()) {
+            case ID -> findInIdOrder(query, after == null ? null : after.getId(), limit);
+            case PRICE -> findTop(query, slot -> Double.isNaN(prices[slot]) ? null : new PriceKey(prices[slot], ids[slot]),
+                    after == null ? null : new PriceKey(after.getPrice(), after.getId()), limit);
+            case NAME -> findTop(query, slot -> NameKey.of(strings.get(names[slot]), ids[slot]),
+                    after == null ? null : NameKey.of(after.getName(), after.getId()), limit);
+        };
+    }
+
+    @Override
+    public List<Product> search(String query, int limit) {
+        Set<String> terms = ProductSearchIndex.tokenize(query);
+        if (terms.isEmpty()) {
+            return List.of();
+        }
+        return findTop(ProductQuery.ALL, slot -> {
+            int score = ProductSearchIndex.score(terms, strings.get(names[slot]), strings.get(descriptions[slot]));
+            return score == 0 ? null : new ScoreKey(score, ids[slot]);
+        }, null, limit);
+    }
+
+    @Override
+    public long count() {
+        lock.readLock().lock();
+        try {
+            return slots.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public long catalogVersion() {
+        return catalogVersion;
+    }
+
+    @Override
+    public CatalogTotals totals() {
+        lock.readLock().lock();
+        try {
+            return aggregates.totals();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public Optional<Product> lookup(long id) {
+        lock.readLock().lock();
+        try {
+            int slot = slots.get(id);
+            return slot == LongIntHashMap.MISSING ? Optional.empty() : Optional.of(materialize(slot));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public Product save(Product product) {
+        lock.writeLock().lock();
+        try {
+            store(product);
+            catalogVersion++;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        return product;
+    }
+
+    @Override
+    public List<Product> saveAll(List<Product> batch) {
+        lock.writeLock().lock();
+        try {
+            for (Product product : batch) {
+                store(product);
+            }
+            catalogVersion++;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        return batch;
+    }
+
+    @Override
+    public Product update(long id, UnaryOperator<Product> updater) throws ProductNotFoundException {
+        lock.writeLock().lock();
+        try {
+            int slot = slots.get(id);
+            if (slot == LongIntHashMap.MISSING) {
+                throw new ProductNotFoundException();
+            }
+            Product updated = updater.apply(materialize(slot));
+            updated.setId(id);
+            double previousPrice = prices[slot];
+            boolean previousInStock = isSet(inStock, slot);
+            write(slot, updated);
+            aggregates.replace(previousPrice, previousInStock, prices[slot], isSet(inStock, slot));
+            compactIfNeeded();
+            catalogVersion++;
+            return updated;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public long deleteById(long id) throws ProductNotFoundException {
+        lock.writeLock().lock();
+        try {
+            int slot = slots.remove(id);
+            if (slot == LongIntHashMap.MISSING) {
+                throw new ProductNotFoundException();
+            }
+            strings.release(names[slot]);
+            strings.release(descriptions[slot]);
+            set(live, slot, false);
+            aggregates.remove(prices[slot], isSet(inStock, slot));
+            deleted++;
+            compactIfNeeded();
+            catalogVersion++;
+            return ++lastVersion;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private List<Product> findInIdOrder(ProductQuery query, Long after, int limit) {
+        lockOrdered();
+        try {
+            List<Product> found = new ArrayList<>();
+            for (int slot = after == null ? 0 : firstSlotAfter(after); slot < size && found.size() < limit; slot++) {
+                if (isSet(live, slot) && matches(query, slot)) {
+                    found.add(materialize(slot));
+                }
+            }
+            return found;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Просматривает все ячейки и оставляет {@code limit} наименьших ключей, больших {@code after},
+     * в куче. Ячейки, для которых ключ не построен, пропускаются.
+     */
+    private <K extends Comparable<K>> List<Product> findTop(ProductQuery query, IntFunction<K> keyOf, K after, int limit) {
+        if (limit <= 0) {
+            return List.of();
+        }
+        PriorityQueue<Ranked<K>> top = new PriorityQueue<Ranked<K>>(Comparator.reverseOrder());
+        lock.readLock().lock();
+        try {
+            for (int slot = 0; slot < size; slot++) {
+                if (!isSet(live, slot) || !matches(query, slot)) {
+                    continue;
+                }
+                K key = keyOf.apply(slot);
+                if (key == null || after != null && key.compareTo(after) <= 0) {
+                    continue;
+                }
+                if (top.size() < limit) {
+                    top.add(new Ranked<>(key, slot));
+                } else if (key.compareTo(top.element().key()) < 0) {
+                    top.poll();
+                    top.add(new Ranked<>(key, slot));
+                }
+            }
+            Product[] found = new Product[top.size()];
+            for (int i = found.length - 1; i >= 0; i--) {
+                found[i] = materialize(top.remove().slot());
+            }
+            return List.of(found);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void store(Product product) {
+        if (product.getId() == null) {
+            product.setId(++lastId);
+        } else {
+            lastId = Math.max(lastId, product.getId());
+        }
+        long id = product.getId();
+        int slot = slots.get(id);
+        if (slot == LongIntHashMap.MISSING) {
+            slot = allocateSlot(id);
+            slots.put(id, slot);
+            names[slot] = ProductStringStore.NULL;
+            descriptions[slot] = ProductStringStore.NULL;
+            set(live, slot, true);
+            write(slot, product);
+            aggregates.add(prices[slot], isSet(inStock, slot));
+        } else {
+            double previousPrice = prices[slot];
+            boolean previousInStock = isSet(inStock, slot);
+            write(slot, product);
+            aggregates.replace(previousPrice, previousInStock, prices[slot], isSet(inStock, slot));
+        }
+        compactIfNeeded();
+    }
+
+    private void write(int slot, Product product) {
+        product.setVersion(++lastVersion);
+        versions[slot] = lastVersion;
+        names[slot] = strings.replace(names[slot], product.getName());
+        descriptions[slot] = strings.replace(descriptions[slot], product.getDescription());
+        prices[slot] = product.getPrice() == null ? Double.NaN : product.getPrice();
+        set(inStock, slot, Boolean.TRUE.equals(product.getInStock()));
+    }
+
+    /**
+     * Возвращает ячейку для нового id. Ячейка удалённого товара с тем же id используется
+     * повторно, чтобы не нарушать порядок.
+     */
+    private int allocateSlot(long id) {
+        if (ordered && size > 0 && id <= ids[size - 1]) {
+            int position = Arrays.binarySearch(ids, 0, size, id);
+            if (position >= 0) {
+                deleted--;
+                return position;
+            }
+        }
+        if (size == ids.length) {
+            if (deleted > size / 4) {
+                compact();
+            } else {
+                resize(size + size / 2);
+            }
+        }
+        if (size > 0 && id <= ids[size - 1]) {
+            ordered = false;
+        }
+        ids[size] = id;
+        return size++;
+    }
+
+    private void compactIfNeeded() {
+        long garbage = strings.getGarbageBytes();
+        if (deleted >= MIN_COMPACTION_SLOTS && deleted > size / 4
+                || garbage >= MIN_COMPACTION_BYTES && garbage > strings.getLiveBytes()) {
+            compact();
+        }
+    }
+
+    /**
+     * Переносит живые товары в новые колонки в порядке id, отбрасывая удалённые ячейки
+     * и освобождённые строки.
+     */
+    private void compact() {
+        int count = slots.size();
+        long[] liveIds = new long[count];
+        int next = 0;
+        for (int slot = 0; slot < size; slot++) {
+            if (isSet(live, slot)) {
+                liveIds[next++] = ids[slot];
+            }
+        }
+        if (!ordered) {
+            Arrays.sort(liveIds);
+        }
+
+        long[] oldVersions = versions;
+        long[] oldNames = names;
+        long[] oldDescriptions = descriptions;
+        double[] oldPrices = prices;
+        long[] oldInStock = inStock;
+        ProductStringStore oldStrings = strings;
+        strings = new ProductStringStore(offHeap);
+        allocate(Math.max(INITIAL_CAPACITY, count + count / 2));
+        for (int slot = 0; slot < count; slot++) {
+            long id = liveIds[slot];
+            int oldSlot = slots.get(id);
+            ids[slot] = id;
+            versions[slot] = oldVersions[oldSlot];
+            prices[slot] = oldPrices[oldSlot];
+            names[slot] = oldStrings.copyTo(strings, oldNames[oldSlot]);
+            descriptions[slot] = oldStrings.copyTo(strings, oldDescriptions[oldSlot]);
+            set(inStock, slot, isSet(oldInStock, oldSlot));
+            set(live, slot, true);
+            slots.put(id, slot);
+        }
+        size = count;
+        deleted = 0;
+        ordered = true;
+    }
+
+    /**
+     * Захватывает блокировку на чтение, предварительно восстановив порядок ячеек, если он нарушен.
+     */
+    private void lockOrdered() {
+        lock.readLock().lock();
+        if (ordered) {
+            return;
+        }
+        lock.readLock().unlock();
+        lock.writeLock().lock();
+        try {
+            if (!ordered) {
+                compact();
+            }
+            lock.readLock().lock();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private int firstSlotAfter(long id) {
+        int position = Arrays.binarySearch(ids, 0, size, id);
+        return position >= 0 ? position + 1 : -position - 1;
+    }
+
+    private boolean matches(ProductQuery query, int slot) {
+        double price = prices[slot];
+        if (query.minPrice() != null && !(price >= query.minPrice())) {
+            return false;
+        }
+        if (query.maxPrice() != null && !(price <= query.maxPrice())) {
+            return false;
+        }
+        return query.inStock() == null || query.inStock() == isSet(inStock, slot);
+    }
+
+    private Product materialize(int slot) {
+        Product product = new Product();
+        product.setId(ids[slot]);
+        product.setName(strings.get(names[slot]));
+        product.setDescription(strings.get(descriptions[slot]));
+        product.setPrice(Double.isNaN(prices[slot]) ? null : prices[slot]);
+        product.setInStock(isSet(inStock, slot));
+        product.setVersion(versions[slot]);
+        return product;
+    }
+
+    private void allocate(int capacity) {
+        ids = new long[capacity];
+        versions = new long[capacity];
+        prices = new double[capacity];
+        names = new long[capacity];
+        descriptions = new long[capacity];
+        inStock = new long[words(capacity)];
+        live = new long[words(capacity)];
+    }
+
+    private void resize(int capacity) {
+        ids = Arrays.copyOf(ids, capacity);
+        versions = Arrays.copyOf(versions, capacity);
+        prices = Arrays.copyOf(prices, capacity);
+        names = Arrays.copyOf(names, capacity);
+        descriptions = Arrays.copyOf(descriptions, capacity);
+        inStock = Arrays.copyOf(inStock, words(capacity));
+        live = Arrays.copyOf(live, words(capacity));
+    }
+
+    private static int words(int bits) {
+        return (bits + Long.SIZE - 1) / Long.SIZE;
+    }
+
+    private static boolean isSet(long[] bits, int index) {
+        return (bits[index >>> 6] & (1L << index)) != 0;
+    }
+
+    private static void set(long[] bits, int index, boolean value) {
+        if (value) {
+            bits[index >>> 6] |= 1L << index;
+        } else {
+            bits[index >>> 6] &= ~(1L << index);
+        }
+    }
+
+    private record Ranked<K extends Comparable<K>>(K key, int slot) implements Comparable<Ranked<K>> {
+
+        @Override
+        public int compareTo(Ranked<K> other) {
+            return key.compareTo(other.key);
+        }
+    }
+
+    private record PriceKey(double price, long id) implements Comparable<PriceKey> {
+
+        @Override
+        public int compareTo(PriceKey other) {
+            int byPrice = Double.compare(price, other.price);
+            return byPrice != 0 ? byPrice : Long.compare(id, other.id);
+        }
+    }
+
+    private record NameKey(String name, long id) implements Comparable<NameKey> {
+
+        static NameKey of(String name, long id) {
+            return name == null ? null : new NameKey(name.toLowerCase(Locale.ROOT), id);
+        }
+
+        @Override
+        public int compareTo(NameKey other) {
+            int byName = name.compareTo(other.name);
+            return byName != 0 ? byName : Long.compare(id, other.id);
+        }
+    }
+
+    private record ScoreKey(int score, long id) implements Comparable<ScoreKey> {
+
+        @Override
+        public int compareTo(ScoreKey other) {
+            int byScore = Integer.compare(other.score, score);
+            return byScore != 0 ? byScore : Long.compare(id, other.id);
+        }
+    }
+}
@@ -0,0 +1,537 @@
+package ru.er1one.moyskladtask.repository;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.stereotype.Component;
+import ru.er1one.moyskladtask.exception.ProductStorageUnavailableException;
+import ru.er1one.moyskladtask.model.Product;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+/**
+ * Файловый журнал упреждающей записи со снимками.
+ * <p>
+ * Изменения дописываются в текущий сегмент журнала. Отдельный поток сбрасывает накопленные записи
+ * одной операцией {@code force}, так что параллельные запросы разделяют стоимость fsync (group commit).
+ * Периодически журнал переключается на новый сегмент, а содержимое хранилища выгружается в снимок;
+ * после этого старые сегменты и снимки удаляются. Снимок снимается без остановки записи, поэтому
+ * может содержать изменения из нового сегмента — повторное применение полных состояний товара
+ * идемпотентно, и восстановление «снимок + хвост журнала» даёт актуальное состояние.
+ * <p>
+ * Каждая запись хранится как {@code [длина][CRC32C][тело]}. Оборванная или повреждённая запись в конце
+ * последнего сегмента при восстановлении отбрасывается вместе с хвостом; повреждение раньше означает потерю
+ * подтверждённых изменений, и восстановление останавливается с ошибкой.
+ * <p>
+ * Несброшенные записи копятся не больше {@code max-pending} байт, дальше запись ждёт сброса. После ошибки
+ * записи на диск журнал больше не принимает изменений, и хранилище остаётся доступным только для чтения.
+ * Изменения из несброшенной группы к этому моменту уже видны читателям, но их авторы получают ошибку,
+ * а после перезапуска узел вернётся к состоянию на диске.
+ */
+@Slf4j
+@Component
+@ConditionalOnExpression("${product.journal.enabled:false} and '${product.storage.type:memory}' == 'memory'")
+public class FileProductJournal implements ProductJournal {
+
+    private static final byte SNAPSHOT_HEADER = 0;
+    private static final byte SAVE = 1;
+    private static final byte DELETE = 2;
+    private static final int SNAPSHOT_MAGIC = 0x50524F44;
+    private static final int FRAME_HEADER = Integer.BYTES * 2;
+    private static final long MAP_WINDOW = 1L << 30;
+    private static final String SEGMENT_PREFIX = "journal-";
+    private static final String SEGMENT_SUFFIX = ".log";
+    private static final String SNAPSHOT_PREFIX = "snapshot-";
+    private static final String SNAPSHOT_SUFFIX = ".bin";
+
+    private final InMemoryProductRepository productRepository;
+    private final ProductJournalProperties properties;
+
+    private final ReentrantLock appendLock = new ReentrantLock();
+    private final Condition hasPending = appendLock.newCondition();
+    private final Condition durable = appendLock.newCondition();
+    private final Condition drained = appendLock.newCondition();
+    private final ReentrantLock ioLock = new ReentrantLock();
+    private final long maxPending;
+
+    private ByteArrayOutputStream pending = new ByteArrayOutputStream();
+    private long appendedPosition;
+    private long durablePosition;
+    private IOException failure;
+    private volatile boolean running;
+
+    private FileChannel segment;
+    private long segmentNumber;
+
+    private Thread flusher;
+    private ScheduledExecutorService snapshotter;
+
+    public FileProductJournal(InMemoryProductRepository productRepository, ProductJournalProperties properties) {
+        this.productRepository = productRepository;
+        this.properties = properties;
+        this.maxPending = properties.maxPending().toBytes();
+    }
+
+    @PostConstruct
+    public void open() throws IOException {
+        Files.createDirectories(properties.directory());
+        long started = System.nanoTime();
+        long nextSegment = recover();
+        log.info("Каталог восстановлен из {} за {} мс", properties.directory(),
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started));
+
+        ioLock.lock();
+        try {
+            openSegment(nextSegment);
+        } finally {
+            ioLock.unlock();
+        }
+        productRepository.setJournal(this);
+
+        running = true;
+        flusher = Thread.ofPlatform().name("product-journal-flusher").daemon().start(this::flushLoop);
+        long snapshotMillis = properties.snapshotInterval().toMillis();
+        snapshotter = Executors.newSingleThreadScheduledExecutor(Thread.ofPlatform().name("product-journal-snapshot").daemon().factory());
+        snapshotter.scheduleWithFixedDelay(this::snapshotQuietly, snapshotMillis, snapshotMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void close() throws IOException {
+        productRepository.setJournal(ProductJournal.NONE);
+        running = false;
+        snapshotter.shutdown();
+        appendLock.lock();
+        try {
+            hasPending.signalAll();
+        } finally {
+            appendLock.unlock();
+        }
+        try {
+            snapshotter.awaitTermination(1, TimeUnit.MINUTES);
+            flusher.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        ioLock.lock();
+        try {
+            flush();
+            segment.close();
+        } finally {
+            ioLock.unlock();
+        }
+    }
+
+    @Override
+    public long logSave(Product product) {
+        return append(frame(encodeSave(product)));
+    }
+
+    @Override
+    public long logDelete(long id) {
+        return append(frame(ByteBuffer.allocate(1 + Long.BYTES).put(DELETE).putLong(id).array()));
+    }
+
+    @Override
+    public void awaitDurable(long position) {
+        if (!properties.syncWrites()) {
+            return;
+        }
+        appendLock.lock();
+        try {
+            while (durablePosition < position) {
+                if (failure != null) {
+                    throw unavailable();
+                }
+                durable.awaitUninterruptibly();
+            }
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    /**
+     * Переключает журнал на новый сегмент и выгружает хранилище в снимок, после чего
+     * удаляет сегменты и снимки, которые больше не нужны для восстановления.
+     * <p>
+     * Сегмент переключается при остановленной записи в хранилище: иначе изменение, уже записанное
+     * в старый сегмент, но ещё не применённое, не попало бы в снимок и пропало бы вместе с сегментом.
+     */
+    public void snapshot() throws IOException {
+        long snapshotSegment;
+        productRepository.pauseWrites();
+        ioLock.lock();
+        try {
+            appendLock.lock();
+            try {
+                if (failure != null) {
+                    throw unavailable();
+                }
+            } finally {
+                appendLock.unlock();
+            }
+            flush();
+            openSegment(segmentNumber + 1);
+            snapshotSegment = segmentNumber;
+        } finally {
+            ioLock.unlock();
+            productRepository.resumeWrites();
+        }
+
+        Path target = properties.directory().resolve(fileName(SNAPSHOT_PREFIX, snapshotSegment, SNAPSHOT_SUFFIX));
+        Path temporary = target.resolveSibling(target.getFileName() + ".tmp");
+        long count = 0;
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+             OutputStream out = new BufferedOutputStream(Channels.newOutputStream(channel), 1 << 16);
+             Stream<Product> products = productRepository.streamAll()) {
+            out.write(frame(ByteBuffer.allocate(1 + Integer.BYTES + Long.BYTES)
+                    .put(SNAPSHOT_HEADER)
+                    .putInt(SNAPSHOT_MAGIC)
+                    .putLong(productRepository.getLastId())
+                    .array()));
+            for (Iterator<Product> iterator = products.iterator(); iterator.hasNext(); count++) {
+                out.write(frame(encodeSave(iterator.next())));
+            }
+            out.flush();
+            channel.force(true);
+        }
+        Files.move(temporary, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        log.info("Снимок каталога {} записан: {} товаров", target.getFileName(), count);
+
+        for (Path file : list(SNAPSHOT_PREFIX, SNAPSHOT_SUFFIX)) {
+            if (number(file, SNAPSHOT_PREFIX, SNAPSHOT_SUFFIX) < snapshotSegment) {
+                Files.deleteIfExists(file);
+            }
+        }
+        for (Path file : list(SEGMENT_PREFIX, SEGMENT_SUFFIX)) {
+            if (number(file, SEGMENT_PREFIX, SEGMENT_SUFFIX) < snapshotSegment) {
+                Files.deleteIfExists(file);
+            }
+        }
+    }
+
+    /**
+     * Загружает последний снимок и применяет к нему сегменты журнала, записанные после него.
+     *
+     * @return номер сегмента, с которого продолжится запись
+     */
+    private long recover() throws IOException {
+        Map<Long, Product> products = new HashMap<>();
+        long[] lastId = {0};
+
+        long snapshotSegment = 0;
+        List<Path> snapshots = list(SNAPSHOT_PREFIX, SNAPSHOT_SUFFIX);
+        if (!snapshots.isEmpty()) {
+            Path snapshot = snapshots.getLast();
+            snapshotSegment = number(snapshot, SNAPSHOT_PREFIX, SNAPSHOT_SUFFIX);
+            long valid = read(snapshot, body -> {
+                byte type = body.get();
+                if (type == SNAPSHOT_HEADER) {
+                    if (body.getInt() != SNAPSHOT_MAGIC) {
+                        throw new IllegalStateException("Неверный формат снимка " + snapshot);
+                    }
+                    lastId[0] = Math.max(lastId[0], body.getLong());
+                } else {
+                    Product product = decodeSave(body);
+                    products.put(product.getId(), product);
+                }
+            });
+            if (valid < Files.size(snapshot)) {
+                throw new IllegalStateException("Снимок " + snapshot.getFileName() + " повреждён на позиции " + valid);
+            }
+        }
+
+        long firstSegment = snapshotSegment;
+        long lastSegment = snapshotSegment;
+        List<Path> segments = list(SEGMENT_PREFIX, SEGMENT_SUFFIX).stream()
+                .filter(file -> number(file, SEGMENT_PREFIX, SEGMENT_SUFFIX) >= firstSegment)
+                .toList();
+        for (int i = 0; i < segments.size(); i++) {
+            Path file = segments.get(i);
+            lastSegment = Math.max(lastSegment, number(file, SEGMENT_PREFIX, SEGMENT_SUFFIX));
+            long valid = read(file, body -> {
+                byte type = body.get();
+                if (type == SAVE) {
+                    Product product = decodeSave(body);
+                    products.put(product.getId(), product);
+                    lastId[0] = Math.max(lastId[0], product.getId());
+                } else {
+                    long id = body.getLong();
+                    products.remove(id);
+                    lastId[0] = Math.max(lastId[0], id);
+                }
+            });
+            if (valid < Files.size(file)) {
+                if (i < segments.size() - 1) {
+                    throw new IllegalStateException("Сегмент журнала " + file.getFileName() + " повреждён на позиции "
+                            + valid + ", а за ним есть более поздние сегменты");
+                }
+                log.warn("Сегмент журнала {} оборван на позиции {}, хвост отброшен", file.getFileName(), valid);
+                try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+                    channel.truncate(valid);
+                }
+            }
+        }
+
+        productRepository.restore(products.values(), lastId[0]);
+        return lastSegment + 1;
+    }
+
+    private long append(byte[] frame) {
+        appendLock.lock();
+        try {
+            while (failure == null && pending.size() > 0 && pending.size() + frame.length > maxPending) {
+                hasPending.signal();
+                drained.awaitUninterruptibly();
+            }
+            if (failure != null) {
+                throw unavailable();
+            }
+            pending.writeBytes(frame);
+            appendedPosition += frame.length;
+            if (properties.syncWrites()) {
+                hasPending.signal();
+            }
+            return appendedPosition;
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    private void flushLoop() {
+        long intervalNanos = properties.flushInterval().toNanos();
+        while (running) {
+            appendLock.lock();
+            try {
+                if (properties.syncWrites()) {
+                    while (running && pending.size() == 0) {
+                        hasPending.awaitUninterruptibly();
+                    }
+                } else {
+                    hasPending.awaitNanos(intervalNanos);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } finally {
+                appendLock.unlock();
+            }
+
+            ioLock.lock();
+            try {
+                flush();
+            } catch (IOException e) {
+                log.error("Не удалось записать журнал товаров", e);
+                appendLock.lock();
+                try {
+                    failure = e;
+                    durable.signalAll();
+                    drained.signalAll();
+                } finally {
+                    appendLock.unlock();
+                }
+                return;
+            } finally {
+                ioLock.unlock();
+            }
+        }
+    }
+
+    private void flush() throws IOException {
+        byte[] bytes;
+        long position;
+        appendLock.lock();
+        try {
+            if (pending.size() == 0) {
+                return;
+            }
+            bytes = pending.toByteArray();
+            pending = new ByteArrayOutputStream(bytes.length);
+            position = appendedPosition;
+            drained.signalAll();
+        } finally {
+            appendLock.unlock();
+        }
+
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        while (buffer.hasRemaining()) {
+            segment.write(buffer);
+        }
+        segment.force(false);
+
+        appendLock.lock();
+        try {
+            durablePosition = position;
+            durable.signalAll();
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    private ProductStorageUnavailableException unavailable() {
+        return new ProductStorageUnavailableException("Журнал товаров недоступен, изменения не принимаются", failure);
+    }
+
+    private void snapshotQuietly() {
+        try {
+            snapshot();
+        } catch (IOException | RuntimeException e) {
+            log.error("Не удалось записать снимок каталога", e);
+        }
+    }
+
+    private void openSegment(long number) throws IOException {
+        if (segment != null) {
+            segment.close();
+        }
+        segment = FileChannel.open(properties.directory().resolve(fileName(SEGMENT_PREFIX, number, SEGMENT_SUFFIX)),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        segmentNumber = number;
+    }
+
+    /**
+     * Отображает файл в память окнами и передаёт тела корректных записей обработчику.
+     *
+     * @return смещение конца последней корректной записи
+     */
+    private static long read(Path file, Consumer<ByteBuffer> handler) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            long position = 0;
+            while (position < size) {
+                long windowSize = Math.min(MAP_WINDOW, size - position);
+                ByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY, position, windowSize);
+                int consumed = 0;
+                while (window.remaining() - consumed >= FRAME_HEADER) {
+                    int length = window.getInt(consumed);
+                    int checksum = window.getInt(consumed + Integer.BYTES);
+                    if (length <= 0 || length > window.remaining() - consumed - FRAME_HEADER) {
+                        break;
+                    }
+                    ByteBuffer body = window.slice(consumed + FRAME_HEADER, length);
+                    if (checksum(body.duplicate()) != checksum) {
+                        return position + consumed;
+                    }
+                    handler.accept(body);
+                    consumed += FRAME_HEADER + length;
+                }
+                position += consumed;
+                if (consumed == 0 || consumed < windowSize && position + (windowSize - consumed) == size) {
+                    return position;
+                }
+            }
+            return position;
+        }
+    }
+
+    private static byte[] frame(byte[] body) {
+        return ByteBuffer.allocate(FRAME_HEADER + body.length)
+                .putInt(body.length)
+                .putInt(checksum(ByteBuffer.wrap(body)))
+                .put(body)
+                .array();
+    }
+
+    private static int checksum(ByteBuffer body) {
+        CRC32C crc = new CRC32C();
+        crc.update(body);
+        return (int) crc.getValue();
+    }
+
+    private static byte[] encodeSave(Product product) {
+        byte[] name = bytes(product.getName());
+        byte[] description = bytes(product.getDescription());
+        ByteBuffer buffer = ByteBuffer.allocate(1 + Long.BYTES + 2 + Double.BYTES
+                        + Integer.BYTES * 2 + length(name) + length(description))
+                .put(SAVE)
+                .putLong(product.getId())
+                .put((byte) (product.getInStock() == null ? -1 : product.getInStock() ? 1 : 0))
+                .put((byte) (product.getPrice() == null ? 0 : 1))
+                .putDouble(product.getPrice() == null ? 0 : product.getPrice());
+        putBytes(buffer, name);
+        putBytes(buffer, description);
+        return buffer.array();
+    }
+
+    private static Product decodeSave(ByteBuffer body) {
+        Product product = new Product();
+        product.setId(body.getLong());
+        byte inStock = body.get();
+        product.setInStock(inStock < 0 ? null : inStock == 1);
+        boolean hasPrice = body.get() == 1;
+        double price = body.getDouble();
+        product.setPrice(hasPrice ? price : null);
+        product.setName(getString(body));
+        product.setDescription(getString(body));
+        return product;
+    }
+
+    private static byte[] bytes(String value) {
+        return value == null ? null : value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static int length(byte[] bytes) {
+        return bytes == null ? 0 : bytes.length;
+    }
+
+    private static void putBytes(ByteBuffer buffer, byte[] bytes) {
+        if (bytes == null) {
+            buffer.putInt(-1);
+        } else {
+            buffer.putInt(bytes.length).put(bytes);
+        }
+    }
+
+    private static String getString(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private List<Path> list(String prefix, String suffix) throws IOException {
+        try (Stream<Path> files = Files.list(properties.directory())) {
+            return files.filter(file -> {
+                        String name = file.getFileName().toString();
+                        return name.startsWith(prefix) && name.endsWith(suffix);
+                    })
+                    .sorted()
+                    .toList();
+        }
+    }
+
+    private static long number(Path file, String prefix, String suffix) {
+        String name = file.getFileName().toString();
+        return Long.parseLong(name.substring(prefix.length(), name.length() - suffix.length()));
+    }
+
+    private static String fileName(String prefix, long number, String suffix) {
+        return String.format("%s%020d%s", prefix, number, suffix);
+    }
+}
@@ -0,0 +1,296 @@
+package ru.er1one.moyskladtask.repository;
+
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Repository;
+import ru.er1one.moyskladtask.exception.ProductNotFoundException;
+import ru.er1one.moyskladtask.model.CatalogTotals;
+import ru.er1one.moyskladtask.model.Product;
+import ru.er1one.moyskladtask.model.ProductQuery;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.NavigableMap;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.UnaryOperator;
+import java.util.stream.Stream;
+
+/**
+ * Потокобезопасное хранилище товаров в памяти.
+ * <p>
+ * Чтение выполняется без блокировок, запись сериализуется по id через набор полосатых блокировок.
+ * Наружу отдаются только копии, поэтому изменение полученного объекта не затрагивает хранилище.
+ * Товары упорядочены по id, что позволяет отдавать каталог страницами по курсору.
+ * Поисковый индекс, вторичные индексы и итоги каталога обновляются под той же блокировкой, что и сам товар.
+ * Если подключён {@link ProductJournal}, каждое изменение записывается в него там же, до того как стать видимым.
+ * Версии товаров выдаются одним счётчиком под блокировкой товара, поэтому версия одного id только растёт,
+ * а версия каталога увеличивается после того, как изменение стало видно читателям.
+ */
+@Repository
+@Qualifier(ProductRepository.LOCAL)
+@ConditionalOnProperty(prefix = "product.storage", name = "type", havingValue = "memory", matchIfMissing = true)
+public class InMemoryProductRepository implements ProductRepository {
+
+    private static final int LOCK_STRIPES = 64;
+
+    private final AtomicLong lastId = new AtomicLong(0);
+    private final LongAdder size = new LongAdder();
+    private final AtomicLong versions = new AtomicLong(ProductVersions.initial());
+    private final AtomicLong catalogVersion = new AtomicLong(ProductVersions.initial());
+    private final NavigableMap<Long, Product> products;
+    private final ProductSearchIndex searchIndex = new ProductSearchIndex();
+    private final ProductAttributeIndex attributeIndex = new ProductAttributeIndex();
+    private final ProductAggregates aggregates = new ProductAggregates(LOCK_STRIPES);
+    private final Lock[] locks;
+    private volatile ProductJournal journal = ProductJournal.NONE;
+
+    public InMemoryProductRepository() {
+        products = new ConcurrentSkipListMap<>();
+        locks = new Lock[LOCK_STRIPES];
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            locks[i] = new ReentrantLock();
+        }
+    }
+
+    @Override
+    public List<Product> findAll() {
+        return products.values().stream().map(Product::copy).toList();
+    }
+
+    /**
+     * Обход слабо согласован: изменения, сделанные во время обхода, могут как попасть,
+     * так и не попасть в выдачу.
+     */
+    @Override
+    public Stream<Product> streamAll() {
+        return products.values().stream().map(Product::copy);
+    }
+
+    /**
+     * Стоимость пропорциональна размеру страницы, а не каталога.
+     */
+    @Override
+    public List<Product> find(ProductQuery query, Product after, int limit) {
+        return attributeIndex.find(query, after, products)
+                .limit(limit)
+                .map(Product::copy)
+                .toList();
+    }
+
+    @Override
+    public List<Product> search(String query, int limit) {
+        List<Product> found = new ArrayList<>();
+        for (Long id : searchIndex.search(query, limit)) {
+            Product product = products.get(id);
+            if (product != null) {
+                found.add(product.copy());
+            }
+        }
+        return found;
+    }
+
+    @Override
+    public long count() {
+        return size.sum();
+    }
+
+    @Override
+    public long catalogVersion() {
+        return catalogVersion.get();
+    }
+
+    @Override
+    public CatalogTotals totals() {
+        return aggregates.totals();
+    }
+
+    @Override
+    public Optional<Product> lookup(long id) {
+        Product product = products.get(id);
+        return product == null ? Optional.empty() : Optional.of(product.copy());
+    }
+
+    @Override
+    public Product save(Product product) {
+        if (product.getId() == null) {
+            product.setId(lastId.incrementAndGet());
+        } else {
+            lastId.accumulateAndGet(product.getId(), Math::max);
+        }
+        long id = product.getId();
+        long position;
+        Lock lock = lockFor(id);
+        lock.lock();
+        try {
+            product.setVersion(versions.incrementAndGet());
+            Product snapshot = product.copy();
+            position = journal.logSave(snapshot);
+            put(snapshot);
+        } finally {
+            lock.unlock();
+        }
+        catalogVersion.incrementAndGet();
+        journal.awaitDurable(position);
+        return product;
+    }
+
+    /**
+     * Id для новых товаров выделяются одним блоком, а каждая полосатая блокировка
+     * захватывается не более одного раза.
+     */
+    @Override
+    public List<Product> saveAll(List<Product> batch) {
+        long nextId = lastId.getAndAdd(batch.stream().filter(product -> product.getId() == null).count()) + 1;
+        List<List<Product>> stripes = new ArrayList<>(LOCK_STRIPES);
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            stripes.add(new ArrayList<>());
+        }
+        for (Product product : batch) {
+            if (product.getId() == null) {
+                product.setId(nextId++);
+            } else {
+                lastId.accumulateAndGet(product.getId(), Math::max);
+            }
+            stripes.get(stripeOf(product.getId())).add(product);
+        }
+
+        long position = 0;
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            List<Product> stripe = stripes.get(i);
+            if (stripe.isEmpty()) {
+                continue;
+            }
+            locks[i].lock();
+            try {
+                for (Product product : stripe) {
+                    product.setVersion(versions.incrementAndGet());
+                    Product snapshot = product.copy();
+                    position = Math.max(position, journal.logSave(snapshot));
+                    put(snapshot);
+                }
+            } finally {
+                locks[i].unlock();
+            }
+        }
+        catalogVersion.incrementAndGet();
+        journal.awaitDurable(position);
+        return batch;
+    }
+
+    @Override
+    public Product update(long id, UnaryOperator<Product> updater) throws ProductNotFoundException {
+        Product updated;
+        long position;
+        Lock lock = lockFor(id);
+        lock.lock();
+        try {
+            Product existing = products.get(id);
+            if (existing == null) {
+                throw new ProductNotFoundException();
+            }
+            updated = updater.apply(existing.copy());
+            updated.setId(id);
+            updated.setVersion(versions.incrementAndGet());
+            Product snapshot = updated.copy();
+            position = journal.logSave(snapshot);
+            products.put(id, snapshot);
+            index(existing, snapshot);
+        } finally {
+            lock.unlock();
+        }
+        catalogVersion.incrementAndGet();
+        journal.awaitDurable(position);
+        return updated;
+    }
+
+    @Override
+    public long deleteById(long id) throws ProductNotFoundException {
+        long version;
+        long position;
+        Lock lock = lockFor(id);
+        lock.lock();
+        try {
+            Product removed = products.get(id);
+            if (removed == null) {
+                throw new ProductNotFoundException();
+            }
+            position = journal.logDelete(id);
+            products.remove(id);
+            size.decrement();
+            index(removed, null);
+            version = versions.incrementAndGet();
+        } finally {
+            lock.unlock();
+        }
+        catalogVersion.incrementAndGet();
+        journal.awaitDurable(position);
+        return version;
+    }
+
+    public long getLastId() {
+        return lastId.get();
+    }
+
+    public void setJournal(ProductJournal journal) {
+        this.journal = journal;
+    }
+
+    /**
+     * Захватывает все полосатые блокировки по порядку. Пока они удерживаются, нет изменений,
+     * которые уже записаны в журнал, но ещё не применены к хранилищу. Снимается {@link #resumeWrites()}.
+     */
+    void pauseWrites() {
+        for (Lock lock : locks) {
+            lock.lock();
+        }
+    }
+
+    void resumeWrites() {
+        for (int i = LOCK_STRIPES - 1; i >= 0; i--) {
+            locks[i].unlock();
+        }
+    }
+
+    /**
+     * Загружает восстановленные из журнала товары, не записывая их в журнал повторно.
+     */
+    void restore(Collection<Product> restored, long restoredLastId) {
+        ProductJournal current = journal;
+        journal = ProductJournal.NONE;
+        try {
+            saveAll(new ArrayList<>(restored));
+        } finally {
+            journal = current;
+        }
+        lastId.accumulateAndGet(restoredLastId, Math::max);
+    }
+
+    private void put(Product snapshot) {
+        Product previous = products.put(snapshot.getId(), snapshot);
+        if (previous == null) {
+            size.increment();
+        }
+        index(previous, snapshot);
+    }
+
+    private void index(Product previous, Product current) {
+        searchIndex.update(previous, current);
+        attributeIndex.update(previous, current);
+        aggregates.update(stripeOf(current != null ? current.getId() : previous.getId()), previous, current);
+    }
+
+    private Lock lockFor(long id) {
+        return locks[stripeOf(id)];
+    }
+
+    private static int stripeOf(long id) {
+        return Long.hashCode(id) & (LOCK_STRIPES - 1);
+    }
+
+}
@@ -0,0 +1,369 @@
+package ru.er1one.moyskladtask.repository;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.er1one.moyskladtask.exception.ProductNotFoundException;
+import ru.er1one.moyskladtask.model.CatalogTotals;
+import ru.er1one.moyskladtask.model.Product;
+import ru.er1one.moyskladtask.model.ProductQuery;
+
+import javax.sql.DataSource;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.UnaryOperator;
+import java.util.stream.Stream;
+
+/**
+ * Хранилище товаров в реляционной базе (PostgreSQL или совместимой).
+ * <p>
+ * Id и версии выделяются блоками по {@value #ID_BLOCK_SIZE} из последовательностей {@code product_id_seq}
+ * и {@code product_version_seq}, поэтому на каждую запись не приходится отдельного обращения к ним.
+ * Товар с id, которого нет в таблице, вставляется под этим id: так узел кластера хранит товары с id
+ * из {@link ProductIdGenerator}. Последовательность за такими id не следит, поэтому клиентские id
+ * при создании товара не принимаются, см. {@link #acceptsClientIds()}.
+ * Пакетные записи выполняются через JDBC batch, а постраничная выдача строится по ключу сортировки без OFFSET.
+ * <p>
+ * Версия каталога — сумма {@value #CATALOG_STRIPES} счётчиков в {@code product_catalog}. Каждая пишущая
+ * транзакция последним оператором увеличивает один случайный счётчик, поэтому новое значение становится видно
+ * вместе с изменением, сумма растёт с каждой фиксацией, а одновременные записи редко ждут одну и ту же строку.
+ */
+public class JdbcProductRepository implements ProductRepository {
+
+    static final int ID_BLOCK_SIZE = 50;
+    static final int CATALOG_STRIPES = 16;
+
+    private static final int STREAM_FETCH_SIZE = 1000;
+    private static final String COLUMNS = "id, name, description, price, in_stock, version";
+    private static final String INSERT = "INSERT INTO product (id, name, sort_name, description, price, in_stock, version) VALUES (?, ?, ?, ?, ?, ?, ?)";
+    private static final String UPDATE = "UPDATE product SET name = ?, sort_name = ?, description = ?, price = ?, in_stock = ?, version = ? WHERE id = ?";
+    private static final String CATALOG_VERSION = "SELECT sum(version) FROM product_catalog";
+    private static final String BUMP_CATALOG_VERSION = "UPDATE product_catalog SET version = version + 1 WHERE id = ?";
+    private static final String TOTALS = totalsQuery();
+    private static final String NORMALIZED_NAME = "replace(lower(name), 'ё', 'е')";
+    private static final String NORMALIZED_DESCRIPTION = "replace(lower(coalesce(description, '')), 'ё', 'е')";
+
+    private static final RowMapper<Product> ROW_MAPPER = (rs, rowNum) -> {
+        Product product = new Product();
+        product.setId(rs.getLong("id"));
+        product.setName(rs.getString("name"));
+        product.setDescription(rs.getString("description"));
+        product.setPrice(rs.getDouble("price"));
+        product.setInStock(rs.getBoolean("in_stock"));
+        product.setVersion(rs.getLong("version"));
+        return product;
+    };
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    private final SequenceBlocks ids;
+    private final SequenceBlocks versions;
+
+    public JdbcProductRepository(DataSource dataSource) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.transactionTemplate = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+        this.ids = new SequenceBlocks("product_id_seq");
+        this.versions = new SequenceBlocks("product_version_seq");
+    }
+
+    @Override
+    public List<Product> findAll() {
+        return jdbcTemplate.query("SELECT " + COLUMNS + " FROM product ORDER BY id", ROW_MAPPER);
+    }
+
+    /**
+     * Читает каталог страницами по {@value #STREAM_FETCH_SIZE} товаров, не удерживая соединение между ними.
+     */
+    @Override
+    public Stream<Product> streamAll() {
+        return ProductPages.stream(this, STREAM_FETCH_SIZE);
+    }
+
+    @Override
+    public List<Product> find(ProductQuery query, Product after, int limit) {
+        StringBuilder sql = new StringBuilder("SELECT " + COLUMNS + " FROM product WHERE 1 = 1");
+        List<Object> parameters = new ArrayList<>();
+        if (query.minPrice() != null) {
+            sql.append(" AND price >= ?");
+            parameters.add(query.minPrice());
+        }
+        if (query.maxPrice() != null) {
+            sql.append(" AND price <= ?");
+            parameters.add(query.maxPrice());
+        }
+        if (query.inStock() != null) {
+            sql.append(" AND in_stock = ?");
+            parameters.add(query.inStock());
+        }
+        String order = switch (query.sort()) {
+            case ID -> {
+                if (after != null) {
+                    sql.append(" AND id > ?");
+                    parameters.add(after.getId());
+                }
+                yield "id";
+            }
+            case PRICE -> {
+                if (after != null) {
+                    sql.append(" AND (price, id) > (?, ?)");
+                    parameters.add(after.getPrice());
+                    parameters.add(after.getId());
+                }
+                yield "price, id";
+            }
+            case NAME -> {
+                if (after != null) {
+                    sql.append(" AND (sort_name, id) > (?, ?)");
+                    parameters.add(sortName(after.getName()));
+                    parameters.add(after.getId());
+                }
+                yield "sort_name, id";
+            }
+        };
+        sql.append(" ORDER BY ").append(order).append(" LIMIT ?");
+        parameters.add(limit);
+        return jdbcTemplate.query(sql.toString(), ROW_MAPPER, parameters.toArray());
+    }
+
+    /**
+     * Ищет слова запроса как подстроки названия и описания; товары, у которых совпало больше
+     * слов в названии, идут первыми. В PostgreSQL такой поиск ускоряется индексом pg_trgm.
+     */
+    @Override
+    public List<Product> search(String query, int limit) {
+        Set<String> terms = ProductSearchIndex.tokenize(query);
+        if (terms.isEmpty()) {
+            return List.of();
+        }
+        StringBuilder where = new StringBuilder();
+        StringBuilder rank = new StringBuilder();
+        List<Object> rankParameters = new ArrayList<>();
+        List<Object> whereParameters = new ArrayList<>();
+        for (String term : terms) {
+            String pattern = "%" + term + "%";
+            where.append(where.isEmpty() ? "" : " AND ")
+                    .append("(").append(NORMALIZED_NAME).append(" LIKE ? OR ").append(NORMALIZED_DESCRIPTION).append(" LIKE ?)");
+            whereParameters.add(pattern);
+            whereParameters.add(pattern);
+            rank.append(rank.isEmpty() ? "" : " + ")
+                    .append("CASE WHEN ").append(NORMALIZED_NAME).append(" LIKE ? THEN 1 ELSE 0 END");
+            rankParameters.add(pattern);
+        }
+        String sql = "SELECT " + COLUMNS + " FROM product WHERE " + where
+                + " ORDER BY (" + rank + ") DESC, id LIMIT ?";
+        List<Object> parameters = new ArrayList<>(whereParameters);
+        parameters.addAll(rankParameters);
+        parameters.add(limit);
+        return jdbcTemplate.query(sql, ROW_MAPPER, parameters.toArray());
+    }
+
+    @Override
+    public long count() {
+        return jdbcTemplate.queryForObject("SELECT count(*) FROM product", Long.class);
+    }
+
+    @Override
+    public long catalogVersion() {
+        return jdbcTemplate.queryForObject(CATALOG_VERSION, Long.class);
+    }
+
+    /**
+     * Итоги считаются в базе одним запросом с группировкой по интервалам гистограммы, поэтому
+     * в приложение приходит по строке на интервал ({@link CatalogTotals#BUCKETS}), а не весь каталог.
+     */
+    @Override
+    public CatalogTotals totals() {
+        long[] totals = {0, 0, 0, CatalogTotals.EMPTY.minPrice(), CatalogTotals.EMPTY.maxPrice()};
+        long[] histogram = new long[CatalogTotals.BUCKETS];
+        jdbcTemplate.query(TOTALS, rs -> {
+            long count = rs.getLong("products");
+            histogram[rs.getInt("bucket")] = count;
+            totals[0] += count;
+            totals[1] += rs.getLong("in_stock");
+            totals[2] += rs.getLong("price_sum");
+            totals[3] = Math.min(totals[3], rs.getLong("min_price"));
+            totals[4] = Math.max(totals[4], rs.getLong("max_price"));
+        });
+        return new CatalogTotals(totals[0], totals[1], totals[0], totals[2], totals[3], totals[4], histogram);
+    }
+
+    @Override
+    public boolean acceptsClientIds() {
+        return false;
+    }
+
+    @Override
+    public Optional<Product> lookup(long id) {
+        return jdbcTemplate.query("SELECT " + COLUMNS + " FROM product WHERE id = ?", ROW_MAPPER, id).stream().findFirst();
+    }
+
+    @Override
+    public Product save(Product product) {
+        boolean created = product.getId() == null;
+        if (created) {
+            product.setId(ids.next());
+        }
+        product.setVersion(versions.next());
+        transactionTemplate.executeWithoutResult(status -> {
+            if (created || jdbcTemplate.update(UPDATE, updateParameters(product)) == 0) {
+                jdbcTemplate.update(INSERT, insertParameters(product));
+            }
+            bumpCatalogVersion();
+        });
+        return product;
+    }
+
+    /**
+     * Товары с id сначала обновляются одним batch-запросом, затем новые и не найденные
+     * при обновлении товары вставляются вторым.
+     */
+    @Override
+    public List<Product> saveAll(List<Product> batch) {
+        List<Product> existing = new ArrayList<>();
+        List<Product> created = new ArrayList<>();
+        for (Product product : batch) {
+            if (product.getId() == null) {
+                product.setId(ids.next());
+                created.add(product);
+            } else {
+                existing.add(product);
+            }
+            product.setVersion(versions.next());
+        }
+
+        transactionTemplate.executeWithoutResult(status -> {
+            List<Product> inserted = new ArrayList<>(created);
+            if (!existing.isEmpty()) {
+                int[][] counts = jdbcTemplate.batchUpdate(UPDATE, existing, STREAM_FETCH_SIZE,
+                        (statement, product) -> setParameters(statement, updateParameters(product)));
+                int index = 0;
+                for (int[] chunk : counts) {
+                    for (int count : chunk) {
+                        if (count == 0) {
+                            inserted.add(existing.get(index));
+                        }
+                        index++;
+                    }
+                }
+            }
+            if (!inserted.isEmpty()) {
+                jdbcTemplate.batchUpdate(INSERT, inserted, STREAM_FETCH_SIZE,
+                        (statement, product) -> setParameters(statement, insertParameters(product)));
+            }
+            bumpCatalogVersion();
+        });
+        return batch;
+    }
+
+    @Override
+    public Product update(long id, UnaryOperator<Product> updater) throws ProductNotFoundException {
+        return transactionTemplate.execute(status -> {
+            List<Product> found = jdbcTemplate.query("SELECT " + COLUMNS + " FROM product WHERE id = ? FOR UPDATE", ROW_MAPPER, id);
+            if (found.isEmpty()) {
+                throw new ProductNotFoundException();
+            }
+            Product updated = updater.apply(found.getFirst());
+            updated.setId(id);
+            updated.setVersion(versions.next());
+            jdbcTemplate.update(UPDATE, updateParameters(updated));
+            bumpCatalogVersion();
+            return updated;
+        });
+    }
+
+    @Override
+    public long deleteById(long id) throws ProductNotFoundException {
+        transactionTemplate.executeWithoutResult(status -> {
+            if (jdbcTemplate.update("DELETE FROM product WHERE id = ?", id) == 0) {
+                throw new ProductNotFoundException();
+            }
+            bumpCatalogVersion();
+        });
+        return versions.next();
+    }
+
+    private static Object[] insertParameters(Product product) {
+        return new Object[]{product.getId(), product.getName(), sortName(product.getName()),
+                product.getDescription(), product.getPrice(), Boolean.TRUE.equals(product.getInStock()), product.getVersion()};
+    }
+
+    private static Object[] updateParameters(Product product) {
+        return new Object[]{product.getName(), sortName(product.getName()), product.getDescription(), product.getPrice(),
+                Boolean.TRUE.equals(product.getInStock()), product.getVersion(), product.getId()};
+    }
+
+    private static void setParameters(PreparedStatement statement, Object[] parameters) throws SQLException {
+        for (int i = 0; i < parameters.length; i++) {
+            if (parameters[i] == null) {
+                statement.setNull(i + 1, Types.VARCHAR);
+            } else {
+                statement.setObject(i + 1, parameters[i]);
+            }
+        }
+    }
+
+    private void bumpCatalogVersion() {
+        jdbcTemplate.update(BUMP_CATALOG_VERSION, ThreadLocalRandom.current().nextInt(CATALOG_STRIPES));
+    }
+
+    /**
+     * Цена переводится в копейки так же, как в {@link CatalogTotals#toMinorUnits}, а номер интервала
+     * выбирается по границам {@link CatalogTotals#bucketTo}.
+     */
+    private static String totalsQuery() {
+        StringBuilder bucket = new StringBuilder("CASE");
+        for (int i = 0; i < CatalogTotals.BUCKETS - 1; i++) {
+            bucket.append(" WHEN minor_price < ").append(CatalogTotals.bucketTo(i)).append(" THEN ").append(i);
+        }
+        bucket.append(" ELSE ").append(CatalogTotals.BUCKETS - 1).append(" END");
+        return "SELECT bucket, count(*) AS products, sum(CASE WHEN in_stock THEN 1 ELSE 0 END) AS in_stock,"
+                + " sum(minor_price) AS price_sum, min(minor_price) AS min_price, max(minor_price) AS max_price"
+                + " FROM (SELECT " + bucket + " AS bucket, minor_price, in_stock"
+                + " FROM (SELECT CAST(floor(price * " + CatalogTotals.MINOR_UNITS + " + 0.5) AS BIGINT) AS minor_price, in_stock"
+                + " FROM product) priced) bucketed GROUP BY bucket";
+    }
+
+    private static String sortName(String name) {
+        return name == null ? null : name.toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Выдаёт значения последовательности, забирая их из базы блоками целиком, поэтому несколько
+     * экземпляров приложения никогда не выдадут одинаковые значения, а обращение к базе нужно
+     * лишь раз на {@value #ID_BLOCK_SIZE} значений.
+     */
+    private final class SequenceBlocks {
+
+        private final ReentrantLock lock = new ReentrantLock();
+        private final String nextBlock;
+        private long next;
+        private long blockEnd;
+
+        SequenceBlocks(String sequence) {
+            this.nextBlock = "SELECT nextval('" + sequence + "')";
+        }
+
+        long next() {
+            lock.lock();
+            try {
+                if (next == blockEnd) {
+                    next = jdbcTemplate.queryForObject(nextBlock, Long.class);
+                    blockEnd = next + ID_BLOCK_SIZE;
+                }
+                return next++;
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+}
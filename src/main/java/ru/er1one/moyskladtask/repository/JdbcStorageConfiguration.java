@@ -0,0 +1,37 @@
+package ru.er1one.moyskladtask.repository;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+
+/**
+ * Подключает {@link JdbcProductRepository} при {@code product.storage.type=jdbc}.
+ * Пул соединений настраивается свойствами {@code product.storage.jdbc.datasource.*} (HikariCP).
+ */
+@Configuration(proxyBeanMethods = false)
+@ConditionalOnProperty(prefix = "product.storage", name = "type", havingValue = "jdbc")
+public class JdbcStorageConfiguration {
+
+    @Bean
+    @ConfigurationProperties("product.storage.jdbc.datasource")
+    public HikariDataSource productDataSource() {
+        return DataSourceBuilder.create().type(HikariDataSource.class).build();
+    }
+
+    @Bean
+    @Qualifier(ProductRepository.LOCAL)
+    public JdbcProductRepository jdbcProductRepository(HikariDataSource productDataSource,
+                                                       @Value("${product.storage.jdbc.initialize-schema:true}") boolean initializeSchema) {
+        if (initializeSchema) {
+            new ResourceDatabasePopulator(new ClassPathResource("db/product-schema.sql")).execute(productDataSource);
+        }
+        return new JdbcProductRepository(productDataSource);
+    }
+}
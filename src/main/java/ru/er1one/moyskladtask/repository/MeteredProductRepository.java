@@ -0,0 +1,253 @@
+package ru.er1one.moyskladtask.repository;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Repository;
+import ru.er1one.moyskladtask.exception.ProductNotFoundException;
+import ru.er1one.moyskladtask.exception.ProductVersionConflictException;
+import ru.er1one.moyskladtask.model.CatalogTotals;
+import ru.er1one.moyskladtask.model.Product;
+import ru.er1one.moyskladtask.model.ProductQuery;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.function.UnaryOperator;
+import java.util.stream.Stream;
+
+/**
+ * Снимает метрики с хранилища, выбранного {@code product.storage.type}: время и число операций
+ * ({@code product.repository.operations}), промахи по id ({@code product.repository.misses})
+ * и размер каталога ({@code product.catalog.size}).
+ * <p>
+ * Все счётчики и таймеры создаются заранее, а время меряется через {@link System#nanoTime()},
+ * поэтому на самих операциях метрики ничего не аллоцируют.
+ * <p>
+ * Размер каталога кэшируется на 30 секунд: в кластере {@link #count()} опрашивает
+ * все узлы, а в JDBC-хранилище выполняет {@code count(*)}, и делать это на каждый сбор метрик дорого.
+ * Вызовы {@link #count()} и {@link #totals()} обновляют кэш попутно.
+ */
+@Primary
+@Repository
+public class MeteredProductRepository implements ProductRepository {
+
+    private static final String OPERATIONS = "product.repository.operations";
+    private static final String MISSES = "product.repository.misses";
+    private static final long CATALOG_SIZE_TTL_NANOS = TimeUnit.SECONDS.toNanos(30);
+
+    private final ProductRepository delegate;
+
+    private final Timer findAllTimer;
+    private final Timer findTimer;
+    private final Timer searchTimer;
+    private final Timer totalsTimer;
+    private final Timer lookupTimer;
+    private final Timer saveTimer;
+    private final Timer saveAllTimer;
+    private final Timer updateTimer;
+    private final Timer deleteTimer;
+    private final Counter savedProducts;
+    private final Counter findByIdMisses;
+    private final Counter updateMisses;
+    private final Counter deleteMisses;
+    private volatile CatalogSize catalogSize;
+
+    @Autowired
+    public MeteredProductRepository(ProductRepository delegate, MeterRegistry meterRegistry) {
+        this.delegate = delegate;
+        findAllTimer = timer(meterRegistry, "findAll");
+        findTimer = timer(meterRegistry, "find");
+        searchTimer = timer(meterRegistry, "search");
+        totalsTimer = timer(meterRegistry, "totals");
+        lookupTimer = timer(meterRegistry, "findById");
+        saveTimer = timer(meterRegistry, "save");
+        saveAllTimer = timer(meterRegistry, "saveAll");
+        updateTimer = timer(meterRegistry, "update");
+        deleteTimer = timer(meterRegistry, "delete");
+        savedProducts = Counter.builder("product.repository.saved")
+                .description("Товары, сохранённые через save и saveAll")
+                .register(meterRegistry);
+        findByIdMisses = Counter.builder(MISSES).tag("operation", "findById").register(meterRegistry);
+        updateMisses = Counter.builder(MISSES).tag("operation", "update").register(meterRegistry);
+        deleteMisses = Counter.builder(MISSES).tag("operation", "delete").register(meterRegistry);
+        Gauge.builder("product.catalog.size", this, MeteredProductRepository::catalogSize)
+                .description("Число товаров в каталоге")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public List<Product> findAll() {
+        long start = System.nanoTime();
+        try {
+            return delegate.findAll();
+        } finally {
+            record(findAllTimer, start);
+        }
+    }
+
+    /**
+     * Обход ленивый, поэтому его время не измеряется.
+     */
+    @Override
+    public Stream<Product> streamAll() {
+        return delegate.streamAll();
+    }
+
+    @Override
+    public List<Product> find(ProductQuery query, Product after, int limit) {
+        long start = System.nanoTime();
+        try {
+            return delegate.find(query, after, limit);
+        } finally {
+            record(findTimer, start);
+        }
+    }
+
+    @Override
+    public List<Product> search(String query, int limit) {
+        long start = System.nanoTime();
+        try {
+            return delegate.search(query, limit);
+        } finally {
+            record(searchTimer, start);
+        }
+    }
+
+    @Override
+    public long count() {
+        long start = System.nanoTime();
+        long count = delegate.count();
+        catalogSize = new CatalogSize(count, start);
+        return count;
+    }
+
+    @Override
+    public boolean acceptsClientIds() {
+        return delegate.acceptsClientIds();
+    }
+
+    @Override
+    public long catalogVersion() {
+        return delegate.catalogVersion();
+    }
+
+    @Override
+    public CatalogTotals totals() {
+        long start = System.nanoTime();
+        try {
+            CatalogTotals totals = delegate.totals();
+            catalogSize = new CatalogSize(totals.count(), start);
+            return totals;
+        } finally {
+            record(totalsTimer, start);
+        }
+    }
+
+    @Override
+    public Optional<Product> lookup(long id) {
+        long start = System.nanoTime();
+        try {
+            Optional<Product> found = delegate.lookup(id);
+            if (found.isEmpty()) {
+                findByIdMisses.increment();
+            }
+            return found;
+        } finally {
+            record(lookupTimer, start);
+        }
+    }
+
+    @Override
+    public Product save(Product product) {
+        long start = System.nanoTime();
+        try {
+            Product saved = delegate.save(product);
+            savedProducts.increment();
+            return saved;
+        } finally {
+            record(saveTimer, start);
+        }
+    }
+
+    @Override
+    public List<Product> saveAll(List<Product> batch) {
+        long start = System.nanoTime();
+        try {
+            List<Product> saved = delegate.saveAll(batch);
+            savedProducts.increment(saved.size());
+            return saved;
+        } finally {
+            record(saveAllTimer, start);
+        }
+    }
+
+    @Override
+    public Product update(long id, UnaryOperator<Product> updater) throws ProductNotFoundException {
+        long start = System.nanoTime();
+        try {
+            return delegate.update(id, updater);
+        } catch (ProductNotFoundException e) {
+            updateMisses.increment();
+            throw e;
+        } finally {
+            record(updateTimer, start);
+        }
+    }
+
+    /**
+     * Передаётся хранилищу, а не собирается из {@link #update(long, UnaryOperator)}: так работает
+     * его собственная реализация, например маршрутизация кластера на узел-владелец.
+     */
+    @Override
+    public Product update(long id, long expectedVersion, UnaryOperator<Product> updater)
+            throws ProductNotFoundException, ProductVersionConflictException {
+        long start = System.nanoTime();
+        try {
+            return delegate.update(id, expectedVersion, updater);
+        } catch (ProductNotFoundException e) {
+            updateMisses.increment();
+            throw e;
+        } finally {
+            record(updateTimer, start);
+        }
+    }
+
+    @Override
+    public long deleteById(long id) throws ProductNotFoundException {
+        long start = System.nanoTime();
+        try {
+            return delegate.deleteById(id);
+        } catch (ProductNotFoundException e) {
+            deleteMisses.increment();
+            throw e;
+        } finally {
+            record(deleteTimer, start);
+        }
+    }
+
+    private long catalogSize() {
+        CatalogSize cached = catalogSize;
+        if (cached == null || System.nanoTime() - cached.measuredAt() >= CATALOG_SIZE_TTL_NANOS) {
+            return count();
+        }
+        return cached.count();
+    }
+
+    private static Timer timer(MeterRegistry meterRegistry, String operation) {
+        return Timer.builder(OPERATIONS)
+                .tag("operation", operation)
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+
+    private static void record(Timer timer, long start) {
+        timer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+    }
+
+    private record CatalogSize(long count, long measuredAt) {
+    }
+}
@@ -0,0 +1,134 @@
+package ru.er1one.moyskladtask.repository;
+
+import ru.er1one.moyskladtask.model.CatalogTotals;
+import ru.er1one.moyskladtask.model.Product;
+
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * {@link CatalogTotals}, которые хранилище пересчитывает при каждой записи, а не по всему каталогу при чтении.
+ * <p>
+ * Цена учитывается в копейках, поэтому добавление и удаление товаров в любом порядке возвращают итоги
+ * ровно к прежним значениям: сумма не копит ошибку округления, как сумма {@code double}. Минимум и максимум
+ * берутся из упорядоченного счётчика цен и обновляются при записи, так что запись стоит O(log n),
+ * а чтение от размера каталога не зависит. Цена ограничена {@link ru.er1one.moyskladtask.util.ProductValidator},
+ * поэтому перевод в копейки не упирается в предел {@code long}.
+ * <p>
+ * Итоги разбиты на части по полосам блокировок хранилища: хранилище вызывает методы под блокировкой товара,
+ * поэтому изменения одного товара учитываются в той же части и в том же порядке, в каком применяются,
+ * а записи в разные полосы не ждут друг друга. Чтение складывает части; каждая часть читается целиком,
+ * так что замена товара не бывает видна наполовину.
+ */
+final class ProductAggregates {
+
+    private final Part[] parts;
+
+    ProductAggregates() {
+        this(1);
+    }
+
+    ProductAggregates(int stripes) {
+        parts = new Part[stripes];
+        for (int i = 0; i < stripes; i++) {
+            parts[i] = new Part();
+        }
+    }
+
+    /**
+     * Заменяет в итогах {@code previous} на {@code current}; {@code null} — товара не было или не стало.
+     */
+    void update(Product previous, Product current) {
+        update(0, previous, current);
+    }
+
+    void update(int stripe, Product previous, Product current) {
+        parts[stripe].replace(previous != null, price(previous), previous != null && Boolean.TRUE.equals(previous.getInStock()),
+                current != null, price(current), current != null && Boolean.TRUE.equals(current.getInStock()));
+    }
+
+    /**
+     * Учитывает товар; {@code price} равна {@link Double#NaN}, если цены нет.
+     */
+    void add(double price, boolean inStock) {
+        parts[0].replace(false, Double.NaN, false, true, price, inStock);
+    }
+
+    void remove(double price, boolean inStock) {
+        parts[0].replace(true, price, inStock, false, Double.NaN, false);
+    }
+
+    /**
+     * Заменяет в итогах прежние цену и наличие товара на новые одним изменением.
+     */
+    void replace(double previousPrice, boolean previousInStock, double price, boolean inStock) {
+        parts[0].replace(true, previousPrice, previousInStock, true, price, inStock);
+    }
+
+    CatalogTotals totals() {
+        CatalogTotals totals = parts[0].totals();
+        for (int i = 1; i < parts.length; i++) {
+            totals = totals.merge(parts[i].totals());
+        }
+        return totals;
+    }
+
+    private static double price(Product product) {
+        return product == null || product.getPrice() == null ? Double.NaN : product.getPrice();
+    }
+
+    private static final class Part {
+
+        private final ReentrantLock lock = new ReentrantLock();
+        private final TreeMap<Long, Integer> prices = new TreeMap<>();
+        private final long[] histogram = new long[CatalogTotals.BUCKETS];
+        private long count;
+        private long inStock;
+        private long unpriced;
+        private long priceSum;
+
+        void replace(boolean hadPrevious, double previousPrice, boolean previousInStock,
+                     boolean hasCurrent, double price, boolean available) {
+            lock.lock();
+            try {
+                if (hadPrevious) {
+                    apply(previousPrice, previousInStock, -1);
+                }
+                if (hasCurrent) {
+                    apply(price, available, 1);
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        CatalogTotals totals() {
+            lock.lock();
+            try {
+                return new CatalogTotals(count, inStock, count - unpriced, priceSum,
+                        prices.isEmpty() ? CatalogTotals.EMPTY.minPrice() : prices.firstKey(),
+                        prices.isEmpty() ? CatalogTotals.EMPTY.maxPrice() : prices.lastKey(),
+                        histogram.clone());
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private void apply(double price, boolean available, int sign) {
+            count += sign;
+            if (available) {
+                inStock += sign;
+            }
+            if (Double.isNaN(price)) {
+                unpriced += sign;
+                return;
+            }
+            long minorUnits = CatalogTotals.toMinorUnits(price);
+            priceSum += sign * minorUnits;
+            histogram[CatalogTotals.bucket(minorUnits)] += sign;
+            if (prices.merge(minorUnits, sign, Integer::sum) == 0) {
+                prices.remove(minorUnits);
+            }
+        }
+    }
+}
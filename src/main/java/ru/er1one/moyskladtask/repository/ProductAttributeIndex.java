@@ -0,0 +1,136 @@
+package ru.er1one.moyskladtask.repository;
+
+import ru.er1one.moyskladtask.model.Product;
+import ru.er1one.moyskladtask.model.ProductQuery;
+
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Locale;
+import java.util.NavigableMap;
+import java.util.NavigableSet;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.stream.Stream;
+
+/**
+ * Вторичные индексы каталога: по цене, по названию и множество id товаров в наличии.
+ * <p>
+ * Выдача строится обходом индекса, соответствующего сортировке запроса, поэтому ни полного
+ * просмотра каталога, ни сортировки на каждый запрос не требуется. Индексы обновляются без
+ * блокировок, а каждый найденный ключ сверяется с актуальным снимком товара, так что устаревшие
+ * ключи, видимые во время конкурентной записи, в выдачу не попадают.
+ */
+class ProductAttributeIndex {
+
+    private final NavigableSet<PriceKey> byPrice = new ConcurrentSkipListSet<>();
+    private final NavigableSet<NameKey> byName = new ConcurrentSkipListSet<>();
+    private final NavigableSet<Long> inStock = new ConcurrentSkipListSet<>();
+
+    void update(Product previous, Product current) {
+        if (current != null) {
+            if (current.getPrice() != null) {
+                byPrice.add(new PriceKey(current.getPrice(), current.getId()));
+            }
+            if (current.getName() != null) {
+                byName.add(NameKey.of(current.getName(), current.getId()));
+            }
+            if (Boolean.TRUE.equals(current.getInStock())) {
+                inStock.add(current.getId());
+            }
+        }
+        if (previous != null) {
+            if (previous.getPrice() != null && (current == null || !previous.getPrice().equals(current.getPrice()))) {
+                byPrice.remove(new PriceKey(previous.getPrice(), previous.getId()));
+            }
+            if (previous.getName() != null && (current == null || !sortName(previous.getName()).equals(sortName(current.getName())))) {
+                byName.remove(NameKey.of(previous.getName(), previous.getId()));
+            }
+            if (Boolean.TRUE.equals(previous.getInStock()) && (current == null || !Boolean.TRUE.equals(current.getInStock()))) {
+                inStock.remove(previous.getId());
+            }
+        }
+    }
+
+    /**
+     * Возвращает снимки товаров, подходящих под запрос, в порядке его сортировки,
+     * начиная строго после позиции {@code after}.
+     */
+    Stream<Product> find(ProductQuery query, Product after, NavigableMap<Long, Product> products) {
+        Stream<Product> candidates = switch (query.sort()) {
+            case ID -> byId(query, after, products);
+            case PRICE -> priceRange(query, after).stream()
+                    .map(key -> {
+                        Product product = products.get(key.id());
+                        return product != null && product.getPrice() != null && key.price() == product.getPrice() ? product : null;
+                    });
+            case NAME -> (after == null ? byName : byName.tailSet(NameKey.of(after.getName(), after.getId()), false)).stream()
+                    .map(key -> {
+                        Product product = products.get(key.id());
+                        return product != null && key.name().equals(sortName(product.getName())) ? product : null;
+                    });
+        };
+        return candidates.filter(Objects::nonNull).filter(query::matches);
+    }
+
+    private Stream<Product> byId(ProductQuery query, Product after, NavigableMap<Long, Product> products) {
+        if (Boolean.TRUE.equals(query.inStock())) {
+            NavigableSet<Long> ids = after == null ? inStock : inStock.tailSet(after.getId(), false);
+            return ids.stream().map(products::get);
+        }
+        NavigableMap<Long, Product> tail = after == null ? products : products.tailMap(after.getId(), false);
+        return tail.values().stream();
+    }
+
+    private NavigableSet<PriceKey> priceRange(ProductQuery query, Product after) {
+        PriceKey from = null;
+        boolean fromInclusive = true;
+        if (after != null) {
+            from = new PriceKey(after.getPrice(), after.getId());
+            fromInclusive = false;
+        } else if (query.minPrice() != null) {
+            from = new PriceKey(query.minPrice(), Long.MIN_VALUE);
+        }
+        PriceKey to = query.maxPrice() == null ? null : new PriceKey(query.maxPrice(), Long.MAX_VALUE);
+
+        if (from == null) {
+            return to == null ? byPrice : byPrice.headSet(to, true);
+        }
+        if (to == null) {
+            return byPrice.tailSet(from, fromInclusive);
+        }
+        if (from.compareTo(to) > 0) {
+            return Collections.emptyNavigableSet();
+        }
+        return byPrice.subSet(from, fromInclusive, to, true);
+    }
+
+    private static String sortName(String name) {
+        return name == null ? null : name.toLowerCase(Locale.ROOT);
+    }
+
+    private record PriceKey(double price, long id) implements Comparable<PriceKey> {
+
+        private static final Comparator<PriceKey> ORDER = Comparator.comparingDouble(PriceKey::price)
+                .thenComparingLong(PriceKey::id);
+
+        @Override
+        public int compareTo(PriceKey other) {
+            return ORDER.compare(this, other);
+        }
+    }
+
+    private record NameKey(String name, long id) implements Comparable<NameKey> {
+
+        private static final Comparator<NameKey> ORDER = Comparator.comparing(NameKey::name)
+                .thenComparingLong(NameKey::id);
+
+        static NameKey of(String name, long id) {
+            return new NameKey(sortName(name), id);
+        }
+
+        @Override
+        public int compareTo(NameKey other) {
+            return ORDER.compare(this, other);
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package ru.er1one.moyskladtask.repository;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * @param nodeId       номер этого узла — его позиция в {@code nodes}
+ * @param nodes        адреса всех узлов кластера, одинаковые и в одном порядке на каждом узле
+ * @param virtualNodes сколько точек на кольце согласованного хеширования приходится на узел
+ * @param timeout      предел ожидания ответа другого узла
+ * @param secret       общий для узлов секрет в заголовке пересланного запроса; без него пересланным считается
+ *                     только запрос с адреса одного из {@code nodes}
+ */
+@ConfigurationProperties("product.cluster")
+public record ProductClusterProperties(@DefaultValue("false") boolean enabled,
+                                       @DefaultValue("0") int nodeId,
+                                       @DefaultValue List<URI> nodes,
+                                       @DefaultValue("128") int virtualNodes,
+                                       @DefaultValue("2s") Duration timeout,
+                                       String secret) {
+
+    /**
+     * Заголовок, которым узел помечает запросы к другим узлам.
+     */
+    public static final String FORWARDED_HEADER = "X-Product-Forwarded";
+
+    /**
+     * Значение {@value #FORWARDED_HEADER} в запросах этого узла: секрет, если он задан, иначе номер узла.
+     */
+    public String forwardedHeaderValue() {
+        return secret != null && !secret.isEmpty() ? secret : Integer.toString(nodeId);
+    }
+}
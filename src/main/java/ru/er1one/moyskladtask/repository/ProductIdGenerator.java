@@ -0,0 +1,44 @@
+package ru.er1one.moyskladtask.repository;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Выдаёт id товаров без согласования между узлами (по схеме Snowflake): 41 бит — миллисекунды
+ * с 2024-01-01, {@value #NODE_BITS} бит — номер узла, {@value #SEQUENCE_BITS} бит — номер в пределах миллисекунды.
+ * <p>
+ * Время и номер хранятся одним счётчиком, который только растёт: если за миллисекунду выдано больше
+ * {@code 2^12} id или часы отстали, id берутся в счёт следующих миллисекунд. Поэтому id узла не повторяются,
+ * пока он работает; после перезапуска — если часы не отстали от последнего выданного id.
+ */
+final class ProductIdGenerator {
+
+    static final int NODE_BITS = 10;
+    static final int SEQUENCE_BITS = 12;
+    static final int MAX_NODES = 1 << NODE_BITS;
+
+    private static final long EPOCH = 1_704_067_200_000L;
+    private static final long SEQUENCE_MASK = (1L << SEQUENCE_BITS) - 1;
+
+    private final long node;
+    private final LongSupplier clock;
+    private final AtomicLong last = new AtomicLong();
+
+    ProductIdGenerator(int node) {
+        this(node, System::currentTimeMillis);
+    }
+
+    ProductIdGenerator(int node, LongSupplier clock) {
+        if (node < 0 || node >= MAX_NODES) {
+            throw new IllegalArgumentException("Номер узла должен быть от 0 до " + (MAX_NODES - 1));
+        }
+        this.node = node;
+        this.clock = clock;
+    }
+
+    long next() {
+        long now = (clock.getAsLong() - EPOCH) << SEQUENCE_BITS;
+        long tick = last.updateAndGet(previous -> Math.max(previous + 1, now));
+        return (tick >>> SEQUENCE_BITS) << (NODE_BITS + SEQUENCE_BITS) | node << SEQUENCE_BITS | tick & SEQUENCE_MASK;
+    }
+}
@@ -0,0 +1,37 @@
+package ru.er1one.moyskladtask.repository;
+
+import ru.er1one.moyskladtask.model.Product;
+
+/**
+ * Журнал изменений хранилища. Запись в журнал выполняется под блокировкой товара до того, как изменение
+ * станет видно читателям, поэтому порядок записей по одному id совпадает с порядком изменений, а ожидание
+ * сброса на диск — уже после неё. Если журнал не принимает записи, {@link #logSave} и {@link #logDelete}
+ * бросают {@link ru.er1one.moyskladtask.exception.ProductStorageUnavailableException}, и изменение не применяется.
+ */
+public interface ProductJournal {
+
+    ProductJournal NONE = new ProductJournal() {
+        @Override
+        public long logSave(Product product) {
+            return 0;
+        }
+
+        @Override
+        public long logDelete(long id) {
+            return 0;
+        }
+
+        @Override
+        public void awaitDurable(long position) {
+        }
+    };
+
+    /**
+     * @return позиция записи, которую можно передать в {@link #awaitDurable(long)}
+     */
+    long logSave(Product product);
+
+    long logDelete(long id);
+
+    void awaitDurable(long position);
+}
@@ -0,0 +1,23 @@
+package ru.er1one.moyskladtask.repository;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+import org.springframework.util.unit.DataSize;
+
+import java.nio.file.Path;
+import java.time.Duration;
+
+/**
+ * @param syncWrites        ждать ли сброса записи на диск перед ответом клиенту
+ * @param flushInterval     период сброса журнала, если {@code syncWrites} выключен
+ * @param snapshotInterval  период создания снимка и удаления устаревших сегментов журнала
+ * @param maxPending        предел записей, ещё не сброшенных на диск; при его достижении запись ждёт сброса
+ */
+@ConfigurationProperties("product.journal")
+public record ProductJournalProperties(@DefaultValue("false") boolean enabled,
+                                       @DefaultValue("data") Path directory,
+                                       @DefaultValue("true") boolean syncWrites,
+                                       @DefaultValue("10ms") Duration flushInterval,
+                                       @DefaultValue("10m") Duration snapshotInterval,
+                                       @DefaultValue("64MB") DataSize maxPending) {
+}
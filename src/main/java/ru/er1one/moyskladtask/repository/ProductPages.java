@@ -0,0 +1,49 @@
+package ru.er1one.moyskladtask.repository;
+
+import lombok.experimental.UtilityClass;
+import ru.er1one.moyskladtask.model.Product;
+import ru.er1one.moyskladtask.model.ProductQuery;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+@UtilityClass
+class ProductPages {
+
+    /**
+     * Лениво обходит каталог в порядке id страницами по {@code pageSize} товаров через
+     * {@link ProductRepository#find}, не удерживая хранилище между страницами.
+     */
+    Stream<Product> stream(ProductRepository repository, int pageSize) {
+        Iterator<Product> iterator = new Iterator<>() {
+            private Iterator<Product> page = List.<Product>of().iterator();
+            private Product last;
+            private boolean exhausted;
+
+            @Override
+            public boolean hasNext() {
+                if (!page.hasNext() && !exhausted) {
+                    List<Product> next = repository.find(ProductQuery.ALL, last, pageSize);
+                    exhausted = next.size() < pageSize;
+                    page = next.iterator();
+                }
+                return page.hasNext();
+            }
+
+            @Override
+            public Product next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                last = page.next();
+                return last;
+            }
+        };
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(iterator, Spliterator.ORDERED | Spliterator.NONNULL), false);
+    }
+}
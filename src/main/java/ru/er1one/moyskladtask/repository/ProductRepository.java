@@ -1,50 +1,121 @@
 package ru.er1one.moyskladtask.repository;
 
-import org.springframework.stereotype.Repository;
 import ru.er1one.moyskladtask.exception.ProductNotFoundException;
+import ru.er1one.moyskladtask.exception.ProductVersionConflictException;
+import ru.er1one.moyskladtask.model.CatalogTotals;
 import ru.er1one.moyskladtask.model.Product;
+import ru.er1one.moyskladtask.model.ProductQuery;
 
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
-import java.util.concurrent.atomic.AtomicLong;
+import java.util.Optional;
+import java.util.function.UnaryOperator;
+import java.util.stream.Stream;
 
-@Repository
-public class ProductRepository {
+/**
+ * Хранилище товаров. Реализация выбирается свойством {@code product.storage.type}:
+ * {@code memory} (по умолчанию), {@code compact} или {@code jdbc}.
+ * <p>
+ * Все методы возвращают копии: изменение полученного объекта не затрагивает хранилище.
+ * <p>
+ * Каждая запись назначает товару новую {@link Product#getVersion() версию}. Версии не повторяются
+ * ни между товарами, ни после перезапуска, поэтому по паре «id, версия» можно судить, изменился ли товар.
+ */
+public interface ProductRepository {
 
-    private final AtomicLong lastId = new AtomicLong(0);
-    private final Map<Long, Product> products;
+    /**
+     * Квалификатор хранилища этого узла. При {@code product.cluster.enabled=true} оно хранит только
+     * часть каталога, а весь каталог доступен через {@link ShardedProductRepository}.
+     */
+    String LOCAL = "localProductRepository";
 
-    public ProductRepository() {
-        products = new HashMap<>();
-    }
+    List<Product> findAll();
 
-    public List<Product> findAll() {
-        return products.values().stream().toList();
-    }
+    /**
+     * Лениво обходит каталог в порядке id, не загружая его целиком.
+     */
+    Stream<Product> streamAll();
+
+    /**
+     * Возвращает до {@code limit} товаров, подходящих под запрос, в порядке его сортировки,
+     * начиная строго после позиции {@code after}.
+     */
+    List<Product> find(ProductQuery query, Product after, int limit);
+
+    List<Product> search(String query, int limit);
+
+    /**
+     * Число товаров в каталоге.
+     */
+    long count();
+
+    /**
+     * Версия каталога: меняется после каждой завершённой записи. Значение читается до выборки,
+     * поэтому выборка может оказаться новее своей версии, но никогда не старее.
+     */
+    long catalogVersion();
 
-    public Product findById(long id) throws ProductNotFoundException {
-        if (!products.containsKey(id)) {
-            throw new ProductNotFoundException();
+    /**
+     * Итоги по каталогу. Хранилища в памяти ведут их при каждой записи, хранилище в базе считает их
+     * одним агрегирующим запросом; по умолчанию они считаются обходом всего каталога.
+     */
+    default CatalogTotals totals() {
+        ProductAggregates aggregates = new ProductAggregates();
+        try (Stream<Product> products = streamAll()) {
+            products.forEach(product -> aggregates.update(null, product));
         }
-        return products.get(id);
+        return aggregates.totals();
     }
 
-    public Product save(Product product) {
-        if (product.getId() == null) {
-            product.setId(lastId.incrementAndGet());
-        }
-        products.put(product.getId(), product);
-        return product;
+    /**
+     * Ищет товар по id одним обращением к хранилищу, не создавая исключения при промахе.
+     */
+    Optional<Product> lookup(long id);
+
+    default Product findById(long id) throws ProductNotFoundException {
+        return lookup(id).orElseThrow(ProductNotFoundException::new);
     }
 
-    public void deleteById(long id) throws ProductNotFoundException {
-        if (!products.containsKey(id)) {
-            throw new ProductNotFoundException();
-        }
-        products.remove(id);
+    /**
+     * Можно ли создать товар под id, заданным клиентом. Хранилище, которое выдаёт id из последовательности,
+     * общей для нескольких экземпляров приложения, не может исключить, что такой id потом выдаст другой экземпляр.
+     */
+    default boolean acceptsClientIds() {
+        return true;
     }
 
+    /**
+     * Сохраняет товар, назначая ему версию, а товару без id — новый id.
+     */
+    Product save(Product product);
 
+    /**
+     * Сохраняет товары одной пачкой. Товарам без id назначаются новые id, всем товарам — новые версии.
+     */
+    List<Product> saveAll(List<Product> batch);
+
+    /**
+     * Атомарно изменяет товар: {@code updater} получает копию текущего состояния,
+     * а результат сохраняется, только если он отработал без исключения.
+     */
+    Product update(long id, UnaryOperator<Product> updater) throws ProductNotFoundException;
+
+    /**
+     * Сравнение с обменом: изменяет товар, только если его текущая версия равна {@code expectedVersion}.
+     * Проверка выполняется внутри {@link #update(long, UnaryOperator)}, то есть атомарно с самим изменением.
+     */
+    default Product update(long id, long expectedVersion, UnaryOperator<Product> updater)
+            throws ProductNotFoundException, ProductVersionConflictException {
+        return update(id, current -> {
+            if (current.getVersion() == null || current.getVersion() != expectedVersion) {
+                throw new ProductVersionConflictException();
+            }
+            return updater.apply(current);
+        });
+    }
 
+    /**
+     * @return версия удаления: выдаётся тем же счётчиком, что и версии товаров, поэтому больше версий,
+     * которые товар получал в этом хранилище
+     */
+    long deleteById(long id) throws ProductNotFoundException;
 }
@@ -0,0 +1,257 @@
+package ru.er1one.moyskladtask.repository;
+
+import ru.er1one.moyskladtask.model.Product;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Инвертированный индекс по названию и описанию товара с поиском по префиксу.
+ * <p>
+ * Слова приводятся к нижнему регистру, «ё» приравнивается к «е». Совпадение в названии весит больше,
+ * чем в описании, полное совпадение слова — больше, чем совпадение по префиксу.
+ * Все слова запроса должны встретиться в товаре.
+ * <p>
+ * Слова разложены по {@value #STRIPES} частям по хешу, у каждой своя блокировка, поэтому записи
+ * разных товаров почти не ждут друг друга, а поиск блокирует запись только в той части, которую читает.
+ * Списки товаров по слову хранятся в {@link LongIntHashMap} без упаковки id и весов в объекты.
+ * <p>
+ * Стоимость поиска ограничена: слово запроса короче {@value #MIN_PREFIX_LENGTH} символов ищется только целиком,
+ * а по каждому слову собирается не больше {@value #MAX_CANDIDATES} товаров — сначала полные совпадения,
+ * затем совпадения по префиксу. Для очень частых слов выдача поэтому может быть неполной, и её сужают
+ * уточнением запроса.
+ */
+public class ProductSearchIndex {
+
+    static final int MIN_PREFIX_LENGTH = 2;
+    static final int MAX_CANDIDATES = 10_000;
+
+    private static final int STRIPES = 16;
+    private static final int NAME_WEIGHT = 3;
+    private static final int DESCRIPTION_WEIGHT = 1;
+    private static final int EXACT_MATCH_FACTOR = 2;
+    private static final Comparator<Hit> WORST_FIRST =
+            Comparator.comparingInt(Hit::score).thenComparing(Comparator.comparingLong(Hit::id).reversed());
+
+    private final Stripe[] stripes = new Stripe[STRIPES];
+
+    public ProductSearchIndex() {
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new Stripe();
+        }
+    }
+
+    public void update(Product previous, Product current) {
+        Map<String, Integer> removed = previous == null ? Map.of() : terms(previous);
+        Map<String, Integer> added = current == null ? Map.of() : terms(current);
+        if (removed.equals(added)) {
+            return;
+        }
+        long id = current != null ? current.getId() : previous.getId();
+
+        for (String term : removed.keySet()) {
+            if (!added.containsKey(term)) {
+                stripeOf(term).remove(term, id);
+            }
+        }
+        added.forEach((term, weight) -> stripeOf(term).put(term, id, weight));
+    }
+
+    /**
+     * Возвращает id найденных товаров, отсортированные по убыванию релевантности.
+     */
+    public List<Long> search(String query, int limit) {
+        Set<String> queryTerms = tokenize(query);
+        if (queryTerms.isEmpty() || limit <= 0) {
+            return List.of();
+        }
+
+        List<LongIntHashMap> matches = new ArrayList<>(queryTerms.size());
+        for (String queryTerm : queryTerms) {
+            LongIntHashMap scores = scores(queryTerm);
+            if (scores.size() == 0) {
+                return List.of();
+            }
+            matches.add(scores);
+        }
+
+        matches.sort(Comparator.comparingInt(LongIntHashMap::size));
+        List<LongIntHashMap> others = matches.subList(1, matches.size());
+        PriorityQueue<Hit> best = new PriorityQueue<>(limit + 1, WORST_FIRST);
+        matches.getFirst().forEach((id, score) -> {
+            int total = score;
+            for (LongIntHashMap other : others) {
+                int otherScore = other.get(id);
+                if (otherScore == LongIntHashMap.MISSING) {
+                    return true;
+                }
+                total += otherScore;
+            }
+            Hit hit = new Hit(id, total);
+            if (best.size() < limit) {
+                best.add(hit);
+            } else if (WORST_FIRST.compare(best.peek(), hit) < 0) {
+                best.poll();
+                best.add(hit);
+            }
+            return true;
+        });
+
+        List<Hit> hits = new ArrayList<>(best);
+        hits.sort(WORST_FIRST.reversed());
+        return hits.stream().map(Hit::id).toList();
+    }
+
+    /**
+     * Лучшая оценка каждого товара по одному слову запроса: сначала полное совпадение слова,
+     * затем, если слово не короче {@value #MIN_PREFIX_LENGTH}, слова с этим префиксом из всех частей.
+     */
+    private LongIntHashMap scores(String queryTerm) {
+        LongIntHashMap scores = new LongIntHashMap(16);
+        stripeOf(queryTerm).collect(queryTerm, queryTerm, true, scores);
+        if (queryTerm.length() >= MIN_PREFIX_LENGTH) {
+            for (Stripe stripe : stripes) {
+                if (scores.size() >= MAX_CANDIDATES) {
+                    break;
+                }
+                stripe.collect(queryTerm, queryTerm + Character.MAX_VALUE, false, scores);
+            }
+        }
+        return scores;
+    }
+
+    private Stripe stripeOf(String term) {
+        return stripes[term.hashCode() & (STRIPES - 1)];
+    }
+
+    /**
+     * Оценивает товар по тем же правилам, что и {@link #search}, но без индекса.
+     * Возвращает 0, если какое-то слово запроса в товаре не встретилось.
+     */
+    static int score(Set<String> queryTerms, String name, String description) {
+        Map<String, Integer> terms = terms(name, description);
+        int score = 0;
+        for (String queryTerm : queryTerms) {
+            int best = 0;
+            for (Map.Entry<String, Integer> term : terms.entrySet()) {
+                if (term.getKey().startsWith(queryTerm)) {
+                    int factor = term.getKey().equals(queryTerm) ? EXACT_MATCH_FACTOR : 1;
+                    best = Math.max(best, term.getValue() * factor);
+                }
+            }
+            if (best == 0) {
+                return 0;
+            }
+            score += best;
+        }
+        return score;
+    }
+
+    private static Map<String, Integer> terms(Product product) {
+        return terms(product.getName(), product.getDescription());
+    }
+
+    private static Map<String, Integer> terms(String name, String description) {
+        Map<String, Integer> terms = new HashMap<>();
+        for (String term : tokenize(name)) {
+            terms.merge(term, NAME_WEIGHT, Integer::sum);
+        }
+        for (String term : tokenize(description)) {
+            terms.merge(term, DESCRIPTION_WEIGHT, Integer::sum);
+        }
+        return terms;
+    }
+
+    static Set<String> tokenize(String text) {
+        Set<String> tokens = new LinkedHashSet<>();
+        if (text == null) {
+            return tokens;
+        }
+        int start = -1;
+        for (int i = 0; i <= text.length(); i++) {
+            boolean letter = i < text.length() && Character.isLetterOrDigit(text.charAt(i));
+            if (letter && start < 0) {
+                start = i;
+            } else if (!letter && start >= 0) {
+                tokens.add(normalize(text.substring(start, i)));
+                start = -1;
+            }
+        }
+        return tokens;
+    }
+
+    private static String normalize(String token) {
+        return token.toLowerCase(Locale.ROOT).replace('ё', 'е');
+    }
+
+    private record Hit(long id, int score) {
+    }
+
+    private static final class Stripe {
+
+        private final ReadWriteLock lock = new ReentrantReadWriteLock();
+        private final TreeMap<String, LongIntHashMap> postings = new TreeMap<>();
+
+        void put(String term, long id, int weight) {
+            lock.writeLock().lock();
+            try {
+                postings.computeIfAbsent(term, key -> new LongIntHashMap(1)).put(id, weight);
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        void remove(String term, long id) {
+            lock.writeLock().lock();
+            try {
+                LongIntHashMap ids = postings.get(term);
+                if (ids != null) {
+                    ids.remove(id);
+                    if (ids.size() == 0) {
+                        postings.remove(term);
+                    }
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        /**
+         * Добавляет в {@code scores} товары слов из {@code [from, to]} при {@code exact}, иначе из {@code (from, to)},
+         * оставляя каждому товару лучшую оценку и не превышая {@value #MAX_CANDIDATES} товаров.
+         */
+        void collect(String from, String to, boolean exact, LongIntHashMap scores) {
+            int factor = exact ? EXACT_MATCH_FACTOR : 1;
+            lock.readLock().lock();
+            try {
+                for (LongIntHashMap ids : postings.subMap(from, exact, to, exact).values()) {
+                    ids.forEach((id, weight) -> {
+                        int previous = scores.get(id);
+                        if (previous == LongIntHashMap.MISSING && scores.size() >= MAX_CANDIDATES) {
+                            return false;
+                        }
+                        if (weight * factor > previous) {
+                            scores.put(id, weight * factor);
+                        }
+                        return true;
+                    });
+                    if (scores.size() >= MAX_CANDIDATES) {
+                        return;
+                    }
+                }
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+    }
+}
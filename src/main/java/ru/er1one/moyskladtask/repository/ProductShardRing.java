@@ -0,0 +1,53 @@
+package ru.er1one.moyskladtask.repository;
+
+import java.util.Arrays;
+
+/**
+ * Кольцо согласованного хеширования: каждый узел занимает {@code virtualNodes} точек, а товар принадлежит
+ * узлу первой точки после хеша его id. При добавлении узла к нему переходит лишь около {@code 1/n} товаров,
+ * остальные остаются на прежних узлах.
+ */
+final class ProductShardRing {
+
+    private final long[] points;
+    private final int[] owners;
+
+    ProductShardRing(int nodes, int virtualNodes) {
+        if (nodes < 1 || virtualNodes < 1) {
+            throw new IllegalArgumentException("Кольцу нужны хотя бы один узел и одна точка на узел");
+        }
+        long[] hashes = new long[nodes * virtualNodes];
+        for (int node = 0; node < nodes; node++) {
+            for (int replica = 0; replica < virtualNodes; replica++) {
+                hashes[node * virtualNodes + replica] = hash((long) node << 32 | replica);
+            }
+        }
+        Integer[] order = new Integer[hashes.length];
+        Arrays.setAll(order, i -> i);
+        Arrays.sort(order, (a, b) -> Long.compare(hashes[a], hashes[b]));
+        points = new long[order.length];
+        owners = new int[order.length];
+        for (int i = 0; i < order.length; i++) {
+            points[i] = hashes[order[i]];
+            owners[i] = order[i] / virtualNodes;
+        }
+    }
+
+    int owner(long id) {
+        int position = Arrays.binarySearch(points, hash(id));
+        if (position < 0) {
+            position = -position - 1;
+        }
+        return owners[position == points.length ? 0 : position];
+    }
+
+    /**
+     * Перемешивание SplitMix64: соседние id и номера точек расходятся по всему кольцу.
+     */
+    private static long hash(long value) {
+        long z = value + 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
@@ -0,0 +1,126 @@
+package ru.er1one.moyskladtask.repository;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Хранилище строк в UTF-8, дописываемое блоками по {@value #CHUNK_SIZE} байт.
+ * <p>
+ * Строка адресуется ссылкой {@code long}: старшие 32 бита — номер блока, младшие — смещение,
+ * по которому лежат длина и байты строки. Для {@code null} и пустой строки место не выделяется.
+ * Блоки могут располагаться вне кучи, тогда сборщик мусора их не обходит. Освобождённые
+ * строки только учитываются: место возвращается при переносе живых строк в новое хранилище.
+ * Не потокобезопасно: синхронизацию обеспечивает владелец.
+ */
+class ProductStringStore {
+
+    static final long NULL = -1;
+    static final long EMPTY = -2;
+
+    private static final int CHUNK_SIZE = 1 << 20;
+    private static final int LENGTH_BYTES = Integer.BYTES;
+
+    private final boolean offHeap;
+    private final List<ByteBuffer> chunks = new ArrayList<>();
+    private ByteBuffer current;
+    private long liveBytes;
+    private long garbageBytes;
+
+    ProductStringStore(boolean offHeap) {
+        this.offHeap = offHeap;
+    }
+
+    long add(String value) {
+        if (value == null) {
+            return NULL;
+        }
+        if (value.isEmpty()) {
+            return EMPTY;
+        }
+        return add(value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Заменяет строку по ссылке {@code ref}. Если значение не изменилось, ссылка остаётся прежней.
+     */
+    long replace(long ref, String value) {
+        if (value == null || value.isEmpty()) {
+            release(ref);
+            return value == null ? NULL : EMPTY;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        if (ref >= 0 && Arrays.equals(bytes, bytes(ref))) {
+            return ref;
+        }
+        release(ref);
+        return add(bytes);
+    }
+
+    String get(long ref) {
+        if (ref == NULL) {
+            return null;
+        }
+        if (ref == EMPTY) {
+            return "";
+        }
+        return new String(bytes(ref), StandardCharsets.UTF_8);
+    }
+
+    void release(long ref) {
+        if (ref >= 0) {
+            long size = LENGTH_BYTES + chunk(ref).getInt(offset(ref));
+            liveBytes -= size;
+            garbageBytes += size;
+        }
+    }
+
+    /**
+     * Переносит строку по ссылке {@code ref} в хранилище {@code target} без декодирования.
+     */
+    long copyTo(ProductStringStore target, long ref) {
+        return ref < 0 ? ref : target.add(bytes(ref));
+    }
+
+    long getLiveBytes() {
+        return liveBytes;
+    }
+
+    long getGarbageBytes() {
+        return garbageBytes;
+    }
+
+    private long add(byte[] bytes) {
+        int size = LENGTH_BYTES + bytes.length;
+        if (current == null || current.remaining() < size) {
+            current = allocate(Math.max(CHUNK_SIZE, size));
+            chunks.add(current);
+        }
+        long ref = ((long) (chunks.size() - 1) << 32) | current.position();
+        current.putInt(bytes.length).put(bytes);
+        liveBytes += size;
+        return ref;
+    }
+
+    private byte[] bytes(long ref) {
+        ByteBuffer chunk = chunk(ref);
+        int offset = offset(ref);
+        byte[] bytes = new byte[chunk.getInt(offset)];
+        chunk.get(offset + LENGTH_BYTES, bytes);
+        return bytes;
+    }
+
+    private ByteBuffer chunk(long ref) {
+        return chunks.get((int) (ref >>> 32));
+    }
+
+    private ByteBuffer allocate(int size) {
+        return offHeap ? ByteBuffer.allocateDirect(size) : ByteBuffer.allocate(size);
+    }
+
+    private static int offset(long ref) {
+        return (int) ref;
+    }
+}
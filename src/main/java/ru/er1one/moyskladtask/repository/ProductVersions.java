@@ -0,0 +1,21 @@
+package ru.er1one.moyskladtask.repository;
+
+import lombok.experimental.UtilityClass;
+
+/**
+ * Начальное значение счётчиков версий для хранилищ в памяти и номеров событий {@link ru.er1one.moyskladtask.service.ProductChangeFeed}.
+ * <p>
+ * Счётчик стартует с текущего времени в миллисекундах, сдвинутого на 20 бит, так что после
+ * перезапуска версии продолжаются выше прежних, пока хранилище в среднем выполняет меньше
+ * миллиона записей за миллисекунду работы. Иначе каталог, созданный заново после перезапуска,
+ * мог бы получить те же версии, что и прежний, и клиент принял бы чужой товар за неизменённый.
+ */
+@UtilityClass
+public class ProductVersions {
+
+    private final int COUNTER_BITS = 20;
+
+    public long initial() {
+        return System.currentTimeMillis() << COUNTER_BITS;
+    }
+}
@@ -0,0 +1,232 @@
+package ru.er1one.moyskladtask.repository;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import ru.er1one.moyskladtask.exception.ProductNotFoundException;
+import ru.er1one.moyskladtask.exception.ProductShardUnavailableException;
+import ru.er1one.moyskladtask.model.CatalogTotals;
+import ru.er1one.moyskladtask.model.Product;
+import ru.er1one.moyskladtask.model.ProductQuery;
+import ru.er1one.moyskladtask.model.ProductShardStats;
+import ru.er1one.moyskladtask.util.ProductCursor;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.UnaryOperator;
+import java.util.stream.Stream;
+
+/**
+ * Часть каталога на другом узле кластера, доступная через его {@code /internal/product}. Запросы помечаются
+ * заголовком {@value ProductClusterProperties#FORWARDED_HEADER}, без которого узел их не принимает.
+ * <p>
+ * Атомарное изменение выполняется сравнением с обменом: товар читается, изменяется на этом узле
+ * и записывается с условием на прочитанную версию; если товар успели изменить, попытка повторяется
+ * после паузы, растущей с каждой попыткой. После {@value #MAX_UPDATE_ATTEMPTS} неудачных попыток, как и при
+ * ошибках связи и неожиданных ответах, бросается {@link ProductShardUnavailableException}.
+ */
+final class RemoteProductRepository implements ProductRepository {
+
+    static final String EXPECTED_VERSION = "X-Expected-Version";
+
+    private static final TypeReference<List<Product>> PRODUCTS = new TypeReference<>() {
+    };
+    private static final int STREAM_FETCH_SIZE = 1000;
+    private static final int MAX_UPDATE_ATTEMPTS = 8;
+    private static final long MAX_BACKOFF_MILLIS = 64;
+
+    private final int node;
+    private final String baseUri;
+    private final HttpClient client;
+    private final ObjectMapper objectMapper;
+    private final Duration timeout;
+    private final String forwardedHeaderValue;
+
+    RemoteProductRepository(int node, URI nodeUri, HttpClient client, ObjectMapper objectMapper, Duration timeout,
+                            String forwardedHeaderValue) {
+        this.node = node;
+        this.baseUri = nodeUri.resolve("/internal/product").toString();
+        this.client = client;
+        this.objectMapper = objectMapper;
+        this.timeout = timeout;
+        this.forwardedHeaderValue = forwardedHeaderValue;
+    }
+
+    @Override
+    public List<Product> findAll() {
+        return read(send(request("")), PRODUCTS);
+    }
+
+    @Override
+    public Stream<Product> streamAll() {
+        return ProductPages.stream(this, STREAM_FETCH_SIZE);
+    }
+
+    @Override
+    public List<Product> find(ProductQuery query, Product after, int limit) {
+        StringBuilder path = new StringBuilder("/find?sort=").append(query.sort()).append("&limit=").append(limit);
+        if (query.minPrice() != null) {
+            path.append("&minPrice=").append(query.minPrice());
+        }
+        if (query.maxPrice() != null) {
+            path.append("&maxPrice=").append(query.maxPrice());
+        }
+        if (query.inStock() != null) {
+            path.append("&inStock=").append(query.inStock());
+        }
+        if (after != null) {
+            path.append("&after=").append(ProductCursor.encode(query.sort(), after));
+        }
+        return read(send(request(path.toString())), PRODUCTS);
+    }
+
+    @Override
+    public List<Product> search(String query, int limit) {
+        return read(send(request("/search?limit=" + limit + "&q=" + URLEncoder.encode(query, StandardCharsets.UTF_8))), PRODUCTS);
+    }
+
+    @Override
+    public long count() {
+        return stats().count();
+    }
+
+    @Override
+    public long catalogVersion() {
+        return stats().catalogVersion();
+    }
+
+    @Override
+    public CatalogTotals totals() {
+        return read(send(request("/totals")), CatalogTotals.class);
+    }
+
+    @Override
+    public Optional<Product> lookup(long id) {
+        HttpResponse<byte[]> response = send(request("/" + id));
+        return response.statusCode() == 404 ? Optional.empty() : Optional.of(read(response, Product.class));
+    }
+
+    /**
+     * Товар должен уже иметь id: их выдаёт {@link ShardedProductRepository}.
+     */
+    @Override
+    public Product save(Product product) {
+        return read(send(request("/" + product.getId()).PUT(body(product))), Product.class);
+    }
+
+    @Override
+    public List<Product> saveAll(List<Product> batch) {
+        return read(send(request("/batch").POST(body(batch))), PRODUCTS);
+    }
+
+    @Override
+    public Product update(long id, UnaryOperator<Product> updater) throws ProductNotFoundException {
+        for (int attempt = 0; attempt < MAX_UPDATE_ATTEMPTS; attempt++) {
+            if (attempt > 0) {
+                backoff(attempt);
+            }
+            Product current = findById(id);
+            long version = current.getVersion();
+            Product updated = updater.apply(current);
+            updated.setId(id);
+            HttpResponse<byte[]> response = send(request("/" + id)
+                    .header(EXPECTED_VERSION, Long.toString(version))
+                    .PUT(body(updated)));
+            if (response.statusCode() == 404) {
+                throw new ProductNotFoundException();
+            }
+            if (response.statusCode() != 412) {
+                return read(response, Product.class);
+            }
+        }
+        throw new ProductShardUnavailableException("Товар " + id + " на узле " + node + " не удалось изменить за "
+                + MAX_UPDATE_ATTEMPTS + " попыток: его изменяют другие запросы");
+    }
+
+    @Override
+    public long deleteById(long id) throws ProductNotFoundException {
+        HttpResponse<byte[]> response = send(request("/" + id).DELETE());
+        if (response.statusCode() == 404) {
+            throw new ProductNotFoundException();
+        }
+        return read(response, Long.class);
+    }
+
+    /**
+     * Ждёт случайное время до {@code 2^attempt} мс, но не больше {@value #MAX_BACKOFF_MILLIS} мс, чтобы
+     * конкурирующие запросы не повторяли попытки одновременно.
+     */
+    private void backoff(int attempt) {
+        try {
+            Thread.sleep(ThreadLocalRandom.current().nextLong(Math.min(1L << attempt, MAX_BACKOFF_MILLIS) + 1));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ProductShardUnavailableException("Прервано ожидание узла " + node, e);
+        }
+    }
+
+    private ProductShardStats stats() {
+        return read(send(request("/stats")), ProductShardStats.class);
+    }
+
+    private HttpRequest.Builder request(String path) {
+        return HttpRequest.newBuilder(URI.create(baseUri + path))
+                .timeout(timeout)
+                .header("Accept", "application/json")
+                .header("Content-Type", "application/json")
+                .header(ProductClusterProperties.FORWARDED_HEADER, forwardedHeaderValue);
+    }
+
+    private HttpRequest.BodyPublisher body(Object body) {
+        try {
+            return HttpRequest.BodyPublishers.ofByteArray(objectMapper.writeValueAsBytes(body));
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private HttpResponse<byte[]> send(HttpRequest.Builder request) {
+        try {
+            return client.send(request.build(), HttpResponse.BodyHandlers.ofByteArray());
+        } catch (IOException e) {
+            throw new ProductShardUnavailableException("Узел " + node + " недоступен", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ProductShardUnavailableException("Прервано ожидание узла " + node, e);
+        }
+    }
+
+    private <T> T read(HttpResponse<byte[]> response, Class<T> type) {
+        if (response.statusCode() != 200) {
+            throw unexpected(response);
+        }
+        try {
+            return objectMapper.readValue(response.body(), type);
+        } catch (IOException e) {
+            throw new ProductShardUnavailableException("Некорректный ответ узла " + node, e);
+        }
+    }
+
+    private <T> T read(HttpResponse<byte[]> response, TypeReference<T> type) {
+        if (response.statusCode() != 200) {
+            throw unexpected(response);
+        }
+        try {
+            return objectMapper.readValue(response.body(), type);
+        } catch (IOException e) {
+            throw new ProductShardUnavailableException("Некорректный ответ узла " + node, e);
+        }
+    }
+
+    private ProductShardUnavailableException unexpected(HttpResponse<byte[]> response) {
+        return new ProductShardUnavailableException("Узел " + node + " ответил " + response.statusCode());
+    }
+}
@@ -0,0 +1,271 @@
+package ru.er1one.moyskladtask.repository;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PreDestroy;
+import jakarta.annotation.Priority;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Repository;
+import ru.er1one.moyskladtask.exception.ProductNotFoundException;
+import ru.er1one.moyskladtask.exception.ProductVersionConflictException;
+import ru.er1one.moyskladtask.model.CatalogTotals;
+import ru.er1one.moyskladtask.model.Product;
+import ru.er1one.moyskladtask.model.ProductQuery;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.IntFunction;
+import java.util.function.UnaryOperator;
+import java.util.stream.Stream;
+
+/**
+ * Каталог, распределённый между узлами кластера ({@code product.cluster.*}).
+ * <p>
+ * Каждый товар хранится на одном узле — владельце, который определяется по id кольцом согласованного
+ * хеширования ({@link ProductShardRing}). Своя часть каталога лежит в хранилище этого узла, выбранном
+ * {@code product.storage.type}, чужие доступны через {@link RemoteProductRepository}. Id выдаёт
+ * {@link ProductIdGenerator} с номером узла внутри, поэтому узлам не нужно согласовывать их между собой.
+ * <p>
+ * Выборки по всему каталогу параллельно запрашиваются у всех узлов и сливаются в порядке запроса,
+ * итоги каталога складываются из итогов узлов.
+ * Версия каталога — хеш версий узлов, взятых по порядку номеров: она меняется после любой записи на любом узле.
+ * <p>
+ * Состав кластера задаётся при запуске и должен совпадать на всех узлах. Товары между узлами
+ * не переносятся: при изменении состава их нужно перенести к новым владельцам отдельно.
+ * <p>
+ * Бин помечен {@link Priority}, поэтому {@link MeteredProductRepository} оборачивает его, а не хранилище узла.
+ */
+@Repository
+@Priority(0)
+@ConditionalOnProperty(prefix = "product.cluster", name = "enabled", havingValue = "true")
+public class ShardedProductRepository implements ProductRepository {
+
+    private static final int STREAM_FETCH_SIZE = 1000;
+
+    private final int nodeId;
+    private final List<URI> nodes;
+    private final ProductRepository[] shards;
+    private final ProductShardRing ring;
+    private final ProductIdGenerator ids;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+    @Autowired
+    public ShardedProductRepository(@Qualifier(ProductRepository.LOCAL) ProductRepository local,
+                                    ProductClusterProperties properties, ObjectMapper objectMapper) {
+        this.nodeId = properties.nodeId();
+        this.nodes = List.copyOf(properties.nodes());
+        if (nodes.isEmpty() || nodeId < 0 || nodeId >= nodes.size()) {
+            throw new IllegalArgumentException("product.cluster.node-id должен указывать на узел из product.cluster.nodes");
+        }
+        HttpClient client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(properties.timeout())
+                .build();
+        this.shards = new ProductRepository[nodes.size()];
+        for (int node = 0; node < shards.length; node++) {
+            shards[node] = node == nodeId
+                    ? local
+                    : new RemoteProductRepository(node, nodes.get(node), client, objectMapper, properties.timeout(),
+                            properties.forwardedHeaderValue());
+        }
+        this.ring = new ProductShardRing(nodes.size(), properties.virtualNodes());
+        this.ids = new ProductIdGenerator(nodeId);
+    }
+
+    public int nodeId() {
+        return nodeId;
+    }
+
+    public URI nodeUri(int node) {
+        return nodes.get(node);
+    }
+
+    /**
+     * Номер узла, который хранит товар с этим id.
+     */
+    public int owner(long id) {
+        return ring.owner(id);
+    }
+
+    @Override
+    public List<Product> findAll() {
+        return scatter(node -> shards[node].findAll()).stream()
+                .flatMap(List::stream)
+                .sorted(Comparator.comparingLong(Product::getId))
+                .toList();
+    }
+
+    @Override
+    public Stream<Product> streamAll() {
+        return ProductPages.stream(this, STREAM_FETCH_SIZE);
+    }
+
+    /**
+     * Каждый узел отдаёт свои первые {@code limit} товаров после {@code after}; из их объединения
+     * берутся первые {@code limit} в порядке запроса.
+     */
+    @Override
+    public List<Product> find(ProductQuery query, Product after, int limit) {
+        return scatter(node -> shards[node].find(query, after, limit)).stream()
+                .flatMap(List::stream)
+                .sorted(order(query))
+                .limit(limit)
+                .toList();
+    }
+
+    /**
+     * Найденное на узлах ранжируется заново по {@link ProductSearchIndex#score}, чтобы релевантность
+     * сравнивалась одинаково для товаров с разных узлов.
+     */
+    @Override
+    public List<Product> search(String query, int limit) {
+        Set<String> terms = ProductSearchIndex.tokenize(query);
+        return scatter(node -> shards[node].search(query, limit)).stream()
+                .flatMap(List::stream)
+                .sorted(Comparator.comparingInt((Product product) -> -ProductSearchIndex.score(terms, product.getName(), product.getDescription()))
+                        .thenComparingLong(Product::getId))
+                .limit(limit)
+                .toList();
+    }
+
+    @Override
+    public long count() {
+        return scatter(node -> shards[node].count()).stream().mapToLong(Long::longValue).sum();
+    }
+
+    /**
+     * Версии узлов перемешиваются по очереди, поэтому результат зависит от всего вектора версий и от порядка
+     * в нём; сумма версий переполнялась бы уже при пяти узлах и не менялась бы при встречных сдвигах.
+     */
+    @Override
+    public long catalogVersion() {
+        long version = 0;
+        for (long nodeVersion : scatter(node -> shards[node].catalogVersion())) {
+            version = mix(version ^ nodeVersion);
+        }
+        return version;
+    }
+
+    @Override
+    public CatalogTotals totals() {
+        return scatter(node -> shards[node].totals()).stream().reduce(CatalogTotals.EMPTY, CatalogTotals::merge);
+    }
+
+    @Override
+    public Optional<Product> lookup(long id) {
+        return shard(id).lookup(id);
+    }
+
+    @Override
+    public Product save(Product product) {
+        if (product.getId() == null) {
+            product.setId(ids.next());
+        }
+        return shard(product.getId()).save(product);
+    }
+
+    /**
+     * Пачка делится по владельцам, и узлы сохраняют свои части параллельно.
+     */
+    @Override
+    public List<Product> saveAll(List<Product> batch) {
+        List<List<Integer>> indexes = new ArrayList<>(shards.length);
+        List<List<Product>> parts = new ArrayList<>(shards.length);
+        for (int node = 0; node < shards.length; node++) {
+            indexes.add(new ArrayList<>());
+            parts.add(new ArrayList<>());
+        }
+        for (int i = 0; i < batch.size(); i++) {
+            Product product = batch.get(i);
+            if (product.getId() == null) {
+                product.setId(ids.next());
+            }
+            int owner = owner(product.getId());
+            indexes.get(owner).add(i);
+            parts.get(owner).add(product);
+        }
+
+        List<List<Product>> saved = scatter(node -> parts.get(node).isEmpty() ? List.of() : shards[node].saveAll(parts.get(node)));
+        Product[] result = new Product[batch.size()];
+        for (int node = 0; node < shards.length; node++) {
+            for (int i = 0; i < indexes.get(node).size(); i++) {
+                result[indexes.get(node).get(i)] = saved.get(node).get(i);
+            }
+        }
+        return Arrays.asList(result);
+    }
+
+    @Override
+    public Product update(long id, UnaryOperator<Product> updater) throws ProductNotFoundException {
+        return shard(id).update(id, updater);
+    }
+
+    @Override
+    public Product update(long id, long expectedVersion, UnaryOperator<Product> updater)
+            throws ProductNotFoundException, ProductVersionConflictException {
+        return shard(id).update(id, expectedVersion, updater);
+    }
+
+    @Override
+    public long deleteById(long id) throws ProductNotFoundException {
+        return shard(id).deleteById(id);
+    }
+
+    @PreDestroy
+    public void close() {
+        executor.shutdownNow();
+    }
+
+    private ProductRepository shard(long id) {
+        return shards[owner(id)];
+    }
+
+    /**
+     * Выполняет операцию на всех узлах параллельно и возвращает результаты по номерам узлов.
+     */
+    private <T> List<T> scatter(IntFunction<T> operation) {
+        List<CompletableFuture<T>> futures = new ArrayList<>(shards.length);
+        for (int node = 0; node < shards.length; node++) {
+            int shard = node;
+            futures.add(CompletableFuture.supplyAsync(() -> operation.apply(shard), executor));
+        }
+        try {
+            return futures.stream().map(CompletableFuture::join).toList();
+        } catch (CompletionException e) {
+            throw e.getCause() instanceof RuntimeException cause ? cause : e;
+        }
+    }
+
+    /**
+     * Финальное перемешивание SplitMix64: каждый бит результата зависит от всех битов аргумента.
+     */
+    private static long mix(long value) {
+        value = (value ^ (value >>> 30)) * 0xBF58476D1CE4E5B9L;
+        value = (value ^ (value >>> 27)) * 0x94D049BB133111EBL;
+        return value ^ (value >>> 31);
+    }
+
+    /**
+     * Тот же порядок, в котором хранилища отдают товары для {@link #find}.
+     */
+    private static Comparator<Product> order(ProductQuery query) {
+        Comparator<Product> byId = Comparator.comparingLong(Product::getId);
+        return switch (query.sort()) {
+            case ID -> byId;
+            case PRICE -> Comparator.comparingDouble(Product::getPrice).thenComparing(byId);
+            case NAME -> Comparator.comparing((Product product) -> product.getName().toLowerCase(Locale.ROOT)).thenComparing(byId);
+        };
+    }
+}
@@ -0,0 +1,89 @@
+package ru.er1one.moyskladtask.service;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import ru.er1one.moyskladtask.model.Product;
+import ru.er1one.moyskladtask.model.ProductCacheStats;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.LongFunction;
+
+/**
+ * Ограниченный по размеру кэш товаров по id с вытеснением W-TinyLFU (Caffeine).
+ * <p>
+ * Отсутствующие id тоже кэшируются, но живут не дольше {@code negativeTtl}, чтобы поток запросов
+ * к несуществующим товарам не вытеснял популярные. Записи сбрасываются точечно при каждом изменении товара.
+ * <p>
+ * Загрузка выполняется потоком, пропустившим кэш, вне блокировок Caffeine: внутри
+ * {@code ConcurrentHashMap.compute} только публикуется незавершённая загрузка. Поэтому медленное
+ * хранилище не закрепляет виртуальный поток за несущим, а остальные потоки, запросившие тот же id,
+ * дожидаются результата без повторного обращения к хранилищу. Если запись сбросила id во время
+ * загрузки, загруженное значение в кэш не попадает.
+ */
+@Component
+public class ProductCache {
+
+    private final AsyncCache<Long, Optional<Product>> cache;
+
+    @Autowired
+    public ProductCache(@Value("${product.cache.maximum-size:100000}") long maximumSize,
+                        @Value("${product.cache.negative-ttl:30s}") Duration negativeTtl) {
+        long negativeTtlNanos = negativeTtl.toNanos();
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfter(new Expiry<Long, Optional<Product>>() {
+                    @Override
+                    public long expireAfterCreate(Long id, Optional<Product> product, long currentTime) {
+                        return product.isPresent() ? Long.MAX_VALUE : negativeTtlNanos;
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(Long id, Optional<Product> product, long currentTime, long currentDuration) {
+                        return expireAfterCreate(id, product, currentTime);
+                    }
+
+                    @Override
+                    public long expireAfterRead(Long id, Optional<Product> product, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .recordStats()
+                .buildAsync();
+    }
+
+    public Optional<Product> get(long id, LongFunction<Optional<Product>> loader) {
+        CompletableFuture<Optional<Product>> loading = new CompletableFuture<>();
+        CompletableFuture<Optional<Product>> cached = cache.get(id, (key, executor) -> loading);
+        if (cached == loading) {
+            try {
+                loading.complete(loader.apply(id));
+            } catch (RuntimeException | Error e) {
+                loading.completeExceptionally(e);
+                throw e;
+            }
+        }
+        try {
+            return cached.join().map(Product::copy);
+        } catch (CompletionException e) {
+            throw e.getCause() instanceof RuntimeException cause ? cause : e;
+        }
+    }
+
+    public void invalidate(long id) {
+        cache.synchronous().invalidate(id);
+    }
+
+    public ProductCacheStats stats() {
+        CacheStats stats = cache.synchronous().stats();
+        return new ProductCacheStats(cache.synchronous().estimatedSize(), stats.hitCount(), stats.missCount(),
+                stats.hitRate(), stats.evictionCount());
+    }
+}
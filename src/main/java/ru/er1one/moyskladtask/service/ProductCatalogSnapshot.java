@@ -0,0 +1,174 @@
+package ru.er1one.moyskladtask.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+import ru.er1one.moyskladtask.model.Product;
+import ru.er1one.moyskladtask.repository.ProductRepository;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Iterator;
+import java.util.Optional;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Готовое JSON-представление всего каталога для {@code GET /api/product} вместе со сжатым gzip вариантом.
+ * <p>
+ * Снимок помечен версией каталога и перестраивается лениво: первым чтением после записи, которая
+ * сменила версию. Перестроением занят один поток, а остальные читатели тем временем получают прежний
+ * снимок с его версией, то есть и с его ETag: при постоянных записях каталог сериализуется не чаще,
+ * чем успевает один поток, и чтения его не ждут. Ждут только первого снимка, когда отдавать ещё нечего.
+ * Версия перечитывается уже под блокировкой, поэтому снимок бывает новее своей версии, но не старее —
+ * как и выдача с ETag каталога.
+ * <p>
+ * gzip-вариант сжимается первым запросом, который его принимает, а не при перестроении.
+ * Снимок вместе с gzip-вариантом занимает не больше {@code product.catalog.snapshot.max-size}.
+ * Каталог, который не помещается, не кэшируется до следующей записи, и чтения обслуживаются обычной
+ * сериализацией. Если сверх JSON не помещается только gzip, снимок отдаётся без него.
+ */
+@Component
+public class ProductCatalogSnapshot {
+
+    private final ProductRepository productRepository;
+    private final ObjectMapper objectMapper;
+    private final long maxBytes;
+    private final ReentrantLock rebuildLock = new ReentrantLock();
+    private volatile Snapshot snapshot;
+
+    @Autowired
+    public ProductCatalogSnapshot(ProductRepository productRepository, ObjectMapper objectMapper,
+                                  @Value("${product.catalog.snapshot.max-size:64MB}") DataSize maxSize) {
+        this.productRepository = productRepository;
+        this.objectMapper = objectMapper;
+        this.maxBytes = maxSize.toBytes();
+    }
+
+    /**
+     * Снимок текущей версии каталога или пустой результат, если снимки отключены или каталог не помещается в лимит.
+     */
+    public Optional<Snapshot> current() {
+        if (maxBytes <= 0) {
+            return Optional.empty();
+        }
+        Snapshot cached = snapshot;
+        if (cached == null || cached.version() != productRepository.catalogVersion()) {
+            cached = rebuild(cached);
+        }
+        return cached.json() == null ? Optional.empty() : Optional.of(cached);
+    }
+
+    /**
+     * Перестраивает снимок или, если этим уже занят другой поток, возвращает {@code stale}.
+     */
+    private Snapshot rebuild(Snapshot stale) {
+        if (stale == null) {
+            rebuildLock.lock();
+        } else if (!rebuildLock.tryLock()) {
+            return stale;
+        }
+        try {
+            long version = productRepository.catalogVersion();
+            Snapshot cached = snapshot;
+            if (cached == null || cached.version() != version) {
+                cached = build(version);
+                snapshot = cached;
+            }
+            return cached;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            rebuildLock.unlock();
+        }
+    }
+
+    private Snapshot build(long version) throws IOException {
+        byte[] json = serialize();
+        return json == null ? new Snapshot(version, null, null) : new Snapshot(version, json, maxBytes - json.length);
+    }
+
+    /**
+     * Пишет каталог JSON-массивом, прерываясь, как только вывод превысил лимит.
+     */
+    private byte[] serialize() throws IOException {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        ObjectWriter writer = objectMapper.writerFor(Product.class);
+        try (JsonGenerator generator = objectMapper.createGenerator(buffer);
+             Stream<Product> products = productRepository.streamAll()) {
+            generator.writeStartArray();
+            Iterator<Product> iterator = products.iterator();
+            while (iterator.hasNext()) {
+                writer.writeValue(generator, iterator.next());
+                if (buffer.size() > maxBytes) {
+                    return null;
+                }
+            }
+            generator.writeEndArray();
+        }
+        return buffer.size() > maxBytes ? null : buffer.toByteArray();
+    }
+
+    public static final class Snapshot {
+
+        private final long version;
+        private final byte[] json;
+        private final long maxGzipBytes;
+        private byte[] gzip;
+        private boolean compressed;
+
+        /**
+         * @param gzip тот же JSON, сжатый gzip, или {@code null}, если сжатого варианта нет
+         */
+        public Snapshot(long version, byte[] json, byte[] gzip) {
+            this.version = version;
+            this.json = json;
+            this.maxGzipBytes = 0;
+            this.gzip = gzip;
+            this.compressed = true;
+        }
+
+        private Snapshot(long version, byte[] json, long maxGzipBytes) {
+            this.version = version;
+            this.json = json;
+            this.maxGzipBytes = maxGzipBytes;
+        }
+
+        public long version() {
+            return version;
+        }
+
+        public byte[] json() {
+            return json;
+        }
+
+        /**
+         * Тот же JSON, сжатый gzip, или {@code null}, если сжатый вариант не поместился в лимит. Сжимается
+         * при первом вызове; одновременные вызовы дожидаются его, а не сжимают снимок повторно.
+         */
+        public synchronized byte[] gzip() {
+            if (!compressed) {
+                byte[] compressedJson = compress(json);
+                gzip = compressedJson.length <= maxGzipBytes ? compressedJson : null;
+                compressed = true;
+            }
+            return gzip;
+        }
+
+        private static byte[] compress(byte[] json) {
+            ByteArrayOutputStream buffer = new ByteArrayOutputStream(json.length / 4);
+            try (GZIPOutputStream out = new GZIPOutputStream(buffer)) {
+                out.write(json);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return buffer.toByteArray();
+        }
+    }
+}
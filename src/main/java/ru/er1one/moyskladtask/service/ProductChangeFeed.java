@@ -0,0 +1,198 @@
+package ru.er1one.moyskladtask.service;
+
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import ru.er1one.moyskladtask.model.ProductChange;
+import ru.er1one.moyskladtask.repository.ProductVersions;
+
+import java.io.IOException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Лента изменений каталога с возобновлением по номеру события.
+ * <p>
+ * Последние {@code product.changes.buffer-size} событий хранятся в кольцевом буфере. Публикация только
+ * кладёт событие в буфер и будит поток-рассыльщик, поэтому подписчики не задерживают запись. Рассыльщик
+ * запускает доставку на виртуальном потоке для каждого подписчика, которому есть что отправить; подписчик
+ * без новых событий потока не занимает. Доставку одному подписчику ведёт не больше одного потока, и она
+ * идёт со скоростью его соединения. Отставший больше чем на размер буфера получает
+ * {@link Subscriber#reset(long)} и продолжает с текущего события.
+ * <p>
+ * Номера событий начинаются с {@link ProductVersions#initial()}, поэтому номер, сохранённый клиентом
+ * до перезапуска, не примет чужое событие за продолжение: такой клиент тоже получит {@code reset}.
+ * При параллельных записях одного товара события могут прийти не в порядке записей — их порядок
+ * задаёт {@link ProductChange#version()}.
+ */
+@Component
+public class ProductChangeFeed {
+
+    private final int capacity;
+    private final AtomicReferenceArray<ProductChange> buffer;
+    private final ReentrantLock publishLock = new ReentrantLock();
+    private volatile long head;
+
+    private final Set<Subscription> subscriptions = ConcurrentHashMap.newKeySet();
+    private final ExecutorService delivery = Executors.newVirtualThreadPerTaskExecutor();
+    private final Thread dispatcher;
+    private volatile boolean running = true;
+
+    @Autowired
+    public ProductChangeFeed(@Value("${product.changes.buffer-size:10000}") int capacity) {
+        this.capacity = capacity;
+        this.buffer = new AtomicReferenceArray<>(capacity);
+        this.head = ProductVersions.initial();
+        long initial = head;
+        this.dispatcher = Thread.ofPlatform().name("product-change-dispatcher").daemon().start(() -> dispatch(initial));
+    }
+
+    /**
+     * Присваивает событию следующий номер и добавляет его в ленту.
+     */
+    public ProductChange publish(ProductChange change) {
+        ProductChange published;
+        publishLock.lock();
+        try {
+            long sequence = head + 1;
+            published = change.withSequence(sequence);
+            buffer.set(index(sequence), published);
+            head = sequence;
+        } finally {
+            publishLock.unlock();
+        }
+        LockSupport.unpark(dispatcher);
+        return published;
+    }
+
+    /**
+     * Подписывает на события с номерами больше {@code after}.
+     *
+     * @param after номер последнего полученного события или {@code null}, чтобы получать только новые
+     */
+    public Subscription subscribe(Long after, Subscriber subscriber) {
+        Subscription subscription = new Subscription(subscriber, after == null ? head : after);
+        subscriptions.add(subscription);
+        schedule(subscription);
+        return subscription;
+    }
+
+    @PreDestroy
+    public void close() {
+        running = false;
+        LockSupport.unpark(dispatcher);
+        delivery.shutdownNow();
+        subscriptions.clear();
+    }
+
+    /**
+     * {@code dispatched} — номер на момент создания ленты, а не на момент старта потока: {@code unpark}
+     * ещё не запущенного потока ничего не значит, и события, опубликованные до старта, иначе не разослались бы.
+     */
+    private void dispatch(long dispatched) {
+        while (running) {
+            LockSupport.park(this);
+            long published = head;
+            if (published != dispatched) {
+                dispatched = published;
+                for (Subscription subscription : subscriptions) {
+                    schedule(subscription);
+                }
+            }
+        }
+    }
+
+    private void schedule(Subscription subscription) {
+        if (running && subscription.scheduled.compareAndSet(false, true)) {
+            try {
+                delivery.execute(() -> deliver(subscription));
+            } catch (RejectedExecutionException e) {
+                subscription.close();
+            }
+        }
+    }
+
+    /**
+     * Отправляет подписчику накопившиеся события. Флаг {@code scheduled} снимается только после
+     * повторной проверки, так что событие, опубликованное во время отправки, не теряется.
+     */
+    private void deliver(Subscription subscription) {
+        try {
+            do {
+                drain(subscription);
+                subscription.scheduled.set(false);
+            } while (!subscription.closed && subscription.cursor < head
+                    && subscription.scheduled.compareAndSet(false, true));
+        } catch (IOException | RuntimeException e) {
+            subscription.close();
+        }
+    }
+
+    private void drain(Subscription subscription) throws IOException {
+        long last = head;
+        if (subscription.cursor > last) {
+            subscription.reset(last);
+        }
+        while (!subscription.closed && subscription.cursor < last) {
+            long sequence = subscription.cursor + 1;
+            ProductChange change = buffer.get(index(sequence));
+            if (change == null || change.sequence() != sequence) {
+                subscription.reset(last);
+            } else {
+                subscription.subscriber.send(change);
+                subscription.cursor = sequence;
+            }
+        }
+    }
+
+    private int index(long sequence) {
+        return (int) Long.remainderUnsigned(sequence, capacity);
+    }
+
+    /**
+     * Получатель событий. Методы вызываются последовательно одним потоком доставки и могут блокироваться;
+     * исключение прекращает подписку.
+     */
+    public interface Subscriber {
+
+        void send(ProductChange change) throws IOException;
+
+        /**
+         * Часть событий после последнего полученного уже вытеснена из буфера: состояние каталога нужно
+         * перечитать целиком. Доставка продолжится с событий после {@code sequence}.
+         */
+        void reset(long sequence) throws IOException;
+    }
+
+    public final class Subscription implements AutoCloseable {
+
+        private final Subscriber subscriber;
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+        private volatile boolean closed;
+        private long cursor;
+
+        private Subscription(Subscriber subscriber, long cursor) {
+            this.subscriber = subscriber;
+            this.cursor = cursor;
+        }
+
+        @Override
+        public void close() {
+            closed = true;
+            subscriptions.remove(this);
+        }
+
+        private void reset(long sequence) throws IOException {
+            subscriber.reset(sequence);
+            cursor = sequence;
+        }
+    }
+}
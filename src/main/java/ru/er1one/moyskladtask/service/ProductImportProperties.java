@@ -0,0 +1,21 @@
+package ru.er1one.moyskladtask.service;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.nio.file.Path;
+
+/**
+ * @param file            файл, который {@link ProductImportRunner} импортирует при запуске
+ * @param chunkSize       записей в части: часть разбирается одним потоком и сохраняется одной пачкой
+ * @param parallelism     потоков разбора; 0 — по числу ядер
+ * @param maxErrors       сколько ошибок по записям попадает в отчёт; остальные только считаются
+ * @param maxRecordLength наибольшая длина записи в символах; более длинная запись отклоняется как ошибка
+ */
+@ConfigurationProperties("product.import")
+public record ProductImportProperties(Path file,
+                                      @DefaultValue("5000") int chunkSize,
+                                      @DefaultValue("0") int parallelism,
+                                      @DefaultValue("1000") int maxErrors,
+                                      @DefaultValue("1000000") int maxRecordLength) {
+}
@@ -0,0 +1,63 @@
+package ru.er1one.moyskladtask.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import ru.er1one.moyskladtask.model.ImportReport;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Импортирует {@code product.import.file} при запуске приложения; формат — по расширению файла, см.
+ * {@link ProductImporter.Format#of(Path)}. Ход импорта пишется в лог не чаще раза в несколько секунд.
+ * Вместе с {@code spring.main.web-application-type=none} приложение завершается после импорта: так каталог
+ * загружается из командной строки в хранилище jdbc или в память с журналом.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(prefix = "product.import", name = "file")
+public class ProductImportRunner implements ApplicationRunner {
+
+    private static final long PROGRESS_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(5);
+
+    private final ProductImporter importer;
+    private final ProductImportProperties properties;
+
+    @Autowired
+    public ProductImportRunner(ProductImporter importer, ProductImportProperties properties) {
+        this.importer = importer;
+        this.properties = properties;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) throws IOException {
+        Path file = properties.file();
+        long start = System.nanoTime();
+        long[] lastProgress = {start};
+        ImportReport report;
+        try (InputStream input = Files.newInputStream(file)) {
+            report = importer.importProducts(input, ProductImporter.Format.of(file), (records, imported, failed) -> {
+                long now = System.nanoTime();
+                if (now - lastProgress[0] >= PROGRESS_INTERVAL_NANOS) {
+                    lastProgress[0] = now;
+                    log.info("Импорт {}: записей {}, сохранено {}, отклонено {}", file, records, imported, failed);
+                }
+            });
+        }
+        for (ImportReport.LineError error : report.errors()) {
+            log.warn("Импорт {}, строка {}: {}", file, error.line(), error.error());
+        }
+        if (report.failure() != null) {
+            log.error("Импорт {} остановлен: {}", file, report.failure());
+        }
+        log.info("Импорт {} завершён за {} мс: записей {}, сохранено {}, отклонено {}", file,
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start), report.records(), report.imported(), report.failed());
+    }
+}
@@ -0,0 +1,376 @@
+package ru.er1one.moyskladtask.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import ru.er1one.moyskladtask.exception.ProductValidationException;
+import ru.er1one.moyskladtask.model.ImportReport;
+import ru.er1one.moyskladtask.model.Product;
+import ru.er1one.moyskladtask.model.ProductChange;
+import ru.er1one.moyskladtask.repository.ProductRepository;
+import ru.er1one.moyskladtask.util.ProductCsvParser;
+import ru.er1one.moyskladtask.util.ProductValidator;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.InterruptedIOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Импорт каталога из CSV ({@link ProductCsvParser}) или NDJSON, который читается потоком и в памяти целиком не держится.
+ * <p>
+ * Записи читаются одним потоком и режутся на части по {@code product.import.chunk-size}. Части разбираются
+ * и проверяются {@link ProductValidator} параллельно на {@code product.import.parallelism} потоках, а затем
+ * в порядке файла сохраняются в хранилище — каждая одной пачкой. В работе одновременно не больше двух частей
+ * на поток разбора: чтение ждёт, пока сохранится самая старая из них, а запись длиннее
+ * {@code product.import.max-record-length} символов отклоняется, не читаясь в память, поэтому память
+ * не зависит от размера файла.
+ * <p>
+ * Некорректная запись не останавливает импорт, а попадает в отчёт с номером строки. Отказ хранилища останавливает
+ * импорт, и отчёт описывает уже сохранённое и причину остановки. Исключение бросается только при ошибке чтения
+ * или заголовке CSV без обязательных колонок. Id и версии из файла не используются:
+ * товары создаются заново, как операции {@code create} в {@link ProductService#applyBulk}.
+ */
+@Service
+public class ProductImporter {
+
+    private static final int READ_BUFFER = 1 << 16;
+    private static final char BOM = '\uFEFF';
+
+    public enum Format {
+        CSV,
+        NDJSON;
+
+        /**
+         * Формат по расширению файла: {@code .csv} — CSV, иначе NDJSON.
+         */
+        public static Format of(Path file) {
+            return file.getFileName().toString().toLowerCase(Locale.ROOT).endsWith(".csv") ? CSV : NDJSON;
+        }
+    }
+
+    /**
+     * Получает нарастающие итоги после сохранения каждой части.
+     */
+    @FunctionalInterface
+    public interface Progress {
+
+        Progress NONE = (records, imported, failed) -> {
+        };
+
+        void update(long records, long imported, long failed);
+    }
+
+    private final ProductRepository productRepository;
+    private final ProductCache productCache;
+    private final ProductChangeFeed productChangeFeed;
+    private final ObjectReader productReader;
+    private final int chunkSize;
+    private final int maxInFlight;
+    private final int maxErrors;
+    private final int maxRecordLength;
+    private final ExecutorService parsers;
+    private final Counter importedCounter;
+    private final Counter failedCounter;
+
+    @Autowired
+    public ProductImporter(ProductRepository productRepository, ProductCache productCache, ProductChangeFeed productChangeFeed,
+                           ObjectMapper objectMapper, ProductImportProperties properties, MeterRegistry meterRegistry) {
+        int parallelism = properties.parallelism() > 0 ? properties.parallelism() : Runtime.getRuntime().availableProcessors();
+        this.productRepository = productRepository;
+        this.productCache = productCache;
+        this.productChangeFeed = productChangeFeed;
+        this.productReader = objectMapper.readerFor(Product.class);
+        this.chunkSize = properties.chunkSize();
+        this.maxInFlight = parallelism * 2;
+        this.maxErrors = properties.maxErrors();
+        this.maxRecordLength = properties.maxRecordLength();
+        this.parsers = Executors.newFixedThreadPool(parallelism, Thread.ofPlatform().name("product-import-", 0).daemon().factory());
+        this.importedCounter = Counter.builder("product.import.records").tag("result", "imported").register(meterRegistry);
+        this.failedCounter = Counter.builder("product.import.records").tag("result", "failed").register(meterRegistry);
+    }
+
+    @PreDestroy
+    public void close() {
+        parsers.shutdownNow();
+    }
+
+    /**
+     * Импортирует записи из {@code input} в кодировке UTF-8; поток не закрывается.
+     */
+    public ImportReport importProducts(InputStream input, Format format, Progress progress)
+            throws IOException, ProductValidationException {
+        Records records = new Records(new InputStreamReader(input, StandardCharsets.UTF_8), format == Format.CSV, maxRecordLength);
+        Parser parser = parser(format, records);
+        if (parser == null) {
+            return new ImportReport(0, 0, 0, List.of(), null);
+        }
+
+        Tally tally = new Tally();
+        ArrayDeque<Future<Parsed>> pending = new ArrayDeque<>();
+        try {
+            Chunk chunk;
+            while (tally.failure == null && (chunk = records.nextChunk(chunkSize)) != null) {
+                Chunk submitted = chunk;
+                pending.add(parsers.submit(() -> parse(submitted, parser)));
+                if (pending.size() >= maxInFlight) {
+                    store(await(pending.poll()), tally, progress);
+                }
+            }
+            while (tally.failure == null && !pending.isEmpty()) {
+                store(await(pending.poll()), tally, progress);
+            }
+        } finally {
+            pending.forEach(future -> future.cancel(true));
+        }
+        return new ImportReport(tally.records, tally.imported, tally.failed, List.copyOf(tally.errors), tally.failure);
+    }
+
+    /**
+     * Разборщик записей; для CSV сначала читается заголовок. {@code null} — в CSV нет даже заголовка.
+     */
+    private Parser parser(Format format, Records records) throws IOException, ProductValidationException {
+        if (format == Format.NDJSON) {
+            return record -> {
+                Product product;
+                try {
+                    product = productReader.readValue(record);
+                } catch (IOException e) {
+                    throw new ProductValidationException("Некорректный JSON");
+                }
+                if (product == null) {
+                    throw new ProductValidationException("Запись должна быть JSON-объектом");
+                }
+                return product;
+            };
+        }
+        Record header = records.next();
+        if (header == null) {
+            return null;
+        }
+        if (header.error() != null) {
+            throw new ProductValidationException(header.error());
+        }
+        ProductCsvParser.Columns columns = ProductCsvParser.header(header.text());
+        return record -> ProductCsvParser.parse(columns, record);
+    }
+
+    private static Parsed parse(Chunk chunk, Parser parser) {
+        List<Product> products = new ArrayList<>(chunk.records().size());
+        List<ImportReport.LineError> errors = new ArrayList<>();
+        for (Record record : chunk.records()) {
+            String error = record.error();
+            if (error != null) {
+                errors.add(new ImportReport.LineError(record.line(), error));
+                continue;
+            }
+            try {
+                Product product = parser.parse(record.text());
+                product.setId(null);
+                product.setVersion(null);
+                error = ProductValidator.check(product);
+                if (error == null) {
+                    products.add(product);
+                }
+            } catch (ProductValidationException e) {
+                error = e.getMessage();
+            } catch (RuntimeException e) {
+                error = "Не удалось разобрать запись: " + e.getMessage();
+            }
+            if (error != null) {
+                errors.add(new ImportReport.LineError(record.line(), error));
+            }
+        }
+        return new Parsed(chunk.records().getFirst().line(), chunk.records().size(), products, errors);
+    }
+
+    /**
+     * Сохраняет часть и учитывает её в итогах. Если хранилище отказало, часть в итоги не попадает,
+     * а импорт останавливается с причиной в {@link Tally#failure}: уже сохранённые части остаются в каталоге.
+     */
+    private void store(Parsed parsed, Tally tally, Progress progress) {
+        List<Product> saved;
+        try {
+            saved = parsed.products().isEmpty() ? List.of() : productRepository.saveAll(parsed.products());
+        } catch (RuntimeException e) {
+            tally.failure = "Не удалось сохранить записи со строки " + parsed.firstLine() + ": " + e.getMessage();
+            return;
+        }
+        for (Product product : saved) {
+            productCache.invalidate(product.getId());
+            productChangeFeed.publish(ProductChange.created(product));
+        }
+        tally.records += parsed.records();
+        tally.imported += saved.size();
+        tally.failed += parsed.errors().size();
+        for (int i = 0; i < parsed.errors().size() && tally.errors.size() < maxErrors; i++) {
+            tally.errors.add(parsed.errors().get(i));
+        }
+        importedCounter.increment(saved.size());
+        failedCounter.increment(parsed.errors().size());
+        progress.update(tally.records, tally.imported, tally.failed);
+    }
+
+    private static Parsed await(Future<Parsed> future) throws InterruptedIOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Импорт прерван");
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Не удалось разобрать записи", e.getCause());
+        }
+    }
+
+    @FunctionalInterface
+    private interface Parser {
+        Product parse(String record) throws ProductValidationException;
+    }
+
+    private record Chunk(List<Record> records) {
+    }
+
+    /**
+     * Запись файла: текст или ошибка, из-за которой её не удалось прочитать.
+     *
+     * @param line номер строки, с которой начинается запись
+     */
+    private record Record(long line, String text, String error) {
+    }
+
+    private record Parsed(long firstLine, int records, List<Product> products, List<ImportReport.LineError> errors) {
+    }
+
+    private static final class Tally {
+        private long records;
+        private long imported;
+        private long failed;
+        private final List<ImportReport.LineError> errors = new ArrayList<>();
+        private String failure;
+    }
+
+    /**
+     * Записи файла без пустых строк. Запись CSV с переводом строки внутри кавычек собирается из нескольких строк.
+     * Строка или запись длиннее {@code maxLength} символов в память не читается, а возвращается как ошибка:
+     * иначе одна лишняя кавычка склеила бы в одну запись весь остаток файла.
+     */
+    private static final class Records {
+
+        private final Reader reader;
+        private final boolean csv;
+        private final int maxLength;
+        private final char[] buffer = new char[READ_BUFFER];
+        private int position;
+        private int end;
+        private long line;
+        private boolean overflow;
+
+        Records(Reader reader, boolean csv, int maxLength) {
+            this.reader = reader;
+            this.csv = csv;
+            this.maxLength = maxLength;
+        }
+
+        Record next() throws IOException {
+            String text;
+            do {
+                text = readLine(maxLength);
+                if (text == null) {
+                    return null;
+                }
+            } while (!overflow && text.isBlank());
+            long first = line;
+            if (overflow) {
+                return new Record(first, null, "Строка длиннее " + maxLength + " символов");
+            }
+            boolean quoted = csv && !ProductCsvParser.isComplete(text);
+            if (!quoted) {
+                return new Record(first, text, null);
+            }
+            StringBuilder record = new StringBuilder(text);
+            while (quoted && (text = readLine(maxLength - record.length() - 1)) != null) {
+                if (overflow) {
+                    return new Record(first, null, "Запись в строках " + first + "–" + line + " длиннее "
+                            + maxLength + " символов: вероятно, не закрыта кавычка");
+                }
+                record.append('\n').append(text);
+                quoted = ProductCsvParser.isComplete(text);
+            }
+            return new Record(first, record.toString(), null);
+        }
+
+        Chunk nextChunk(int size) throws IOException {
+            List<Record> records = new ArrayList<>(size);
+            Record record;
+            while (records.size() < size && (record = next()) != null) {
+                records.add(record);
+            }
+            return records.isEmpty() ? null : new Chunk(records);
+        }
+
+        /**
+         * Следующая строка без перевода строки или {@code null} в конце файла. Строку длиннее {@code limit}
+         * пропускает, не сохраняя, и выставляет {@link #overflow}.
+         */
+        private String readLine(int limit) throws IOException {
+            StringBuilder text = new StringBuilder();
+            boolean read = false;
+            overflow = false;
+            while (true) {
+                if (position == end) {
+                    int count = reader.read(buffer, 0, buffer.length);
+                    if (count < 0) {
+                        if (!read) {
+                            return null;
+                        }
+                        break;
+                    }
+                    position = 0;
+                    end = count;
+                    continue;
+                }
+                read = true;
+                int start = position;
+                while (position < end && buffer[position] != '\n') {
+                    position++;
+                }
+                if (!overflow && text.length() + position - start <= limit + 1) {
+                    text.append(buffer, start, position - start);
+                } else {
+                    overflow = true;
+                    text.setLength(0);
+                }
+                if (position < end) {
+                    position++;
+                    break;
+                }
+            }
+            line++;
+            if (!text.isEmpty() && text.charAt(text.length() - 1) == '\r') {
+                text.setLength(text.length() - 1);
+            }
+            if (line == 1 && !text.isEmpty() && text.charAt(0) == BOM) {
+                text.deleteCharAt(0);
+            }
+            if (text.length() > limit) {
+                overflow = true;
+            }
+            return overflow ? "" : text.toString();
+        }
+    }
+}
@@ -4,74 +4,261 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import ru.er1one.moyskladtask.exception.ProductNotFoundException;
 import ru.er1one.moyskladtask.exception.ProductValidationException;
+import ru.er1one.moyskladtask.exception.ProductVersionConflictException;
+import ru.er1one.moyskladtask.model.BulkOperation;
+import ru.er1one.moyskladtask.model.BulkResult;
+import ru.er1one.moyskladtask.model.CatalogStats;
 import ru.er1one.moyskladtask.model.Product;
+import ru.er1one.moyskladtask.model.ProductCacheStats;
+import ru.er1one.moyskladtask.model.ProductChange;
+import ru.er1one.moyskladtask.model.ProductPage;
+import ru.er1one.moyskladtask.model.ProductPatch;
+import ru.er1one.moyskladtask.model.ProductQuery;
 import ru.er1one.moyskladtask.repository.ProductRepository;
+import ru.er1one.moyskladtask.util.ProductCursor;
 import ru.er1one.moyskladtask.util.ProductValidator;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
-import java.util.Map;
+import java.util.Optional;
+import java.util.function.UnaryOperator;
+import java.util.stream.Stream;
 
 @Service
 public class ProductService {
 
+    public static final int MAX_PAGE_SIZE = 1000;
+    public static final int MAX_BULK_SIZE = 10_000;
+
     private final ProductRepository productRepository;
+    private final ProductCache productCache;
+    private final ProductChangeFeed productChangeFeed;
 
     @Autowired
-    public ProductService(ProductRepository productRepository) {
+    public ProductService(ProductRepository productRepository, ProductCache productCache, ProductChangeFeed productChangeFeed) {
         this.productRepository = productRepository;
+        this.productCache = productCache;
+        this.productChangeFeed = productChangeFeed;
     }
 
     public List<Product> getAllProducts() {
         return productRepository.findAll();
     }
 
+    public Stream<Product> streamAllProducts() {
+        return productRepository.streamAll();
+    }
+
+    public List<Product> findProducts(ProductQuery query) {
+        return productRepository.find(query, null, Integer.MAX_VALUE);
+    }
+
+    public ProductPage getProductPage(ProductQuery query, String after, int limit) throws ProductValidationException {
+        validateLimit(limit);
+        List<Product> items = productRepository.find(query, ProductCursor.decode(query.sort(), after), limit + 1);
+        if (items.size() <= limit) {
+            return new ProductPage(items, null);
+        }
+        List<Product> page = items.subList(0, limit);
+        return new ProductPage(page, ProductCursor.encode(query.sort(), page.getLast()));
+    }
+
+    public List<Product> searchProducts(String query, int limit) throws ProductValidationException {
+        validateLimit(limit);
+        return productRepository.search(query, limit);
+    }
+
     public Product getProductById(long id) throws ProductNotFoundException {
-        return productRepository.findById(id);
+        return findProductById(id).orElseThrow(ProductNotFoundException::new);
+    }
+
+    /**
+     * Как {@link #getProductById(long)}, но промах возвращается пустым результатом, а не исключением.
+     */
+    public Optional<Product> findProductById(long id) {
+        return productCache.get(id, productRepository::lookup);
+    }
+
+    public long getCatalogVersion() {
+        return productRepository.catalogVersion();
+    }
+
+    public CatalogStats getCatalogStats(boolean withHistogram) {
+        return CatalogStats.of(productRepository.totals(), withHistogram);
+    }
+
+    public ProductCacheStats getCacheStats() {
+        return productCache.stats();
     }
 
     public Product addProduct(Product product) throws ProductValidationException {
-        ProductValidator.validate(product);
-        return productRepository.save(product);
+        String error = checkNewProduct(product);
+        if (error != null) {
+            throw new ProductValidationException(error);
+        }
+        return addCheckedProduct(product);
+    }
+
+    /**
+     * Проверяет новый товар без исключений: возвращает сообщение о нарушенном правиле или {@code null}.
+     */
+    public String checkNewProduct(Product product) {
+        String error = ProductValidator.check(product);
+        if (error == null && product.getId() != null && !productRepository.acceptsClientIds()) {
+            error = "Id нового товара назначает хранилище";
+        }
+        return error;
+    }
+
+    /**
+     * Сохраняет товар, уже прошедший {@link #checkNewProduct}; повторно он не проверяется.
+     */
+    public Product addCheckedProduct(Product product) {
+        Product savedProduct = productRepository.save(product);
+        productCache.invalidate(savedProduct.getId());
+        productChangeFeed.publish(ProductChange.created(savedProduct));
+        return savedProduct;
     }
 
     public Product updateProduct(long id, Product product) throws ProductNotFoundException, ProductValidationException {
-        Product existingProduct = productRepository.findById(id);
-        ProductValidator.validate(product);
+        return updateProduct(id, product, null);
+    }
+
+    /**
+     * Заменяет поля товара. Если задана {@code expectedVersion}, изменение применяется только к товару
+     * этой версии, иначе бросается {@link ProductVersionConflictException}.
+     */
+    public Product updateProduct(long id, Product product, Long expectedVersion)
+            throws ProductNotFoundException, ProductValidationException, ProductVersionConflictException {
+        Product updatedProduct = update(id, expectedVersion, existingProduct -> {
+            ProductValidator.validate(product);
+            return replaceFields(existingProduct, product);
+        });
+        productCache.invalidate(id);
+        productChangeFeed.publish(ProductChange.updated(updatedProduct));
+        return updatedProduct;
+    }
+
+    public Product updateProduct(long id, ProductPatch patch) throws ProductNotFoundException, ProductValidationException {
+        return updateProduct(id, patch, null);
+    }
+
+    /**
+     * Частично изменяет товар; {@code expectedVersion} — как в {@link #updateProduct(long, Product, Long)}.
+     */
+    public Product updateProduct(long id, ProductPatch patch, Long expectedVersion)
+            throws ProductNotFoundException, ProductValidationException, ProductVersionConflictException {
+        Product updatedProduct = update(id, expectedVersion, existingProduct -> {
+            ProductValidator.validate(patch.applyTo(existingProduct));
+            return existingProduct;
+        });
+        productCache.invalidate(id);
+        productChangeFeed.publish(ProductChange.updated(updatedProduct));
+        return updatedProduct;
+    }
+
+    public void deleteProduct(long id) throws ProductNotFoundException {
+        long version = productRepository.deleteById(id);
+        productCache.invalidate(id);
+        productChangeFeed.publish(ProductChange.deleted(id, version));
+    }
+
+    /**
+     * Выполняет пакет операций. Сначала все операции проверяются за один проход, затем
+     * создаваемые товары сохраняются одной пачкой, а изменения и удаления применяются в порядке запроса.
+     * Ошибка в одной операции не отменяет остальные — результат возвращается для каждой.
+     */
+    public List<BulkResult> applyBulk(List<BulkOperation> operations) throws ProductValidationException {
+        if (operations.size() > MAX_BULK_SIZE) {
+            throw new ProductValidationException("Пакет не может содержать больше " + MAX_BULK_SIZE + " операций");
+        }
+
+        BulkResult[] results = new BulkResult[operations.size()];
+        List<Product> created = new ArrayList<>();
+        List<Integer> createdIndexes = new ArrayList<>();
+        for (int i = 0; i < operations.size(); i++) {
+            BulkOperation operation = operations.get(i);
+            try {
+                validate(operation);
+            } catch (ProductValidationException e) {
+                results[i] = BulkResult.failure(i, BulkResult.Status.INVALID, operation == null ? null : operation.id(), e.getMessage());
+                continue;
+            }
+            if (operation.action() == BulkOperation.Action.CREATE) {
+                Product product = operation.product().copy();
+                product.setId(null);
+                created.add(product);
+                createdIndexes.add(i);
+            }
+        }
+
+        List<Product> saved = productRepository.saveAll(created);
+        for (int i = 0; i < saved.size(); i++) {
+            int index = createdIndexes.get(i);
+            long id = saved.get(i).getId();
+            productCache.invalidate(id);
+            productChangeFeed.publish(ProductChange.created(saved.get(i)));
+            results[index] = BulkResult.success(index, BulkResult.Status.CREATED, id);
+        }
+
+        for (int i = 0; i < results.length; i++) {
+            if (results[i] != null) {
+                continue;
+            }
+            BulkOperation operation = operations.get(i);
+            long id = operation.id();
+            try {
+                if (operation.action() == BulkOperation.Action.UPDATE) {
+                    Product updated = productRepository.update(id, existingProduct -> replaceFields(existingProduct, operation.product()));
+                    productCache.invalidate(id);
+                    productChangeFeed.publish(ProductChange.updated(updated));
+                    results[i] = BulkResult.success(i, BulkResult.Status.UPDATED, id);
+                } else {
+                    long version = productRepository.deleteById(id);
+                    productCache.invalidate(id);
+                    productChangeFeed.publish(ProductChange.deleted(id, version));
+                    results[i] = BulkResult.success(i, BulkResult.Status.DELETED, id);
+                }
+            } catch (ProductNotFoundException e) {
+                results[i] = BulkResult.failure(i, BulkResult.Status.NOT_FOUND, id, "Товар не найден");
+            }
+        }
+        return Arrays.asList(results);
+    }
+
+    private Product update(long id, Long expectedVersion, UnaryOperator<Product> updater) {
+        return expectedVersion == null
+                ? productRepository.update(id, updater)
+                : productRepository.update(id, expectedVersion, updater);
+    }
+
+    private static void validate(BulkOperation operation) throws ProductValidationException {
+        if (operation == null || operation.action() == null) {
+            throw new ProductValidationException("Не указано действие");
+        }
+        if (operation.action() != BulkOperation.Action.CREATE && operation.id() == null) {
+            throw new ProductValidationException("Не указан id товара");
+        }
+        if (operation.action() != BulkOperation.Action.DELETE) {
+            if (operation.product() == null) {
+                throw new ProductValidationException("Не указан товар");
+            }
+            ProductValidator.validate(operation.product());
+        }
+    }
+
+    private static Product replaceFields(Product existingProduct, Product product) {
         existingProduct.setName(product.getName());
         existingProduct.setDescription(product.getDescription());
         existingProduct.setPrice(product.getPrice());
         existingProduct.setInStock(product.getInStock());
-        return productRepository.save(existingProduct);
-    }
-
-    public Product updateProduct(long id, Map<String, Object> updates) throws ProductNotFoundException, ProductValidationException {
-        Product existingProduct = productRepository.findById(id);
-
-        updates.forEach((key, value) -> {
-            switch (key) {
-                case "name":
-                    existingProduct.setName((String) value);
-                    break;
-                case "description":
-                    existingProduct.setDescription((String) value);
-                    break;
-                case "price":
-                    existingProduct.setPrice((Double) value);
-                    break;
-                case "inStock":
-                    existingProduct.setInStock((Boolean) value);
-                    break;
-                default:
-                    throw new ProductValidationException("Неверное поле: " + key);
-            }
-        });
-
-        ProductValidator.validate(existingProduct);
-        return productRepository.save(existingProduct);
+        return existingProduct;
     }
 
-    public void deleteProduct(long id) throws ProductNotFoundException {
-        productRepository.deleteById(id);
+    private static void validateLimit(int limit) throws ProductValidationException {
+        if (limit < 1 || limit > MAX_PAGE_SIZE) {
+            throw new ProductValidationException("Размер страницы должен быть от 1 до " + MAX_PAGE_SIZE);
+        }
     }
 }
-
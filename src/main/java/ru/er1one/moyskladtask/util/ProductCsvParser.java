@@ -0,0 +1,151 @@
+package ru.er1one.moyskladtask.util;
+
+import lombok.experimental.UtilityClass;
+import ru.er1one.moyskladtask.exception.ProductValidationException;
+import ru.er1one.moyskladtask.model.Product;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Разбор CSV с товарами по RFC 4180. Первая строка — заголовок с колонками {@code name} и {@code price}
+ * и необязательными {@code description} и {@code inStock} в любом порядке; прочие колонки пропускаются.
+ * Разделитель — запятая или точка с запятой, если заголовок разделён ею; в цене допускается десятичная запятая.
+ * Поле в кавычках может содержать разделители, переводы строк и удвоенные кавычки.
+ */
+@UtilityClass
+public class ProductCsvParser {
+
+    /**
+     * Номера колонок из заголовка; -1 — колонки нет.
+     */
+    public record Columns(char separator, int name, int description, int price, int inStock) {
+    }
+
+    public Columns header(String line) throws ProductValidationException {
+        char separator = line.indexOf(',') < 0 && line.indexOf(';') >= 0 ? ';' : ',';
+        List<String> fields = split(line, separator);
+        int name = -1;
+        int description = -1;
+        int price = -1;
+        int inStock = -1;
+        for (int i = 0; i < fields.size(); i++) {
+            switch (fields.get(i).trim().toLowerCase(Locale.ROOT)) {
+                case "name" -> name = i;
+                case "description" -> description = i;
+                case "price" -> price = i;
+                case "instock" -> inStock = i;
+                default -> {
+                }
+            }
+        }
+        if (name < 0 || price < 0) {
+            throw new ProductValidationException("В заголовке CSV должны быть колонки name и price");
+        }
+        return new Columns(separator, name, description, price, inStock);
+    }
+
+    /**
+     * Товар из записи; недостающие в конце записи поля считаются пустыми. Правила товара не проверяются —
+     * это дело {@link ProductValidator}.
+     */
+    public Product parse(Columns columns, String record) throws ProductValidationException {
+        List<String> fields = split(record, columns.separator());
+        Product product = new Product();
+        product.setName(field(fields, columns.name()));
+        String description = field(fields, columns.description());
+        if (description != null) {
+            product.setDescription(description);
+        }
+        product.setPrice(price(field(fields, columns.price())));
+        product.setInStock(inStock(field(fields, columns.inStock())));
+        return product;
+    }
+
+    /**
+     * Закрыты ли в записи все кавычки. Если нет, перевод строки находится внутри поля
+     * и запись продолжается на следующей строке.
+     */
+    public boolean isComplete(CharSequence record) {
+        int quotes = 0;
+        for (int i = 0; i < record.length(); i++) {
+            if (record.charAt(i) == '"') {
+                quotes++;
+            }
+        }
+        return quotes % 2 == 0;
+    }
+
+    private static List<String> split(String record, char separator) throws ProductValidationException {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        int length = record.length();
+        int i = 0;
+        while (true) {
+            field.setLength(0);
+            if (i < length && record.charAt(i) == '"') {
+                i++;
+                while (true) {
+                    if (i >= length) {
+                        throw new ProductValidationException("Незакрытые кавычки");
+                    }
+                    char c = record.charAt(i++);
+                    if (c != '"') {
+                        field.append(c);
+                    } else if (i < length && record.charAt(i) == '"') {
+                        field.append('"');
+                        i++;
+                    } else {
+                        break;
+                    }
+                }
+                if (i < length && record.charAt(i) != separator) {
+                    throw new ProductValidationException("Лишние символы после закрывающей кавычки");
+                }
+            } else {
+                int end = record.indexOf(separator, i);
+                if (end < 0) {
+                    end = length;
+                }
+                field.append(record, i, end);
+                i = end;
+            }
+            fields.add(field.toString());
+            if (i >= length) {
+                return fields;
+            }
+            i++;
+        }
+    }
+
+    private static String field(List<String> fields, int column) {
+        return column < 0 || column >= fields.size() ? null : fields.get(column);
+    }
+
+    private static Double price(String value) throws ProductValidationException {
+        if (value == null || value.isBlank()) {
+            return null;
+        }
+        try {
+            double price = Double.parseDouble(value.trim().replace(',', '.'));
+            if (Double.isFinite(price)) {
+                return price;
+            }
+        } catch (NumberFormatException e) {
+            // сообщение ниже
+        }
+        throw new ProductValidationException("Некорректная цена: " + value);
+    }
+
+    private static Boolean inStock(String value) throws ProductValidationException {
+        if (value == null || value.isBlank()) {
+            return Boolean.FALSE;
+        }
+        return switch (value.trim().toLowerCase(Locale.ROOT)) {
+            case "true", "1" -> Boolean.TRUE;
+            case "false", "0" -> Boolean.FALSE;
+            default -> throw new ProductValidationException("Некорректное значение inStock: " + value);
+        };
+    }
+}
@@ -0,0 +1,69 @@
+package ru.er1one.moyskladtask.util;
+
+import lombok.experimental.UtilityClass;
+import ru.er1one.moyskladtask.exception.ProductValidationException;
+import ru.er1one.moyskladtask.model.Product;
+import ru.er1one.moyskladtask.model.ProductSort;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Кодирует позицию в каталоге в непрозрачный для клиента курсор.
+ * Позиция включает id и значение поля сортировки последнего отданного товара.
+ */
+@UtilityClass
+public class ProductCursor {
+
+    private final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+    private final Base64.Decoder DECODER = Base64.getUrlDecoder();
+
+    public String encode(ProductSort sort, Product last) {
+        byte[] bytes = switch (sort) {
+            case ID -> ByteBuffer.allocate(Long.BYTES)
+                    .putLong(last.getId())
+                    .array();
+            case PRICE -> ByteBuffer.allocate(Long.BYTES + Double.BYTES)
+                    .putLong(last.getId())
+                    .putDouble(last.getPrice())
+                    .array();
+            case NAME -> {
+                byte[] name = last.getName().getBytes(StandardCharsets.UTF_8);
+                yield ByteBuffer.allocate(Long.BYTES + name.length)
+                        .putLong(last.getId())
+                        .put(name)
+                        .array();
+            }
+        };
+        return ENCODER.encodeToString(bytes);
+    }
+
+    public Product decode(ProductSort sort, String cursor) throws ProductValidationException {
+        if (cursor == null || cursor.isEmpty()) {
+            return null;
+        }
+        try {
+            ByteBuffer buffer = ByteBuffer.wrap(DECODER.decode(cursor));
+            Product position = new Product();
+            position.setId(buffer.getLong());
+            switch (sort) {
+                case ID -> {
+                }
+                case PRICE -> position.setPrice(buffer.getDouble());
+                case NAME -> {
+                    byte[] name = new byte[buffer.remaining()];
+                    buffer.get(name);
+                    position.setName(new String(name, StandardCharsets.UTF_8));
+                }
+            }
+            if (buffer.hasRemaining()) {
+                throw new ProductValidationException("Неверный курсор");
+            }
+            return position;
+        } catch (IllegalArgumentException | BufferUnderflowException e) {
+            throw new ProductValidationException("Неверный курсор", e);
+        }
+    }
+}
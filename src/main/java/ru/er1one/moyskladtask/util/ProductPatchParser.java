@@ -0,0 +1,92 @@
+package ru.er1one.moyskladtask.util;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import lombok.experimental.UtilityClass;
+import ru.er1one.moyskladtask.exception.ProductValidationException;
+import ru.er1one.moyskladtask.model.ProductPatch;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Читает тело PATCH в {@link ProductPatch} прямо из потока токенов, без промежуточного дерева или карты.
+ * Цена принимается любым JSON-числом, поэтому {@code 100} и {@code 100.0} равнозначны; значение
+ * другого типа, неизвестное поле или некорректный JSON дают {@link ProductValidationException}.
+ */
+@UtilityClass
+public class ProductPatchParser {
+
+    public ProductPatch parse(JsonFactory factory, InputStream body) throws IOException, ProductValidationException {
+        try (JsonParser parser = factory.createParser(body)) {
+            return parse(parser);
+        } catch (JsonProcessingException e) {
+            throw new ProductValidationException("Некорректный JSON", e);
+        }
+    }
+
+    public ProductPatch parse(JsonParser parser) throws IOException, ProductValidationException {
+        if (parser.nextToken() != JsonToken.START_OBJECT) {
+            throw new ProductValidationException("Изменение товара должно быть JSON-объектом");
+        }
+        int fields = 0;
+        String name = null;
+        String description = null;
+        Double price = null;
+        Boolean inStock = null;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            JsonToken value = parser.nextToken();
+            switch (field) {
+                case "name" -> {
+                    name = text(parser, value, field);
+                    fields |= ProductPatch.NAME;
+                }
+                case "description" -> {
+                    description = text(parser, value, field);
+                    fields |= ProductPatch.DESCRIPTION;
+                }
+                case "price" -> {
+                    price = number(parser, value, field);
+                    fields |= ProductPatch.PRICE;
+                }
+                case "inStock" -> {
+                    inStock = bool(value, field);
+                    fields |= ProductPatch.IN_STOCK;
+                }
+                default -> throw new ProductValidationException("Неверное поле: " + field);
+            }
+        }
+        if (parser.nextToken() != null) {
+            throw new ProductValidationException("Лишние данные после JSON-объекта");
+        }
+        return new ProductPatch(fields, name, description, price, inStock);
+    }
+
+    private static String text(JsonParser parser, JsonToken value, String field) throws IOException {
+        return switch (value) {
+            case VALUE_NULL -> null;
+            case VALUE_STRING -> parser.getText();
+            default -> throw new ProductValidationException("Поле " + field + " должно быть строкой");
+        };
+    }
+
+    private static Double number(JsonParser parser, JsonToken value, String field) throws IOException {
+        return switch (value) {
+            case VALUE_NULL -> null;
+            case VALUE_NUMBER_INT, VALUE_NUMBER_FLOAT -> parser.getDoubleValue();
+            default -> throw new ProductValidationException("Поле " + field + " должно быть числом");
+        };
+    }
+
+    private static Boolean bool(JsonToken value, String field) {
+        return switch (value) {
+            case VALUE_NULL -> null;
+            case VALUE_TRUE -> Boolean.TRUE;
+            case VALUE_FALSE -> Boolean.FALSE;
+            default -> throw new ProductValidationException("Поле " + field + " должно быть логическим значением");
+        };
+    }
+}
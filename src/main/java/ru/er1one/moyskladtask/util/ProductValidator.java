@@ -1,5 +1,7 @@
 package ru.er1one.moyskladtask.util;
 
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Metrics;
 import lombok.experimental.UtilityClass;
 import ru.er1one.moyskladtask.exception.ProductValidationException;
 import ru.er1one.moyskladtask.model.Product;
@@ -7,34 +9,80 @@ import ru.er1one.moyskladtask.model.Product;
 @UtilityClass
 public class ProductValidator {
 
+    /**
+     * Наибольшая цена в рублях. В копейках она далека от предела {@code long}, поэтому итоги каталога
+     * ({@link ru.er1one.moyskladtask.model.CatalogTotals}) считаются точно.
+     */
+    public static final double MAX_PRICE = 1_000_000_000;
+
+    /**
+     * Отказы по правилам ({@code product.validation.failures}, тег {@code rule}). Валидатор статический,
+     * поэтому счётчики регистрируются в {@link Metrics#globalRegistry}, куда Spring Boot добавляет свой реестр.
+     */
+    private static final String FAILURES = "product.validation.failures";
+    private static final Counter NAME_EMPTY = Metrics.counter(FAILURES, "rule", "name.empty");
+    private static final Counter NAME_TOO_LONG = Metrics.counter(FAILURES, "rule", "name.too-long");
+    private static final Counter DESCRIPTION_TOO_LONG = Metrics.counter(FAILURES, "rule", "description.too-long");
+    private static final Counter PRICE_MISSING = Metrics.counter(FAILURES, "rule", "price.missing");
+    private static final Counter PRICE_NEGATIVE = Metrics.counter(FAILURES, "rule", "price.negative");
+    private static final Counter PRICE_TOO_LARGE = Metrics.counter(FAILURES, "rule", "price.too-large");
+
     public void validate(Product product) throws ProductValidationException {
-        validateName(product.getName());
-        validateDescription(product.getDescription());
-        validatePrice(product.getPrice());
+        String error = check(product);
+        if (error != null) {
+            throw new ProductValidationException(error);
+        }
+    }
+
+    /**
+     * Проверяет товар без исключений: возвращает сообщение о первом нарушенном правиле или {@code null}.
+     * Сообщения — константы, поэтому отказ ничего не аллоцирует.
+     */
+    public String check(Product product) {
+        String error = checkName(product.getName());
+        if (error == null) {
+            error = checkDescription(product.getDescription());
+        }
+        if (error == null) {
+            error = checkPrice(product.getPrice());
+        }
+        return error;
     }
 
-    private void validateName(String name) throws ProductValidationException {
+    private static String checkName(String name) {
         if (name == null || name.isEmpty() || name.trim().isEmpty()) {
-            throw new ProductValidationException("Название товара не может быть пустым");
+            NAME_EMPTY.increment();
+            return "Название товара не может быть пустым";
         }
         else if (name.length() > 255) {
-            throw new ProductValidationException("Название товара не может превышать 255 символов");
+            NAME_TOO_LONG.increment();
+            return "Название товара не может превышать 255 символов";
         }
+        return null;
     }
 
-    private static void validateDescription(String description) throws ProductValidationException {
+    private static String checkDescription(String description) {
         if (description != null && description.length() > 4096) {
-            throw new ProductValidationException("Описание товара не может превышать 4096 символов");
+            DESCRIPTION_TOO_LONG.increment();
+            return "Описание товара не может превышать 4096 символов";
         }
+        return null;
     }
 
-    private static void validatePrice(Double price) throws ProductValidationException {
+    private static String checkPrice(Double price) {
         if (price == null) {
-            throw new ProductValidationException("Цена товара не может быть пустой");
+            PRICE_MISSING.increment();
+            return "Цена товара не может быть пустой";
         }
         if (price < 0) {
-            throw new ProductValidationException("Цена товара не может быть отрицательной");
+            PRICE_NEGATIVE.increment();
+            return "Цена товара не может быть отрицательной";
+        }
+        if (!(price <= MAX_PRICE)) {
+            PRICE_TOO_LARGE.increment();
+            return "Цена товара не может превышать 1 000 000 000";
         }
+        return null;
     }
 
 }
@@ -0,0 +1,31 @@
+-- Шаг последовательностей должен совпадать с JdbcProductRepository.ID_BLOCK_SIZE:
+-- приложение резервирует id и версии блоками и выдаёт их без обращения к базе.
+CREATE SEQUENCE IF NOT EXISTS product_id_seq START WITH 1 INCREMENT BY 50;
+CREATE SEQUENCE IF NOT EXISTS product_version_seq START WITH 1 INCREMENT BY 50;
+
+CREATE TABLE IF NOT EXISTS product (
+    id          BIGINT PRIMARY KEY,
+    name        VARCHAR(255)     NOT NULL,
+    sort_name   VARCHAR(255)     NOT NULL,
+    description VARCHAR(4096),
+    price       DOUBLE PRECISION NOT NULL,
+    in_stock    BOOLEAN          NOT NULL DEFAULT FALSE,
+    version     BIGINT           NOT NULL DEFAULT 0
+);
+
+ALTER TABLE product ADD COLUMN IF NOT EXISTS version BIGINT NOT NULL DEFAULT 0;
+
+-- Версия каталога — сумма счётчиков: каждая пишущая транзакция последним оператором увеличивает один
+-- из них, выбранный случайно. Число строк должно совпадать с JdbcProductRepository.CATALOG_STRIPES.
+CREATE TABLE IF NOT EXISTS product_catalog (
+    id      INT PRIMARY KEY,
+    version BIGINT NOT NULL
+);
+
+INSERT INTO product_catalog (id, version)
+SELECT stripes.id, 0 FROM (VALUES (0),(1),(2),(3),(4),(5),(6),(7),(8),(9),(10),(11),(12),(13),(14),(15)) AS stripes (id)
+WHERE NOT EXISTS (SELECT 1 FROM product_catalog c WHERE c.id = stripes.id);
+
+CREATE INDEX IF NOT EXISTS product_price_idx ON product (price, id);
+CREATE INDEX IF NOT EXISTS product_sort_name_idx ON product (sort_name, id);
+CREATE INDEX IF NOT EXISTS product_in_stock_idx ON product (in_stock, id);
@@ -0,0 +1,134 @@
+package ru.er1one.moyskladtask;
+
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import ru.er1one.moyskladtask.repository.MeteredProductRepository;
+import ru.er1one.moyskladtask.repository.ProductRepository;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Сравнивает обработку запросов пулом потоков Tomcat и виртуальными потоками при
+ * {@value #CONNECTIONS} одновременных соединениях и медленном хранилище: каждое обращение
+ * к {@link ProductRepository} задерживается на {@link #STORAGE_LATENCY}. Допуск запросов отключён:
+ * все соединения идут с одного адреса, и иначе сравнивались бы отказы фильтра, а не способы исполнения.
+ * <pre>
+ * ulimit -n 65536
+ * mvn test-compile exec:java -Dexec.classpathScope=test \
+ *     -Dexec.mainClass=ru.er1one.moyskladtask.ExecutionModeLoadComparison
+ * </pre>
+ */
+public class ExecutionModeLoadComparison {
+
+    private static final int CONNECTIONS = 10_000;
+    private static final int ROUNDS = 3;
+    private static final Duration STORAGE_LATENCY = Duration.ofMillis(100);
+    private static final Duration REQUEST_TIMEOUT = Duration.ofSeconds(60);
+
+    public static void main(String[] args) throws Exception {
+        for (boolean virtual : new boolean[]{false, true}) {
+            try (ConfigurableApplicationContext context = start(virtual)) {
+                int port = context.getEnvironment().getRequiredProperty("local.server.port", Integer.class);
+                for (int round = 0; round < ROUNDS; round++) {
+                    report(virtual ? "virtual" : "platform", round, run(URI.create("http://localhost:" + port + "/api/product?limit=20")));
+                }
+            }
+        }
+    }
+
+    private static ConfigurableApplicationContext start(boolean virtual) {
+        return new SpringApplicationBuilder(Application.class)
+                .properties("server.port=0",
+                        "spring.threads.virtual.enabled=" + virtual,
+                        "product.admission.enabled=false",
+                        "server.tomcat.max-connections=" + (CONNECTIONS + 1_000))
+                .initializers(context -> context.getBeanFactory().addBeanPostProcessor(new BeanPostProcessor() {
+                    @Override
+                    public Object postProcessAfterInitialization(Object bean, String beanName) {
+                        return bean instanceof ProductRepository repository && !(bean instanceof MeteredProductRepository)
+                                ? slow(repository) : bean;
+                    }
+                }))
+                .run();
+    }
+
+    private static ProductRepository slow(ProductRepository repository) {
+        return (ProductRepository) Proxy.newProxyInstance(ProductRepository.class.getClassLoader(),
+                new Class<?>[]{ProductRepository.class}, (proxy, method, arguments) -> {
+                    if (method.getDeclaringClass() == ProductRepository.class) {
+                        Thread.sleep(STORAGE_LATENCY);
+                    }
+                    try {
+                        return method.invoke(repository, arguments);
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    }
+                });
+    }
+
+    /**
+     * Отправляет {@value #CONNECTIONS} запросов одновременно и возвращает задержки успешных в миллисекундах.
+     */
+    private static Result run(URI uri) throws Exception {
+        HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+        HttpRequest request = HttpRequest.newBuilder(uri).timeout(REQUEST_TIMEOUT).build();
+        long start = System.nanoTime();
+        List<Future<Long>> futures = new ArrayList<>(CONNECTIONS);
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < CONNECTIONS; i++) {
+                futures.add(executor.submit(() -> {
+                    long sent = System.nanoTime();
+                    HttpResponse<Void> response = client.send(request, HttpResponse.BodyHandlers.discarding());
+                    return response.statusCode() == 200 ? (System.nanoTime() - sent) / 1_000_000 : -1;
+                }));
+            }
+        }
+        long elapsed = System.nanoTime() - start;
+
+        long[] latencies = new long[CONNECTIONS];
+        int succeeded = 0;
+        for (Future<Long> future : futures) {
+            try {
+                long latency = future.get();
+                if (latency >= 0) {
+                    latencies[succeeded++] = latency;
+                }
+            } catch (Exception e) {
+                // Отказ соединения или тайм-аут считается неуспешным запросом
+            }
+        }
+        return new Result(Arrays.copyOf(latencies, succeeded), elapsed);
+    }
+
+    private static void report(String mode, int round, Result result) {
+        long[] latencies = result.latencies();
+        Arrays.sort(latencies);
+        double seconds = result.elapsedNanos() / 1e9;
+        System.out.printf("%-8s #%d  ok %5d/%d  %8.0f rps  p50 %6d ms  p99 %6d ms  max %6d ms%n",
+                mode, round, latencies.length, CONNECTIONS, latencies.length / seconds,
+                percentile(latencies, 0.50), percentile(latencies, 0.99), percentile(latencies, 1.0));
+    }
+
+    private static long percentile(long[] sorted, double quantile) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        return sorted[Math.min(sorted.length - 1, (int) Math.ceil(quantile * sorted.length) - 1)];
+    }
+
+    private record Result(long[] latencies, long elapsedNanos) {
+    }
+}
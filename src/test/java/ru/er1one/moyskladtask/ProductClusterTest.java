@@ -0,0 +1,181 @@
+package ru.er1one.moyskladtask;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.server.PortInUseException;
+import org.springframework.context.ConfigurableApplicationContext;
+import ru.er1one.moyskladtask.model.Product;
+import ru.er1one.moyskladtask.model.ProductPage;
+import ru.er1one.moyskladtask.model.ProductShardStats;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Три узла кластера в одном процессе, каждый на своём порту со своим хранилищем в памяти.
+ * <p>
+ * Состав кластера нужен узлам при запуске, поэтому порты выбираются заранее. Выбранный порт до запуска
+ * может занять другой процесс; тогда кластер запускается заново на других портах.
+ */
+public class ProductClusterTest {
+
+    private static final int NODES = 3;
+    private static final int PRODUCTS = 300;
+    private static final int START_ATTEMPTS = 5;
+
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+    private static final HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+    private static final List<ConfigurableApplicationContext> contexts = new ArrayList<>();
+    private static final List<String> nodes = new ArrayList<>();
+
+    @BeforeAll
+    public static void startCluster() throws IOException {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                start();
+                return;
+            } catch (RuntimeException e) {
+                stopCluster();
+                if (attempt == START_ATTEMPTS || !portInUse(e)) {
+                    throw e;
+                }
+            }
+        }
+    }
+
+    @AfterAll
+    public static void stopCluster() {
+        contexts.forEach(ConfigurableApplicationContext::close);
+        contexts.clear();
+        nodes.clear();
+    }
+
+    /**
+     * Настройки передаются аргументами командной строки: они главнее {@code server.port} из application.yaml.
+     */
+    private static void start() throws IOException {
+        for (int node = 0; node < NODES; node++) {
+            try (ServerSocket socket = new ServerSocket(0)) {
+                nodes.add("http://localhost:" + socket.getLocalPort());
+            }
+        }
+        for (int node = 0; node < NODES; node++) {
+            contexts.add(new SpringApplicationBuilder(Application.class)
+                    .run("--server.port=" + URI.create(nodes.get(node)).getPort(),
+                            "--product.cluster.enabled=true",
+                            "--product.cluster.node-id=" + node,
+                            "--product.cluster.nodes=" + String.join(",", nodes)));
+        }
+    }
+
+    private static boolean portInUse(Throwable error) {
+        for (Throwable cause = error; cause != null; cause = cause.getCause()) {
+            if (cause instanceof PortInUseException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Test
+    public void testCatalogIsShardedAndServedByEveryNode() throws Exception {
+        List<Map<String, Object>> operations = IntStream.range(0, PRODUCTS)
+                .mapToObj(i -> Map.<String, Object>of("action", "create", "product", product("Товар " + i, 1 + i % 100)))
+                .toList();
+        JsonNode results = json(send(0, "POST", "/api/product/bulk", operations), 200);
+        Set<Long> ids = new HashSet<>();
+        results.forEach(result -> ids.add(result.get("id").asLong()));
+        assertEquals(PRODUCTS, ids.size());
+
+        long stored = 0;
+        for (int node = 0; node < NODES; node++) {
+            assertEquals(403, send(node, "DELETE", "/internal/product/" + ids.iterator().next(), null).statusCode());
+            ProductShardStats stats = objectMapper.treeToValue(json(send(node, "GET", "/internal/product/stats", null,
+                    "X-Product-Forwarded", "0"), 200), ProductShardStats.class);
+            assertTrue(stats.count() > 0, "Узлу " + node + " не досталось товаров");
+            stored += stats.count();
+        }
+        assertEquals(PRODUCTS, stored);
+
+        for (long id : ids) {
+            int node = (int) (id % NODES);
+            assertEquals(200, send(node, "GET", "/api/product/" + id, null).statusCode());
+        }
+
+        List<Product> catalog = objectMapper.convertValue(json(send(1, "GET", "/api/product", null), 200), new TypeReference<>() {
+        });
+        assertEquals(ids, catalog.stream().map(Product::getId).collect(Collectors.toSet()));
+        assertEquals(catalog.stream().sorted(Comparator.comparing(Product::getId)).toList(), catalog);
+
+        List<Product> byPrice = new ArrayList<>();
+        String after = "";
+        do {
+            ProductPage page = objectMapper.treeToValue(
+                    json(send(2, "GET", "/api/product?limit=40&sort=price&after=" + after, null), 200), ProductPage.class);
+            byPrice.addAll(page.items());
+            after = page.nextCursor();
+        } while (after != null);
+        assertEquals(PRODUCTS, byPrice.size());
+        assertEquals(byPrice.stream().sorted(Comparator.comparing(Product::getPrice).thenComparing(Product::getId)).toList(), byPrice);
+    }
+
+    @Test
+    public void testProductIsChangedThroughAnyNode() throws Exception {
+        long id = json(send(1, "POST", "/api/product", product("Чайник", 10)), 201).get("id").asLong();
+
+        HttpResponse<byte[]> read = send(0, "GET", "/api/product/" + id, null);
+        String etag = read.headers().firstValue("ETag").orElseThrow();
+        HttpResponse<byte[]> patched = send(2, "PATCH", "/api/product/" + id, Map.of("price", 12.5), "If-Match", etag);
+        assertEquals(200, patched.statusCode());
+        assertEquals(412, send(1, "PATCH", "/api/product/" + id, Map.of("price", 13), "If-Match", etag).statusCode());
+
+        for (int node = 0; node < NODES; node++) {
+            assertEquals(12.5, json(send(node, "GET", "/api/product/" + id, null), 200).get("price").asDouble());
+        }
+
+        assertEquals(204, send(2, "DELETE", "/api/product/" + id, null).statusCode());
+        for (int node = 0; node < NODES; node++) {
+            assertEquals(404, send(node, "GET", "/api/product/" + id, null).statusCode());
+        }
+    }
+
+    private static Map<String, Object> product(String name, double price) {
+        return Map.of("name", name, "description", "Описание: " + name, "price", price, "inStock", true);
+    }
+
+    private static HttpResponse<byte[]> send(int node, String method, String path, Object body, String... headers) throws Exception {
+        HttpRequest.Builder request = HttpRequest.newBuilder(URI.create(nodes.get(node) + path))
+                .header("Content-Type", "application/json")
+                .method(method, body == null
+                        ? HttpRequest.BodyPublishers.noBody()
+                        : HttpRequest.BodyPublishers.ofByteArray(objectMapper.writeValueAsBytes(body)));
+        if (headers.length > 0) {
+            request.headers(headers);
+        }
+        return client.send(request.build(), HttpResponse.BodyHandlers.ofByteArray());
+    }
+
+    private static JsonNode json(HttpResponse<byte[]> response, int status) throws IOException {
+        assertEquals(status, response.statusCode(), () -> new String(response.body()));
+        return objectMapper.readTree(response.body());
+    }
+}
@@ -0,0 +1,143 @@
+package ru.er1one.moyskladtask.controller;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import ru.er1one.moyskladtask.repository.ProductClusterProperties;
+
+import java.io.IOException;
+import java.net.URI;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class AdmissionControlFilterTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    public void testClientOverRateIsRejected() throws Exception {
+        AdmissionControlFilter filter = filter(1, 2, 100);
+
+        assertEquals(200, perform(filter, request("GET", "/api/product/1")).getStatus());
+        assertEquals(200, perform(filter, request("GET", "/api/product/1")).getStatus());
+        MockHttpServletResponse rejected = perform(filter, request("GET", "/api/product/1"));
+
+        assertEquals(429, rejected.getStatus());
+        assertEquals("1", rejected.getHeader("Retry-After"));
+        assertEquals(1, meterRegistry.get("product.admission.rejected").tag("reason", "rate-limit").counter().count());
+
+        MockHttpServletRequest otherClient = request("GET", "/api/product/1");
+        otherClient.setRemoteAddr("10.0.0.2");
+        assertEquals(200, perform(filter, otherClient).getStatus());
+    }
+
+    @Test
+    public void testExpensiveRequestsAreShedFirst() throws Exception {
+        AdmissionControlFilter filter = filter(0, 0, 4);
+        AtomicReference<MockHttpServletResponse> expensive = new AtomicReference<>();
+        AtomicReference<MockHttpServletResponse> cheap = new AtomicReference<>();
+
+        // Пока обрабатывается один запрос, занята четверть предела — дорогим запросам места уже нет
+        FilterChain busy = (request, response) -> {
+            expensive.set(perform(filter, request("GET", "/api/product")));
+            cheap.set(perform(filter, request("GET", "/api/product/1")));
+        };
+        filter.doFilter(request("GET", "/api/product/2"), new MockHttpServletResponse(), busy);
+
+        assertEquals(503, expensive.get().getStatus());
+        assertEquals("1", expensive.get().getHeader("Retry-After"));
+        assertEquals(200, cheap.get().getStatus());
+        assertEquals(200, perform(filter, request("GET", "/api/product")).getStatus());
+    }
+
+    @Test
+    public void testSlowExpensiveRequestsDoNotLowerLimit() throws Exception {
+        AdmissionProperties properties = new AdmissionProperties(true, null, 0, 1, 1000,
+                100, 1, 100, Duration.ofMillis(1), 0.25, 1);
+        AdmissionControlFilter filter = new AdmissionControlFilter(properties, new ForwardedRequests(
+                new ProductClusterProperties(false, 0, List.of(), 128, Duration.ofSeconds(2), null)), meterRegistry);
+        FilterChain slow = (request, response) -> {
+            try {
+                Thread.sleep(5);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        };
+
+        for (int i = 0; i < 3; i++) {
+            filter.doFilter(request("GET", "/api/product"), new MockHttpServletResponse(), slow);
+            filter.doFilter(request("POST", "/api/product/bulk"), new MockHttpServletResponse(), slow);
+        }
+        assertEquals(100, meterRegistry.get("product.admission.limit").gauge().value());
+
+        filter.doFilter(request("GET", "/api/product/1"), new MockHttpServletResponse(), slow);
+        assertTrue(meterRegistry.get("product.admission.limit").gauge().value() < 100);
+    }
+
+    @Test
+    public void testForwardedHeaderFromClientIsIgnored() throws Exception {
+        AdmissionControlFilter filter = filter(1, 1, 100);
+
+        assertEquals(200, perform(filter, forwarded("1")).getStatus());
+        assertEquals(429, perform(filter, forwarded("1")).getStatus());
+    }
+
+    @Test
+    public void testForwardedRequestWithClusterSecretIsNotRateLimited() throws Exception {
+        ProductClusterProperties cluster = new ProductClusterProperties(true, 0, List.of(URI.create("http://10.0.0.5:8080")),
+                128, Duration.ofSeconds(2), "секрет");
+        AdmissionControlFilter filter = filter(1, 1, 100, new ForwardedRequests(cluster));
+
+        for (int i = 0; i < 3; i++) {
+            assertEquals(200, perform(filter, forwarded("секрет")).getStatus());
+        }
+        assertEquals(200, perform(filter, forwarded("0")).getStatus());
+        assertEquals(429, perform(filter, forwarded("0")).getStatus());
+    }
+
+    @Test
+    public void testOtherPathsAreNotLimited() throws Exception {
+        AdmissionControlFilter filter = filter(1, 1, 100);
+
+        for (int i = 0; i < 3; i++) {
+            assertEquals(200, perform(filter, request("GET", "/actuator/health")).getStatus());
+        }
+    }
+
+    private AdmissionControlFilter filter(double clientRate, double clientBurst, int limit) {
+        return filter(clientRate, clientBurst, limit, new ForwardedRequests(
+                new ProductClusterProperties(false, 0, List.of(), 128, Duration.ofSeconds(2), null)));
+    }
+
+    private AdmissionControlFilter filter(double clientRate, double clientBurst, int limit, ForwardedRequests forwardedRequests) {
+        AdmissionProperties properties = new AdmissionProperties(true, null, clientRate, clientBurst, 1000,
+                limit, 1, limit, Duration.ofSeconds(10), 0.25, 1);
+        return new AdmissionControlFilter(properties, forwardedRequests, meterRegistry);
+    }
+
+    private static MockHttpServletResponse perform(AdmissionControlFilter filter, MockHttpServletRequest request)
+            throws ServletException, IOException {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(request, response, new MockFilterChain());
+        return response;
+    }
+
+    private static MockHttpServletRequest forwarded(String value) {
+        MockHttpServletRequest request = request("GET", "/api/product/1");
+        request.addHeader(ProductRoutingFilter.FORWARDED, value);
+        return request;
+    }
+
+    private static MockHttpServletRequest request(String method, String uri) {
+        MockHttpServletRequest request = new MockHttpServletRequest(method, uri);
+        request.setRemoteAddr("10.0.0.1");
+        return request;
+    }
+}
@@ -1,6 +1,11 @@
 package ru.er1one.moyskladtask.controller;
 
+import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
+import com.fasterxml.jackson.dataformat.smile.databind.SmileMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.hamcrest.Matchers;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -11,36 +16,70 @@ import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.http.MediaType;
 import org.springframework.test.context.ContextConfiguration;
 import org.springframework.test.web.servlet.MockMvc;
-import ru.er1one.moyskladtask.exception.ProductNotFoundException;
+import org.springframework.test.web.servlet.MvcResult;
+import ru.er1one.moyskladtask.exception.ProductVersionConflictException;
 import ru.er1one.moyskladtask.handler.GlobalExceptionHandler;
+import ru.er1one.moyskladtask.model.BulkResult;
+import ru.er1one.moyskladtask.model.CatalogStats;
+import ru.er1one.moyskladtask.model.CatalogTotals;
+import ru.er1one.moyskladtask.model.ImportReport;
 import ru.er1one.moyskladtask.model.Product;
+import ru.er1one.moyskladtask.model.ProductCacheStats;
+import ru.er1one.moyskladtask.model.ProductChange;
+import ru.er1one.moyskladtask.model.ProductPage;
+import ru.er1one.moyskladtask.model.ProductPatch;
+import ru.er1one.moyskladtask.model.ProductQuery;
+import ru.er1one.moyskladtask.model.ProductSort;
+import ru.er1one.moyskladtask.service.ProductCatalogSnapshot;
+import ru.er1one.moyskladtask.service.ProductChangeFeed;
+import ru.er1one.moyskladtask.service.ProductImporter;
 import ru.er1one.moyskladtask.service.ProductService;
 
+import java.nio.charset.StandardCharsets;
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
 import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
-import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
-import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
 @WebMvcTest(ProductController.class)
 @ContextConfiguration(classes = {
         ProductController.class,
-        GlobalExceptionHandler.class
+        WireFormatConfiguration.class,
+        GlobalExceptionHandler.class,
+        SimpleMeterRegistry.class
 })
 public class ProductControllerTest {
 
     @MockBean
     private ProductService productService;
 
+    @MockBean
+    private ProductChangeFeed productChangeFeed;
+
+    @MockBean
+    private ProductCatalogSnapshot catalogSnapshot;
+
+    @MockBean
+    private ProductImporter productImporter;
+
     @Autowired
     private MockMvc mockMvc;
 
     @Autowired
     private ObjectMapper objectMapper;
 
+    @Autowired
+    private MeterRegistry meterRegistry;
+
     private Product testProduct;
 
     @BeforeEach
@@ -51,6 +90,7 @@ public class ProductControllerTest {
         testProduct.setPrice(100.0);
         testProduct.setDescription("Тестовое описание");
         testProduct.setInStock(false);
+        testProduct.setVersion(7L);
     }
 
     @Test
@@ -69,9 +109,184 @@ public class ProductControllerTest {
                 .andExpect(jsonPath("$[0].inStock", Matchers.is(false)));
     }
 
+    @Test
+    public void testFindAllFromSnapshot() throws Exception {
+        byte[] json = "[{\"id\":1}]".getBytes(StandardCharsets.UTF_8);
+        byte[] gzip = {31, -117, 8, 0};
+        when(catalogSnapshot.current()).thenReturn(Optional.of(new ProductCatalogSnapshot.Snapshot(9L, json, gzip)));
+
+        mockMvc.perform(get("/api/product").accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "\"9\""))
+                .andExpect(header().doesNotExist("Content-Encoding"))
+                .andExpect(content().bytes(json));
+
+        mockMvc.perform(get("/api/product").header("Accept-Encoding", "br, gzip"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "\"9-gzip\""))
+                .andExpect(header().string("Vary", Matchers.containsString("Accept-Encoding")))
+                .andExpect(header().string("Content-Encoding", "gzip"))
+                .andExpect(content().bytes(gzip));
+
+        mockMvc.perform(get("/api/product").header("Accept-Encoding", "gzip").header("If-None-Match", "\"9\""))
+                .andExpect(status().isOk())
+                .andExpect(content().bytes(gzip));
+
+        mockMvc.perform(get("/api/product").header("If-None-Match", "\"9\""))
+                .andExpect(status().isNotModified());
+
+        Mockito.verify(productService, Mockito.never()).getAllProducts();
+    }
+
+    @Test
+    public void testFindAllSmile() throws Exception {
+        when(productService.getAllProducts()).thenReturn(List.of(testProduct));
+
+        byte[] body = mockMvc.perform(get("/api/product").accept("application/x-jackson-smile"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("application/x-jackson-smile"))
+                .andReturn().getResponse().getContentAsByteArray();
+
+        List<Product> products = new SmileMapper().readValue(body, new TypeReference<>() {
+        });
+        assertEquals(List.of(testProduct), products);
+    }
+
+    @Test
+    public void testFindPage() throws Exception {
+        when(productService.getProductPage(ProductQuery.ALL, "AAAAAAAAAAE", 1)).thenReturn(new ProductPage(List.of(testProduct), "AAAAAAAAAAI"));
+
+        mockMvc.perform(get("/api/product").param("limit", "1").param("after", "AAAAAAAAAAE"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items", Matchers.hasSize(1)))
+                .andExpect(jsonPath("$.items[0].id", Matchers.is(1)))
+                .andExpect(jsonPath("$.nextCursor", Matchers.is("AAAAAAAAAAI")));
+    }
+
+    @Test
+    public void testFindFiltered() throws Exception {
+        when(productService.findProducts(new ProductQuery(50.0, 150.0, false, ProductSort.PRICE))).thenReturn(List.of(testProduct));
+
+        mockMvc.perform(get("/api/product").param("minPrice", "50").param("maxPrice", "150").param("inStock", "false"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", Matchers.hasSize(1)))
+                .andExpect(jsonPath("$[0].id", Matchers.is(1)));
+    }
+
+    @Test
+    public void testFindWithInvalidSort() throws Exception {
+        mockMvc.perform(get("/api/product").param("sort", "weight"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    public void testExport() throws Exception {
+        Product secondProduct = testProduct.copy();
+        secondProduct.setId(2L);
+        when(productService.streamAllProducts()).thenReturn(Stream.of(testProduct, secondProduct));
+
+        MvcResult result = mockMvc.perform(get("/api/product/export").accept(ProductController.APPLICATION_NDJSON))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        String body = mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(ProductController.APPLICATION_NDJSON))
+                .andReturn().getResponse().getContentAsString(StandardCharsets.UTF_8);
+
+        String[] lines = body.split("\n");
+        assertEquals(2, lines.length);
+        assertEquals(1L, objectMapper.readValue(lines[0], Product.class).getId());
+        assertEquals(2L, objectMapper.readValue(lines[1], Product.class).getId());
+        assertTrue(body.endsWith("\n"));
+    }
+
+    @Test
+    public void testStreamChanges() throws Exception {
+        when(productChangeFeed.subscribe(eq(5L), any())).thenAnswer(invocation -> {
+            ProductChangeFeed.Subscriber subscriber = invocation.getArgument(1);
+            subscriber.reset(5L);
+            subscriber.send(ProductChange.updated(testProduct).withSequence(6L));
+            subscriber.send(ProductChange.deleted(2L, 1L).withSequence(7L));
+            return Mockito.mock(ProductChangeFeed.Subscription.class);
+        });
+
+        MvcResult result = mockMvc.perform(get("/api/product/changes").header("Last-Event-ID", "5"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        String body = result.getResponse().getContentAsString(StandardCharsets.UTF_8);
+        assertTrue(body.contains("id:5\nevent:reset\ndata:5\n\n"));
+        assertTrue(body.contains("id:6\nevent:change\ndata:{\"sequence\":6,\"type\":\"updated\",\"id\":1,"));
+        assertTrue(body.contains("id:7\nevent:change\ndata:{\"sequence\":7,\"type\":\"deleted\",\"id\":2,\"version\":1}\n\n"));
+    }
+
+    @Test
+    public void testSearch() throws Exception {
+        when(productService.searchProducts("тест", 20)).thenReturn(List.of(testProduct));
+
+        mockMvc.perform(get("/api/product/search").param("q", "тест"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", Matchers.hasSize(1)))
+                .andExpect(jsonPath("$[0].name", Matchers.is("Тестовый товар")));
+    }
+
+    @Test
+    public void testCacheStats() throws Exception {
+        when(productService.getCacheStats()).thenReturn(new ProductCacheStats(10, 3, 1, 0.75, 0));
+
+        mockMvc.perform(get("/api/product/cache/stats"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.size", Matchers.is(10)))
+                .andExpect(jsonPath("$.hitRate", Matchers.is(0.75)));
+    }
+
+    @Test
+    public void testCatalogStats() throws Exception {
+        long[] histogram = new long[CatalogTotals.BUCKETS];
+        histogram[CatalogTotals.bucket(150)] = 2;
+        histogram[CatalogTotals.bucket(1000)] = 1;
+        CatalogTotals totals = new CatalogTotals(4, 3, 3, 1300, 100, 1000, histogram);
+        when(productService.getCatalogStats(true)).thenReturn(CatalogStats.of(totals, true));
+
+        mockMvc.perform(get("/api/product/stats").param("histogram", "true"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.count", Matchers.is(4)))
+                .andExpect(jsonPath("$.inStock", Matchers.is(3)))
+                .andExpect(jsonPath("$.minPrice", Matchers.is(1.0)))
+                .andExpect(jsonPath("$.maxPrice", Matchers.is(10.0)))
+                .andExpect(jsonPath("$.averagePrice", Matchers.is(4.33)))
+                .andExpect(jsonPath("$.histogram.length()", Matchers.is(4)))
+                .andExpect(jsonPath("$.histogram[0].count", Matchers.is(2)))
+                .andExpect(jsonPath("$.histogram[3].count", Matchers.is(1)));
+    }
+
+    @Test
+    public void testImportChoosesFormatByContentType() throws Exception {
+        when(productImporter.importProducts(any(), eq(ProductImporter.Format.CSV), any()))
+                .thenReturn(new ImportReport(2, 1, 1, List.of(new ImportReport.LineError(3, "Цена товара не может быть пустой")), null));
+
+        mockMvc.perform(post("/api/product/import")
+                        .contentType("text/csv;charset=UTF-8")
+                        .content("name,price\nЧайник,10\nЛампа,\n"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.imported", Matchers.is(1)))
+                .andExpect(jsonPath("$.errors[0].line", Matchers.is(3)));
+
+        when(productImporter.importProducts(any(), eq(ProductImporter.Format.NDJSON), any()))
+                .thenReturn(new ImportReport(1, 1, 0, List.of(), null));
+
+        mockMvc.perform(post("/api/product/import")
+                        .contentType(ProductController.APPLICATION_NDJSON)
+                        .content("{\"name\":\"Чайник\",\"price\":10}\n"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.imported", Matchers.is(1)))
+                .andExpect(jsonPath("$.errors.length()", Matchers.is(0)));
+    }
+
     @Test
     public void testFindById() throws Exception {
-        when(productService.getProductById(1L)).thenReturn(testProduct);
+        when(productService.findProductById(1L)).thenReturn(Optional.of(testProduct));
 
         mockMvc.perform(get("/api/product/1"))
                 .andExpect(status().isOk())
@@ -79,13 +294,100 @@ public class ProductControllerTest {
                 .andExpect(jsonPath("$.name", Matchers.is("Тестовый товар")));
     }
 
+    @Test
+    public void testFindByIdNotModified() throws Exception {
+        when(productService.findProductById(1L)).thenReturn(Optional.of(testProduct));
+
+        mockMvc.perform(get("/api/product/1"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "\"7\""));
+
+        mockMvc.perform(get("/api/product/1").header("If-None-Match", "\"7\""))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string("ETag", "\"7\""))
+                .andExpect(content().string(""));
+
+        mockMvc.perform(get("/api/product/1").header("If-None-Match", "\"6\""))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.version", Matchers.is(7)));
+    }
+
+    @Test
+    public void testEtagDependsOnRepresentation() throws Exception {
+        when(productService.findProductById(1L)).thenReturn(Optional.of(testProduct));
+
+        mockMvc.perform(get("/api/product/1").accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "\"7\""))
+                .andExpect(header().string("Vary", Matchers.containsString("Accept")));
+
+        mockMvc.perform(get("/api/product/1").header("Accept", "application/json;q=0.5, application/x-jackson-smile"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("application/x-jackson-smile"))
+                .andExpect(header().string("ETag", "\"7-smile\""));
+
+        mockMvc.perform(get("/api/product/1").header("Accept", "*/*, application/cbor").header("If-None-Match", "\"7\""))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("application/cbor"))
+                .andExpect(header().string("ETag", "\"7-cbor\""));
+
+        mockMvc.perform(get("/api/product/1").accept("application/cbor").header("If-None-Match", "\"7-cbor\""))
+                .andExpect(status().isNotModified());
+
+        when(productService.getProductPage(ProductQuery.ALL, null, 10)).thenReturn(new ProductPage(List.of(testProduct), null));
+        when(productService.getCatalogVersion()).thenReturn(42L);
+        mockMvc.perform(get("/api/product").param("limit", "10").accept("application/x-jackson-smile"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "\"42-smile\""))
+                .andExpect(header().string("Vary", Matchers.containsString("Accept")));
+    }
+
+    @Test
+    public void testPatchAcceptsRepresentationEtag() throws Exception {
+        when(productService.updateProduct(eq(1L), any(ProductPatch.class), eq(7L))).thenReturn(testProduct);
+
+        mockMvc.perform(patch("/api/product/1")
+                        .header("If-Match", "\"7-smile\"")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"price\":300.0}"))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(patch("/api/product/1")
+                        .header("If-Match", "\"7-json\"")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"price\":300.0}"))
+                .andExpect(status().isPreconditionFailed());
+    }
+
+    @Test
+    public void testFindAllNotModified() throws Exception {
+        when(productService.getCatalogVersion()).thenReturn(42L);
+        when(productService.getAllProducts()).thenReturn(List.of(testProduct));
+
+        mockMvc.perform(get("/api/product"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "\"42\""));
+
+        mockMvc.perform(get("/api/product").header("If-None-Match", "\"42\""))
+                .andExpect(status().isNotModified())
+                .andExpect(content().string(""));
+        mockMvc.perform(get("/api/product").param("limit", "10").header("If-None-Match", "\"42\""))
+                .andExpect(status().isNotModified());
+
+        Mockito.verify(productService, Mockito.times(1)).getAllProducts();
+        Mockito.verify(productService, Mockito.never()).getProductPage(any(), any(), Mockito.anyInt());
+    }
+
     @Test
     public void testFindByIdNotFound() throws Exception {
-        when(productService.getProductById(999L)).thenThrow(new ProductNotFoundException("Товар не найден"));
+        when(productService.findProductById(999L)).thenReturn(Optional.empty());
+        double notFoundErrors = meterRegistry.get("product.api.errors").tag("type", "not-found").counter().count();
 
         mockMvc.perform(get("/api/product/999"))
                 .andExpect(status().isNotFound())
                 .andExpect(jsonPath("$.message", Matchers.is("Товар не найден")));
+
+        assertEquals(notFoundErrors + 1, meterRegistry.get("product.api.errors").tag("type", "not-found").counter().count());
     }
 
     @Test
@@ -96,7 +398,7 @@ public class ProductControllerTest {
         newProduct.setDescription("Новое описание");
         newProduct.setInStock(true);
 
-        when(productService.addProduct(any(Product.class))).thenReturn(newProduct);
+        when(productService.addCheckedProduct(any(Product.class))).thenReturn(newProduct);
 
         mockMvc.perform(post("/api/product")
                         .contentType(MediaType.APPLICATION_JSON)
@@ -106,6 +408,21 @@ public class ProductControllerTest {
                 .andExpect(jsonPath("$.price", Matchers.is(200.0)));
     }
 
+    @Test
+    public void testCreateProductCbor() throws Exception {
+        when(productService.addCheckedProduct(testProduct)).thenReturn(testProduct);
+        CBORMapper cborMapper = new CBORMapper();
+
+        byte[] body = mockMvc.perform(post("/api/product")
+                        .contentType("application/cbor")
+                        .accept("application/cbor")
+                        .content(cborMapper.writeValueAsBytes(testProduct)))
+                .andExpect(status().isCreated())
+                .andReturn().getResponse().getContentAsByteArray();
+
+        assertEquals(testProduct, cborMapper.readValue(body, Product.class));
+    }
+
     @Test
     public void testUpdateProduct() throws Exception {
         long productId = 1L;
@@ -115,13 +432,95 @@ public class ProductControllerTest {
         updatedProduct.setDescription("Обновленное описание");
         updatedProduct.setPrice(200.0);
         updatedProduct.setInStock(true);
+        updatedProduct.setVersion(8L);
 
-        when(productService.updateProduct(eq(productId), any(Product.class))).thenReturn(updatedProduct);
+        when(productService.updateProduct(eq(productId), any(Product.class), isNull())).thenReturn(updatedProduct);
 
         mockMvc.perform(put("/api/product/{id}", productId)
                         .contentType(MediaType.APPLICATION_JSON)
                         .content(new ObjectMapper().writeValueAsString(updatedProduct)))
-                .andExpect(status().isNoContent());
+                .andExpect(status().isNoContent())
+                .andExpect(header().string("ETag", "\"8\""));
+    }
+
+    @Test
+    public void testUpdateProductIfMatch() throws Exception {
+        testProduct.setVersion(8L);
+        when(productService.updateProduct(eq(1L), any(Product.class), eq(7L))).thenReturn(testProduct);
+
+        mockMvc.perform(put("/api/product/1")
+                        .header("If-Match", "\"7\"")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(testProduct)))
+                .andExpect(status().isNoContent())
+                .andExpect(header().string("ETag", "\"8\""));
+    }
+
+    @Test
+    public void testPatchProductVersionConflict() throws Exception {
+        when(productService.updateProduct(eq(1L), any(ProductPatch.class), eq(7L))).thenThrow(new ProductVersionConflictException());
+        double conflictErrors = meterRegistry.get("product.api.errors").tag("type", "conflict").counter().count();
+
+        mockMvc.perform(patch("/api/product/1")
+                        .header("If-Match", "\"7\"")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"price\":300.0}"))
+                .andExpect(status().isPreconditionFailed());
+
+        assertEquals(conflictErrors + 1, meterRegistry.get("product.api.errors").tag("type", "conflict").counter().count());
+    }
+
+    @Test
+    public void testPatchProductWithIntegerPrice() throws Exception {
+        ProductPatch patch = new ProductPatch(ProductPatch.PRICE, null, null, 100.0, null);
+        when(productService.updateProduct(eq(1L), eq(patch), isNull())).thenReturn(testProduct);
+
+        mockMvc.perform(patch("/api/product/1")
+                        .contentType("application/merge-patch+json")
+                        .content("{\"price\":100}"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "\"7\""))
+                .andExpect(jsonPath("$.name", Matchers.is("Тестовый товар")));
+    }
+
+    @Test
+    public void testPatchProductWithWrongType() throws Exception {
+        mockMvc.perform(patch("/api/product/1")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"price\":\"дорого\"}"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.details", Matchers.is("Поле price должно быть числом")));
+
+        Mockito.verifyNoInteractions(productService);
+    }
+
+    @Test
+    public void testPatchProductWithWeakIfMatch() throws Exception {
+        mockMvc.perform(patch("/api/product/1")
+                        .header("If-Match", "W/\"7\"")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"price\":300.0}"))
+                .andExpect(status().isPreconditionFailed());
+
+        Mockito.verifyNoInteractions(productService);
+    }
+
+    @Test
+    public void testBulk() throws Exception {
+        when(productService.applyBulk(anyList())).thenReturn(List.of(
+                BulkResult.success(0, BulkResult.Status.CREATED, 5L),
+                BulkResult.failure(1, BulkResult.Status.NOT_FOUND, 7L, "Товар не найден")));
+
+        mockMvc.perform(post("/api/product/bulk")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("[{\"action\":\"create\",\"product\":{\"name\":\"Товар\",\"price\":1.0}},"
+                                + "{\"action\":\"delete\",\"id\":7}]"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", Matchers.hasSize(2)))
+                .andExpect(jsonPath("$[0].status", Matchers.is("CREATED")))
+                .andExpect(jsonPath("$[0].id", Matchers.is(5)))
+                .andExpect(jsonPath("$[0].error").doesNotExist())
+                .andExpect(jsonPath("$[1].status", Matchers.is("NOT_FOUND")));
     }
 
     @Test
@@ -141,4 +540,21 @@ public class ProductControllerTest {
                         .content(objectMapper.writeValueAsString(invalidProduct)))
                 .andExpect(status().isBadRequest());
     }
+
+    @Test
+    public void testCreateProductWithTooLongDescription() throws Exception {
+        testProduct.setDescription("о".repeat(4097));
+        double validationErrors = meterRegistry.get("product.api.errors").tag("type", "validation").counter().count();
+        when(productService.checkNewProduct(any(Product.class))).thenCallRealMethod();
+
+        mockMvc.perform(post("/api/product")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(testProduct)))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.details", Matchers.is("Описание товара не может превышать 4096 символов")));
+
+        Mockito.verify(productService, Mockito.times(1)).checkNewProduct(any(Product.class));
+        Mockito.verify(productService, Mockito.never()).addCheckedProduct(any(Product.class));
+        assertEquals(validationErrors + 1, meterRegistry.get("product.api.errors").tag("type", "validation").counter().count());
+    }
 }
@@ -0,0 +1,67 @@
+package ru.er1one.moyskladtask.controller;
+
+import jakarta.servlet.ServletException;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import ru.er1one.moyskladtask.repository.ProductClusterProperties;
+
+import java.io.IOException;
+import java.net.URI;
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ProductShardAccessFilterTest {
+
+    @Test
+    public void testInternalRequestsNeedClusterSecret() throws Exception {
+        ProductShardAccessFilter filter = filter("secret");
+
+        assertEquals(200, perform(filter, request("PUT", "/internal/product/1", "secret")).getStatus());
+        assertEquals(403, perform(filter, request("PUT", "/internal/product/1", "0")).getStatus());
+        assertEquals(403, perform(filter, request("DELETE", "/internal/product/1", null)).getStatus());
+        assertEquals(403, perform(filter, request("POST", "/internal/product/batch", null)).getStatus());
+    }
+
+    @Test
+    public void testWithoutSecretOnlyPeerAddressesAreAllowed() throws Exception {
+        ProductShardAccessFilter filter = filter(null);
+
+        assertEquals(200, perform(filter, request("GET", "/internal/product", "1")).getStatus());
+        MockHttpServletRequest client = request("GET", "/internal/product", "1");
+        client.setRemoteAddr("10.0.0.1");
+        assertEquals(403, perform(filter, client).getStatus());
+    }
+
+    @Test
+    public void testOtherPathsAreNotChecked() throws Exception {
+        ProductShardAccessFilter filter = filter("secret");
+
+        assertEquals(200, perform(filter, request("GET", "/api/product/1", null)).getStatus());
+        assertEquals(200, perform(filter, request("GET", "/internal/productx", null)).getStatus());
+    }
+
+    private static ProductShardAccessFilter filter(String secret) {
+        return new ProductShardAccessFilter(new ForwardedRequests(new ProductClusterProperties(true, 0,
+                List.of(URI.create("http://10.0.0.5:8080"), URI.create("http://10.0.0.6:8080")), 128, Duration.ofSeconds(2), secret)));
+    }
+
+    private static MockHttpServletResponse perform(ProductShardAccessFilter filter, MockHttpServletRequest request)
+            throws ServletException, IOException {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(request, response, new MockFilterChain());
+        return response;
+    }
+
+    private static MockHttpServletRequest request(String method, String uri, String forwarded) {
+        MockHttpServletRequest request = new MockHttpServletRequest(method, uri);
+        request.setRemoteAddr("10.0.0.6");
+        if (forwarded != null) {
+            request.addHeader(ProductRoutingFilter.FORWARDED, forwarded);
+        }
+        return request;
+    }
+}
@@ -0,0 +1,141 @@
+package ru.er1one.moyskladtask.load;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpRequest;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.stream.IntStream;
+
+/**
+ * Запросы к API товаров для нагрузочного теста. Каждый запрос помечен шаблоном эндпоинта,
+ * по которому группируются задержки.
+ */
+class LoadRequests {
+
+    private static final Duration TIMEOUT = Duration.ofSeconds(30);
+    private static final int HOT_PRODUCTS = 100;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final String baseUri;
+    private final int catalogSize;
+
+    LoadRequests(URI baseUri, int catalogSize) {
+        this.baseUri = baseUri.toString();
+        this.catalogSize = catalogSize;
+    }
+
+    /**
+     * Создаёт каталог пачками через {@code POST /bulk}; товары получают id от 1 до {@code catalogSize}.
+     */
+    List<HttpRequest> seed(int batchSize) {
+        return IntStream.iterate(0, from -> from < catalogSize, from -> from + batchSize)
+                .mapToObj(from -> post("/bulk", IntStream.range(from, Math.min(catalogSize, from + batchSize))
+                        .mapToObj(i -> Map.of("action", "create", "product", product(i)))
+                        .toList()))
+                .toList();
+    }
+
+    LoadRequest getById(ThreadLocalRandom random) {
+        return new LoadRequest("GET /{id}", get("/" + existingId(random)));
+    }
+
+    LoadRequest getMissing(ThreadLocalRandom random) {
+        return new LoadRequest("GET /{id} (404)", get("/" + (catalogSize + 1_000_000L + random.nextInt(1_000_000))));
+    }
+
+    LoadRequest page(ThreadLocalRandom random) {
+        double minPrice = random.nextInt(100);
+        return new LoadRequest("GET ?limit", get("?limit=50&sort=price&minPrice=" + minPrice + "&maxPrice=" + (minPrice + 10)));
+    }
+
+    LoadRequest search(ThreadLocalRandom random) {
+        String query = URLEncoder.encode("товар " + random.nextInt(catalogSize), StandardCharsets.UTF_8);
+        return new LoadRequest("GET /search", get("/search?limit=20&q=" + query));
+    }
+
+    LoadRequest create(ThreadLocalRandom random) {
+        return new LoadRequest("POST", post("", product(random.nextInt(catalogSize))));
+    }
+
+    LoadRequest createInvalid(ThreadLocalRandom random) {
+        return new LoadRequest("POST (400)", post("", Map.of("name", "", "price", -1.5)));
+    }
+
+    LoadRequest replace(ThreadLocalRandom random) {
+        long id = existingId(random);
+        return new LoadRequest("PUT /{id}", builder("/" + id).PUT(body(product(id))).build());
+    }
+
+    /**
+     * Частично изменяет один из {@value #HOT_PRODUCTS} «горячих» товаров, чтобы запросы конкурировали за них.
+     */
+    LoadRequest patchHot(ThreadLocalRandom random) {
+        long id = 1 + random.nextInt(Math.min(HOT_PRODUCTS, catalogSize));
+        Map<String, Object> patch = Map.of("price", random.nextInt(10_000) / 100.0 + 0.5, "inStock", random.nextBoolean());
+        return new LoadRequest("PATCH /{id}", builder("/" + id).method("PATCH", body(patch)).build());
+    }
+
+    LoadRequest catalog(ThreadLocalRandom random) {
+        return new LoadRequest("GET (каталог)", get(""));
+    }
+
+    /**
+     * Заменяет пачку из 100 существующих товаров одним {@code POST /bulk}.
+     */
+    LoadRequest bulkUpdate(ThreadLocalRandom random) {
+        return new LoadRequest("POST /bulk", post("/bulk", IntStream.range(0, 100)
+                .mapToObj(i -> {
+                    long id = existingId(random);
+                    return Map.of("action", "update", "id", id, "product", product(id));
+                })
+                .toList()));
+    }
+
+    LoadRequest delete(ThreadLocalRandom random) {
+        return new LoadRequest("DELETE /{id}", builder("/" + existingId(random)).DELETE().build());
+    }
+
+    private long existingId(ThreadLocalRandom random) {
+        return 1 + random.nextInt(catalogSize);
+    }
+
+    private HttpRequest get(String path) {
+        return builder(path).GET().build();
+    }
+
+    private HttpRequest post(String path, Object body) {
+        return builder(path).POST(body(body)).build();
+    }
+
+    private HttpRequest.Builder builder(String path) {
+        return HttpRequest.newBuilder(URI.create(baseUri + path))
+                .timeout(TIMEOUT)
+                .header("Content-Type", "application/json");
+    }
+
+    private HttpRequest.BodyPublisher body(Object body) {
+        try {
+            return HttpRequest.BodyPublishers.ofByteArray(objectMapper.writeValueAsBytes(body));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static Map<String, Object> product(long number) {
+        return Map.of(
+                "name", "Товар " + number,
+                "description", "Описание товара " + number,
+                "price", number % 10_000 / 100.0,
+                "inStock", number % 3 != 0);
+    }
+
+    record LoadRequest(String endpoint, HttpRequest request) {
+    }
+}
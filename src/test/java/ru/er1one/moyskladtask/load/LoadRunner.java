@@ -0,0 +1,161 @@
+package ru.er1one.moyskladtask.load;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import ru.er1one.moyskladtask.Application;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Нагрузочный тест всего стека: поднимает {@link Application} на свободном порту, наполняет каталог
+ * и прогоняет смеси запросов {@link Workload} с постоянной частотой.
+ * <p>
+ * Нагрузка открытая: запросы отправляются по расписанию независимо от того, ответил ли сервер
+ * на предыдущие, а задержка отсчитывается от запланированного момента отправки. Поэтому
+ * замедление сервера не прячется за снизившейся частотой запросов (coordinated omission).
+ * Для каждого эндпоинта печатаются пропускная способность, перцентили задержки и коды ответов,
+ * а полные распределения HdrHistogram сохраняются в {@code load.output}.
+ * <pre>
+ * mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=ru.er1one.moyskladtask.load.LoadRunner \
+ *     -Dload.rate=2000 -Dload.duration=30 -Dload.workloads=READ_HEAVY,PATCH_STORM
+ * </pre>
+ * Допуск запросов ({@code product.admission}) по умолчанию выключен, чтобы прогоны измеряли сам сервис.
+ * {@code -Dload.admission=true} включает его без ограничения по клиентам — все запросы идут с одного адреса;
+ * сравнение прогонов {@code OVERLOAD} с ним и без него показывает, как сброс лишней нагрузки удерживает p99.
+ */
+public class LoadRunner {
+
+    private static final int SEED_BATCH_SIZE = 1_000;
+    private static final long HIGHEST_LATENCY_MICROS = Duration.ofMinutes(1).toNanos() / 1_000;
+
+    public static void main(String[] args) throws Exception {
+        int rate = Integer.getInteger("load.rate", 2_000);
+        Duration duration = Duration.ofSeconds(Integer.getInteger("load.duration", 30));
+        Duration warmup = Duration.ofSeconds(Integer.getInteger("load.warmup", 10));
+        int catalogSize = Integer.getInteger("load.catalogSize", 10_000);
+        Path output = Path.of(System.getProperty("load.output", "target/load"));
+        List<Workload> workloads = Arrays.stream(System.getProperty("load.workloads", "READ_HEAVY,WRITE_HEAVY,PATCH_STORM,NOT_FOUND_STORM").split(","))
+                .map(name -> Workload.valueOf(name.trim()))
+                .toList();
+
+        HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+        for (Workload workload : workloads) {
+            try (ConfigurableApplicationContext context = new SpringApplicationBuilder(Application.class)
+                    .properties("server.port=0",
+                            "product.admission.enabled=" + Boolean.getBoolean("load.admission"),
+                            "product.admission.client-rate=0")
+                    .run(args)) {
+                int port = context.getEnvironment().getRequiredProperty("local.server.port", Integer.class);
+                LoadRequests requests = new LoadRequests(URI.create("http://localhost:" + port + "/api/product"), catalogSize);
+                for (HttpRequest request : requests.seed(SEED_BATCH_SIZE)) {
+                    client.send(request, HttpResponse.BodyHandlers.discarding());
+                }
+
+                run(client, requests, workload, rate, warmup);
+                Map<String, EndpointStats> stats = run(client, requests, workload, rate, duration);
+                report(workload, rate, duration, stats, output);
+            }
+        }
+    }
+
+    /**
+     * Отправляет запросы с частотой {@code rate} в секунду в течение {@code duration}
+     * и дожидается ответов на все отправленные.
+     */
+    private static Map<String, EndpointStats> run(HttpClient client, LoadRequests requests, Workload workload,
+                                                  int rate, Duration duration) {
+        Map<String, EndpointStats> stats = new ConcurrentHashMap<>();
+        long interval = 1_000_000_000L / rate;
+        long start = System.nanoTime();
+        long end = start + duration.toNanos();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (long intended = start; intended < end; intended += interval) {
+                long delay = intended - System.nanoTime();
+                if (delay > 0) {
+                    LockSupport.parkNanos(delay);
+                }
+                long scheduled = intended;
+                LoadRequests.LoadRequest request = workload.next(requests, ThreadLocalRandom.current());
+                executor.execute(() -> {
+                    int status;
+                    try {
+                        status = client.send(request.request(), HttpResponse.BodyHandlers.discarding()).statusCode();
+                    } catch (IOException e) {
+                        status = EndpointStats.FAILED;
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        return;
+                    }
+                    stats.computeIfAbsent(request.endpoint(), endpoint -> new EndpointStats())
+                            .record(System.nanoTime() - scheduled, status);
+                });
+            }
+        }
+        return stats;
+    }
+
+    private static void report(Workload workload, int rate, Duration duration, Map<String, EndpointStats> stats,
+                               Path output) throws IOException {
+        Path directory = Files.createDirectories(output.resolve(workload.name().toLowerCase()));
+        System.out.printf("%n%s: %d запросов/с, %d с%n", workload, rate, duration.toSeconds());
+        System.out.printf("%-18s %8s %8s %9s %9s %9s %9s %9s  %s%n",
+                "эндпоинт", "запросов", "в сек", "p50, мс", "p90, мс", "p99, мс", "p99.9, мс", "max, мс", "коды ответа");
+        for (Map.Entry<String, EndpointStats> entry : new TreeMap<>(stats).entrySet()) {
+            Histogram histogram = entry.getValue().latencies;
+            System.out.printf("%-18s %8d %8.0f %9.2f %9.2f %9.2f %9.2f %9.2f  %s%n",
+                    entry.getKey(), histogram.getTotalCount(), histogram.getTotalCount() / (double) duration.toSeconds(),
+                    millis(histogram.getValueAtPercentile(50)), millis(histogram.getValueAtPercentile(90)),
+                    millis(histogram.getValueAtPercentile(99)), millis(histogram.getValueAtPercentile(99.9)),
+                    millis(histogram.getMaxValue()), entry.getValue().statuses());
+
+            String fileName = entry.getKey().replaceAll("[^A-Za-z0-9]+", "_") + ".hgrm";
+            try (PrintStream out = new PrintStream(Files.newOutputStream(directory.resolve(fileName)))) {
+                histogram.outputPercentileDistribution(out, 1_000.0);
+            }
+        }
+    }
+
+    private static double millis(long micros) {
+        return micros / 1_000.0;
+    }
+
+    private static class EndpointStats {
+
+        static final int FAILED = -1;
+
+        private final Histogram latencies = new ConcurrentHistogram(HIGHEST_LATENCY_MICROS, 3);
+        private final Map<Integer, LongAdder> statuses = new ConcurrentHashMap<>();
+
+        void record(long latencyNanos, int status) {
+            latencies.recordValue(Math.min(latencyNanos / 1_000, HIGHEST_LATENCY_MICROS));
+            statuses.computeIfAbsent(status, key -> new LongAdder()).increment();
+        }
+
+        String statuses() {
+            StringBuilder result = new StringBuilder();
+            new TreeMap<>(statuses).forEach((status, count) -> result.append(result.isEmpty() ? "" : " ")
+                    .append(status == FAILED ? "сбой" : status).append('=').append(count.sum()));
+            return result.toString();
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package ru.er1one.moyskladtask.load;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Смеси запросов нагрузочного теста.
+ */
+enum Workload {
+
+    /**
+     * Чтение по id с редкими выборками, поиском и заменой товара.
+     */
+    READ_HEAVY {
+        @Override
+        LoadRequests.LoadRequest next(LoadRequests requests, ThreadLocalRandom random) {
+            int roll = random.nextInt(100);
+            if (roll < 80) {
+                return requests.getById(random);
+            }
+            if (roll < 90) {
+                return requests.page(random);
+            }
+            if (roll < 95) {
+                return requests.search(random);
+            }
+            return requests.replace(random);
+        }
+    },
+
+    /**
+     * Создание, замена, частичное изменение и удаление, в том числе с некорректными данными.
+     */
+    WRITE_HEAVY {
+        @Override
+        LoadRequests.LoadRequest next(LoadRequests requests, ThreadLocalRandom random) {
+            int roll = random.nextInt(100);
+            if (roll < 35) {
+                return requests.create(random);
+            }
+            if (roll < 40) {
+                return requests.createInvalid(random);
+            }
+            if (roll < 70) {
+                return requests.replace(random);
+            }
+            if (roll < 85) {
+                return requests.patchHot(random);
+            }
+            return requests.delete(random);
+        }
+    },
+
+    /**
+     * Частичные изменения небольшого набора товаров.
+     */
+    PATCH_STORM {
+        @Override
+        LoadRequests.LoadRequest next(LoadRequests requests, ThreadLocalRandom random) {
+            return requests.patchHot(random);
+        }
+    },
+
+    /**
+     * Дешёвые чтения по id вперемешку с дорогими выдачами всего каталога и пакетными изменениями,
+     * которые постоянно делают снимок каталога устаревшим. С частотой выше пропускной способности
+     * показывает, удерживает ли допуск запросов задержку чтений по id.
+     */
+    OVERLOAD {
+        @Override
+        LoadRequests.LoadRequest next(LoadRequests requests, ThreadLocalRandom random) {
+            int roll = random.nextInt(100);
+            if (roll < 90) {
+                return requests.getById(random);
+            }
+            if (roll < 95) {
+                return requests.catalog(random);
+            }
+            return requests.bulkUpdate(random);
+        }
+    },
+
+    /**
+     * Запросы несуществующих товаров.
+     */
+    NOT_FOUND_STORM {
+        @Override
+        LoadRequests.LoadRequest next(LoadRequests requests, ThreadLocalRandom random) {
+            return requests.getMissing(random);
+        }
+    };
+
+    abstract LoadRequests.LoadRequest next(LoadRequests requests, ThreadLocalRandom random);
+}
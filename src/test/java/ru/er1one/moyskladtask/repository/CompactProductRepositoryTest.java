@@ -0,0 +1,229 @@
+package ru.er1one.moyskladtask.repository;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ru.er1one.moyskladtask.exception.ProductNotFoundException;
+import ru.er1one.moyskladtask.model.CatalogTotals;
+import ru.er1one.moyskladtask.model.Product;
+import ru.er1one.moyskladtask.model.ProductQuery;
+
+import java.util.List;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CompactProductRepositoryTest {
+
+    private CompactProductRepository productRepository;
+
+    @BeforeEach
+    public void setup() {
+        productRepository = new CompactProductRepository(false);
+    }
+
+    @Test
+    public void testSaveAndFindById() throws ProductNotFoundException {
+        Product product = product("Тестовый товар", 100.0, true);
+        product.setDescription("Описание с буквой ё");
+        Product savedProduct = productRepository.save(product);
+
+        Product foundProduct = productRepository.findById(savedProduct.getId());
+        assertEquals(savedProduct, foundProduct);
+        foundProduct.setName("Изменённое название");
+        assertEquals("Тестовый товар", productRepository.findById(savedProduct.getId()).getName());
+        assertThrows(ProductNotFoundException.class, () -> productRepository.findById(999L));
+    }
+
+    @Test
+    public void testNullAndEmptyStringsAreKept() {
+        Product product = product(null, 1.0, false);
+        product.setDescription("");
+        long id = productRepository.save(product).getId();
+
+        Product foundProduct = productRepository.findById(id);
+        assertNull(foundProduct.getName());
+        assertEquals("", foundProduct.getDescription());
+    }
+
+    @Test
+    public void testFindPage() {
+        for (int i = 0; i < 5; i++) {
+            productRepository.save(product("Товар " + i, 1.0, false));
+        }
+
+        List<Product> firstPage = productRepository.find(ProductQuery.ALL, null, 2);
+        assertEquals(List.of(1L, 2L), ids(firstPage));
+        List<Product> secondPage = productRepository.find(ProductQuery.ALL, firstPage.getLast(), 2);
+        assertEquals(List.of(3L, 4L), ids(secondPage));
+
+        productRepository.deleteById(5L);
+        assertTrue(productRepository.find(ProductQuery.ALL, secondPage.getLast(), 2).isEmpty());
+    }
+
+    @Test
+    public void testExplicitIdsKeepIdOrder() {
+        Product high = product("Б", 1.0, false);
+        high.setId(10L);
+        Product low = product("А", 1.0, false);
+        low.setId(3L);
+        productRepository.saveAll(List.of(high, low));
+        productRepository.save(product("В", 1.0, false));
+
+        assertEquals(List.of(3L, 10L, 11L), ids(productRepository.findAll()));
+        try (Stream<Product> stream = productRepository.streamAll()) {
+            assertEquals(List.of(3L, 10L, 11L), ids(stream.toList()));
+        }
+
+        productRepository.deleteById(10L);
+        productRepository.save(high);
+        assertEquals(List.of(3L, 10L, 11L), ids(productRepository.find(ProductQuery.ALL, null, 10)));
+    }
+
+    @Test
+    public void testFindByPriceRangeAndStock() {
+        productRepository.save(product("Д", 50.0, true));
+        productRepository.save(product("Г", 10.0, true));
+        productRepository.save(product("В", 30.0, false));
+        productRepository.save(product("Б", 20.0, true));
+        productRepository.save(product("А", 30.0, true));
+
+        assertEquals(List.of(4L, 5L), ids(productRepository.find(ProductQuery.of(15.0, 40.0, true, null), null, 10)));
+
+        ProductQuery byPrice = ProductQuery.of(null, null, null, "price");
+        List<Product> firstPage = productRepository.find(byPrice, null, 2);
+        assertEquals(List.of(2L, 4L), ids(firstPage));
+        assertEquals(List.of(3L, 5L), ids(productRepository.find(byPrice, firstPage.getLast(), 2)));
+
+        assertEquals(List.of(5L, 4L), ids(productRepository.find(ProductQuery.of(null, null, true, "name"), null, 2)));
+        assertTrue(productRepository.find(ProductQuery.of(40.0, 15.0, null, null), null, 10).isEmpty());
+    }
+
+    @Test
+    public void testSearch() {
+        productRepository.save(product("Чайник электрический", 1.0, true));
+        Product described = product("Кружка", 1.0, true);
+        described.setDescription("Подходит под чайник");
+        productRepository.save(described);
+
+        assertEquals(List.of(1L, 2L), ids(productRepository.search("чайн", 10)));
+        assertEquals(List.of(1L), ids(productRepository.search("чайник электр", 10)));
+        assertTrue(productRepository.search("утюг", 10).isEmpty());
+    }
+
+    @Test
+    public void testUpdateIsNotAppliedWhenUpdaterFails() {
+        long id = productRepository.save(product("Товар", 1.0, false)).getId();
+
+        assertThrows(IllegalStateException.class, () -> productRepository.update(id, product -> {
+            product.setName("Не сохранится");
+            throw new IllegalStateException();
+        }));
+        assertEquals("Товар", productRepository.findById(id).getName());
+        assertThrows(ProductNotFoundException.class, () -> productRepository.update(999L, product -> product));
+    }
+
+    @Test
+    public void testWritesChangeProductAndCatalogVersions() {
+        long initialCatalogVersion = productRepository.catalogVersion();
+        Product saved = productRepository.save(product("Товар", 1.0, false));
+        long savedCatalogVersion = productRepository.catalogVersion();
+        assertNotEquals(initialCatalogVersion, savedCatalogVersion);
+        assertEquals(saved.getVersion(), productRepository.findById(saved.getId()).getVersion());
+
+        Product updated = productRepository.update(saved.getId(), product -> {
+            product.setPrice(2.0);
+            return product;
+        });
+        assertNotEquals(saved.getVersion(), updated.getVersion());
+        assertEquals(updated.getVersion(), productRepository.findById(saved.getId()).getVersion());
+        assertNotEquals(savedCatalogVersion, productRepository.catalogVersion());
+
+        long updatedCatalogVersion = productRepository.catalogVersion();
+        assertThrows(ProductNotFoundException.class, () -> productRepository.deleteById(999L));
+        assertEquals(updatedCatalogVersion, productRepository.catalogVersion());
+        productRepository.deleteById(saved.getId());
+        assertNotEquals(updatedCatalogVersion, productRepository.catalogVersion());
+    }
+
+    @Test
+    public void testCompactionKeepsRemainingProducts() {
+        int count = 5_000;
+        productRepository.saveAll(Stream.generate(() -> product("Товар", 1.0, true)).limit(count).toList());
+        for (long id = 1; id <= count; id += 2) {
+            productRepository.deleteById(id);
+        }
+        for (long id = 2; id <= count; id += 2) {
+            long updatedId = id;
+            productRepository.update(id, product -> {
+                product.setName("Товар " + updatedId);
+                return product;
+            });
+        }
+
+        List<Long> expected = LongStream.rangeClosed(1, count).filter(id -> id % 2 == 0).boxed().toList();
+        assertEquals(expected, ids(productRepository.findAll()));
+        assertEquals("Товар 4000", productRepository.findById(4000L).getName());
+        assertThrows(ProductNotFoundException.class, () -> productRepository.deleteById(1L));
+    }
+
+    @Test
+    public void testOffHeapStrings() {
+        CompactProductRepository offHeapRepository = new CompactProductRepository(true);
+        long id = offHeapRepository.save(product("Товар вне кучи", 1.0, true)).getId();
+        assertEquals("Товар вне кучи", offHeapRepository.findById(id).getName());
+    }
+
+    @Test
+    public void testTotalsFollowWritesAndCompaction() throws ProductNotFoundException {
+        List<Product> saved = productRepository.saveAll(LongStream.rangeClosed(1, 100)
+                .mapToObj(i -> product("Товар " + i, i, i % 2 == 0))
+                .toList());
+        Product replaced = saved.getFirst();
+        replaced.setPrice(1000.0);
+        productRepository.save(replaced);
+        for (Product product : saved.subList(50, 100)) {
+            productRepository.deleteById(product.getId());
+        }
+
+        CatalogTotals totals = productRepository.totals();
+        assertEquals(50, totals.count());
+        assertEquals(25, totals.inStock());
+        assertEquals((1000 + LongStream.rangeClosed(2, 50).sum()) * CatalogTotals.MINOR_UNITS, totals.priceSum());
+        assertEquals(200, totals.minPrice());
+        assertEquals(100000, totals.maxPrice());
+        assertEquals(productRepository.count(), totals.count());
+    }
+
+    @Test
+    public void testTotalsNeverShowHalfAppliedUpdate() throws Exception {
+        long id = productRepository.save(product("Товар", 1.0, true)).getId();
+        Thread writer = Thread.ofPlatform().start(() -> {
+            for (int i = 0; i < 20_000; i++) {
+                double price = i % 2 == 0 ? 2.0 : 1.0;
+                productRepository.update(id, product -> {
+                    product.setPrice(price);
+                    return product;
+                });
+            }
+        });
+        while (writer.isAlive()) {
+            CatalogTotals totals = productRepository.totals();
+            assertEquals(1, totals.count());
+            assertEquals(totals.minPrice(), totals.priceSum());
+        }
+        writer.join();
+    }
+
+    private static Product product(String name, double price, boolean inStock) {
+        Product product = new Product();
+        product.setName(name);
+        product.setPrice(price);
+        product.setInStock(inStock);
+        return product;
+    }
+
+    private static List<Long> ids(List<Product> products) {
+        return products.stream().map(Product::getId).toList();
+    }
+}
@@ -0,0 +1,219 @@
+package ru.er1one.moyskladtask.repository;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.util.unit.DataSize;
+import ru.er1one.moyskladtask.exception.ProductNotFoundException;
+import ru.er1one.moyskladtask.exception.ProductStorageUnavailableException;
+import ru.er1one.moyskladtask.model.Product;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class FileProductJournalTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    public void testRecoverFromJournal() throws IOException {
+        InMemoryProductRepository repository = new InMemoryProductRepository();
+        FileProductJournal journal = open(repository);
+        repository.save(product("Первый", 10.0));
+        repository.save(product("Второй", 20.0));
+        repository.update(1L, product -> {
+            product.setDescription(null);
+            product.setInStock(true);
+            return product;
+        });
+        repository.deleteById(2L);
+        journal.close();
+
+        InMemoryProductRepository recovered = new InMemoryProductRepository();
+        FileProductJournal recoveredJournal = open(recovered);
+        Product product = recovered.findById(1L);
+        assertEquals("Первый", product.getName());
+        assertNull(product.getDescription());
+        assertTrue(product.getInStock());
+        assertThrows(ProductNotFoundException.class, () -> recovered.findById(2L));
+        assertEquals(3L, recovered.save(product("Третий", 30.0)).getId());
+        recoveredJournal.close();
+    }
+
+    @Test
+    public void testRecoverFromSnapshotAndJournalTail() throws IOException {
+        InMemoryProductRepository repository = new InMemoryProductRepository();
+        FileProductJournal journal = open(repository);
+        repository.saveAll(List.of(product("Первый", 10.0), product("Второй", 20.0), product("Третий", 30.0)));
+        repository.deleteById(3L);
+        journal.snapshot();
+        repository.save(product("Четвёртый", 40.0));
+        repository.deleteById(1L);
+        journal.close();
+
+        assertEquals(1, count("snapshot-"));
+        assertEquals(1, count("journal-"));
+
+        InMemoryProductRepository recovered = new InMemoryProductRepository();
+        FileProductJournal recoveredJournal = open(recovered);
+        assertEquals(List.of(2L, 4L), recovered.findAll().stream().map(Product::getId).toList());
+        assertEquals(4L, recovered.getLastId());
+        recoveredJournal.close();
+    }
+
+    @Test
+    public void testTornTailIsDiscarded() throws IOException {
+        InMemoryProductRepository repository = new InMemoryProductRepository();
+        FileProductJournal journal = open(repository);
+        repository.save(product("Первый", 10.0));
+        repository.save(product("Второй", 20.0));
+        journal.close();
+
+        Path segment;
+        try (Stream<Path> files = Files.list(directory)) {
+            segment = files.filter(file -> file.getFileName().toString().startsWith("journal-")).findFirst().orElseThrow();
+        }
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+            channel.truncate(channel.size() - 3);
+        }
+
+        InMemoryProductRepository recovered = new InMemoryProductRepository();
+        FileProductJournal recoveredJournal = open(recovered);
+        assertEquals(List.of(1L), recovered.findAll().stream().map(Product::getId).toList());
+        recoveredJournal.close();
+    }
+
+    @Test
+    public void testCorruptionBeforeLaterSegmentsStopsRecovery() throws IOException {
+        InMemoryProductRepository repository = new InMemoryProductRepository();
+        FileProductJournal journal = open(repository);
+        repository.save(product("Первый", 10.0));
+        repository.save(product("Второй", 20.0));
+        journal.close();
+        journal = open(repository);
+        repository.save(product("Третий", 30.0));
+        journal.close();
+
+        Path first;
+        try (Stream<Path> files = Files.list(directory)) {
+            first = files.filter(file -> file.getFileName().toString().startsWith("journal-")).sorted().findFirst().orElseThrow();
+        }
+        try (FileChannel channel = FileChannel.open(first, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.wrap(new byte[]{0x7F}), channel.size() - 1);
+        }
+
+        assertThrows(IllegalStateException.class, () -> open(new InMemoryProductRepository()));
+    }
+
+    @Test
+    public void testWritesAreRejectedAfterFlushFailure() throws IOException, InterruptedException {
+        InMemoryProductRepository repository = new InMemoryProductRepository();
+        FileProductJournal journal = open(repository);
+        repository.save(product("Первый", 10.0));
+
+        Thread flusher = Thread.getAllStackTraces().keySet().stream()
+                .filter(thread -> thread.getName().equals("product-journal-flusher"))
+                .findFirst().orElseThrow();
+        flusher.interrupt();
+        assertThrows(ProductStorageUnavailableException.class, () -> repository.save(product("Второй", 20.0)));
+        flusher.join();
+
+        assertThrows(ProductStorageUnavailableException.class, () -> repository.save(product("Третий", 30.0)));
+        assertThrows(ProductStorageUnavailableException.class, () -> repository.deleteById(1L));
+        assertEquals(List.of(1L, 2L), repository.findAll().stream().map(Product::getId).toList());
+        journal.close();
+    }
+
+    @Test
+    public void testSnapshotWaitsForLoggedWrite() throws IOException, InterruptedException {
+        InMemoryProductRepository repository = new InMemoryProductRepository();
+        FileProductJournal journal = open(repository);
+        repository.save(product("Первый", 10.0));
+        CountDownLatch logged = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        repository.setJournal(new ProductJournal() {
+            @Override
+            public long logSave(Product product) {
+                long position = journal.logSave(product);
+                logged.countDown();
+                awaitQuietly(release);
+                return position;
+            }
+
+            @Override
+            public long logDelete(long id) {
+                return journal.logDelete(id);
+            }
+
+            @Override
+            public void awaitDurable(long position) {
+                journal.awaitDurable(position);
+            }
+        });
+
+        Thread writer = Thread.ofPlatform().start(() -> repository.update(1L, product -> {
+            product.setPrice(20.0);
+            return product;
+        }));
+        awaitQuietly(logged);
+        Thread snapshotter = Thread.ofPlatform().start(() -> {
+            try {
+                journal.snapshot();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        snapshotter.join(200);
+        assertTrue(snapshotter.isAlive());
+        release.countDown();
+        writer.join();
+        snapshotter.join();
+        repository.setJournal(journal);
+        journal.close();
+
+        InMemoryProductRepository recovered = new InMemoryProductRepository();
+        FileProductJournal recoveredJournal = open(recovered);
+        assertEquals(20.0, recovered.findById(1L).getPrice());
+        recoveredJournal.close();
+    }
+
+    private FileProductJournal open(InMemoryProductRepository repository) throws IOException {
+        FileProductJournal journal = new FileProductJournal(repository,
+                new ProductJournalProperties(true, directory, true, Duration.ofMillis(10), Duration.ofHours(1),
+                        DataSize.ofMegabytes(1)));
+        journal.open();
+        return journal;
+    }
+
+    private long count(String prefix) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(file -> file.getFileName().toString().startsWith(prefix)).count();
+        }
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static Product product(String name, double price) {
+        Product product = new Product();
+        product.setName(name);
+        product.setPrice(price);
+        return product;
+    }
+}
@@ -0,0 +1,430 @@
+package ru.er1one.moyskladtask.repository;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ru.er1one.moyskladtask.exception.ProductNotFoundException;
+import ru.er1one.moyskladtask.exception.ProductVersionConflictException;
+import ru.er1one.moyskladtask.model.CatalogTotals;
+import ru.er1one.moyskladtask.model.Product;
+import ru.er1one.moyskladtask.model.ProductQuery;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class InMemoryProductRepositoryTest {
+
+    private InMemoryProductRepository productRepository;
+    private Product testProduct;
+
+    @BeforeEach
+    public void setup() {
+        productRepository = new InMemoryProductRepository();
+        testProduct = new Product();
+        testProduct.setName("Тестовый товар");
+        testProduct.setPrice(100.0);
+        testProduct.setDescription("Тестовое описание");
+        testProduct.setInStock(false);
+    }
+
+    @Test
+    public void testFindAll() {
+        productRepository.save(testProduct);
+        List<Product> products = productRepository.findAll();
+        assertEquals(1, products.size());
+        assertEquals(testProduct.getName(), products.getFirst().getName());
+    }
+
+    @Test
+    public void testStreamAllReturnsSnapshotsInIdOrder() {
+        for (int i = 0; i < 3; i++) {
+            productRepository.save(product("Товар " + i, 1.0, false));
+        }
+
+        try (Stream<Product> stream = productRepository.streamAll()) {
+            List<Product> streamed = stream.toList();
+            assertEquals(List.of(1L, 2L, 3L), ids(streamed));
+            streamed.getFirst().setName("Изменённое название");
+        }
+        assertEquals("Товар 0", productRepository.findById(1L).getName());
+    }
+
+    @Test
+    public void testFindPage() {
+        for (int i = 0; i < 5; i++) {
+            productRepository.save(product("Товар " + i, 1.0, false));
+        }
+
+        List<Product> firstPage = productRepository.find(ProductQuery.ALL, null, 2);
+        assertEquals(List.of(1L, 2L), ids(firstPage));
+
+        List<Product> secondPage = productRepository.find(ProductQuery.ALL, firstPage.getLast(), 2);
+        assertEquals(List.of(3L, 4L), ids(secondPage));
+
+        productRepository.deleteById(5L);
+        assertTrue(productRepository.find(ProductQuery.ALL, secondPage.getLast(), 2).isEmpty());
+    }
+
+    @Test
+    public void testFindByPriceRangeAndStock() {
+        productRepository.save(product("Д", 50.0, true));
+        productRepository.save(product("Г", 10.0, true));
+        productRepository.save(product("В", 30.0, false));
+        productRepository.save(product("Б", 20.0, true));
+        productRepository.save(product("А", 30.0, true));
+
+        ProductQuery query = ProductQuery.of(15.0, 40.0, true, null);
+        assertEquals(List.of(4L, 5L), ids(productRepository.find(query, null, 10)));
+
+        List<Product> firstPage = productRepository.find(ProductQuery.of(null, null, null, "price"), null, 2);
+        assertEquals(List.of(2L, 4L), ids(firstPage));
+        assertEquals(List.of(3L, 5L), ids(productRepository.find(ProductQuery.of(null, null, null, "price"), firstPage.getLast(), 2)));
+
+        assertEquals(List.of(1L, 2L, 4L, 5L), ids(productRepository.find(ProductQuery.of(null, null, true, null), null, 10)));
+        assertTrue(productRepository.find(ProductQuery.of(40.0, 15.0, null, null), null, 10).isEmpty());
+    }
+
+    @Test
+    public void testFindSortedByName() {
+        productRepository.save(product("банан", 1.0, true));
+        productRepository.save(product("Апельсин", 1.0, true));
+        productRepository.save(product("Вишня", 1.0, false));
+
+        ProductQuery query = ProductQuery.of(null, null, null, "name");
+        assertEquals(List.of(2L, 1L, 3L), ids(productRepository.find(query, null, 10)));
+        assertEquals(List.of(2L, 1L), ids(productRepository.find(ProductQuery.of(null, null, true, "name"), null, 10)));
+    }
+
+    @Test
+    public void testIndexesFollowUpdatesAndDeletes() {
+        productRepository.save(product("А", 10.0, true));
+        productRepository.save(product("Б", 20.0, true));
+
+        productRepository.update(1L, product -> {
+            product.setPrice(30.0);
+            product.setInStock(false);
+            return product;
+        });
+        assertEquals(List.of(2L, 1L), ids(productRepository.find(ProductQuery.of(null, null, null, "price"), null, 10)));
+        assertEquals(List.of(2L), ids(productRepository.find(ProductQuery.of(null, null, true, null), null, 10)));
+
+        productRepository.deleteById(2L);
+        assertEquals(List.of(1L), ids(productRepository.find(ProductQuery.of(0.0, 100.0, null, null), null, 10)));
+        assertTrue(productRepository.find(ProductQuery.of(null, null, true, null), null, 10).isEmpty());
+    }
+
+    @Test
+    public void testSearchFollowsUpdatesAndDeletes() {
+        Product savedProduct = productRepository.save(testProduct);
+        assertEquals(1, productRepository.search("тестов", 10).size());
+
+        productRepository.update(savedProduct.getId(), product -> {
+            product.setName("Переименованный товар");
+            return product;
+        });
+        assertEquals("Переименованный товар", productRepository.search("переим", 10).getFirst().getName());
+        assertEquals(1, productRepository.search("тестов", 10).size());
+
+        productRepository.deleteById(savedProduct.getId());
+        assertTrue(productRepository.search("товар", 10).isEmpty());
+    }
+
+    @Test
+    public void testFindById() throws ProductNotFoundException {
+        Product savedProduct = productRepository.save(testProduct);
+        Product foundProduct = productRepository.findById(savedProduct.getId());
+        assertNotNull(foundProduct);
+        assertEquals(savedProduct.getName(), foundProduct.getName());
+    }
+
+    @Test
+    public void testFindByIdNotFound() {
+        assertThrows(ProductNotFoundException.class, () -> productRepository.findById(999L));
+    }
+
+    @Test
+    public void testSave() {
+        Product savedProduct = productRepository.save(testProduct);
+        assertNotNull(savedProduct.getId());
+        assertEquals(testProduct.getName(), savedProduct.getName());
+    }
+
+    @Test
+    public void testSaveWithoutId() {
+        Product newProduct = new Product();
+        newProduct.setName("Новый товар");
+        newProduct.setPrice(200.0);
+        newProduct.setDescription("Новое описание");
+        newProduct.setInStock(true);
+
+        Product savedProduct = productRepository.save(newProduct);
+        assertNotNull(savedProduct.getId());
+        assertEquals("Новый товар", savedProduct.getName());
+    }
+
+    @Test
+    public void testSaveAll() {
+        productRepository.save(testProduct);
+        Product existing = product("Заменённый товар", 5.0, true);
+        existing.setId(1L);
+
+        List<Product> saved = productRepository.saveAll(List.of(
+                product("А", 1.0, true), existing, product("Б", 2.0, false)));
+
+        assertEquals(List.of(2L, 1L, 3L), ids(saved));
+        assertEquals(3, productRepository.findAll().size());
+        assertEquals("Заменённый товар", productRepository.findById(1L).getName());
+        assertEquals(List.of(1L, 2L), ids(productRepository.find(ProductQuery.of(null, null, true, null), null, 10)));
+        assertEquals(4L, productRepository.save(product("В", 3.0, false)).getId());
+    }
+
+    @Test
+    public void testDeleteById() throws ProductNotFoundException {
+        Product savedProduct = productRepository.save(testProduct);
+        assertTrue(productRepository.deleteById(savedProduct.getId()) > savedProduct.getVersion());
+        assertThrows(ProductNotFoundException.class, () -> productRepository.findById(savedProduct.getId()));
+    }
+
+    @Test
+    public void testDeleteByIdNotFound() {
+        assertThrows(ProductNotFoundException.class, () -> productRepository.deleteById(999L));
+    }
+
+    @Test
+    public void testFindByIdReturnsSnapshot() throws ProductNotFoundException {
+        Product savedProduct = productRepository.save(testProduct);
+        Product foundProduct = productRepository.findById(savedProduct.getId());
+        foundProduct.setName("Изменённое название");
+        savedProduct.setPrice(1.0);
+
+        Product storedProduct = productRepository.findById(savedProduct.getId());
+        assertEquals("Тестовый товар", storedProduct.getName());
+        assertEquals(100.0, storedProduct.getPrice());
+    }
+
+    @Test
+    public void testUpdateIsNotAppliedWhenUpdaterFails() throws ProductNotFoundException {
+        Product savedProduct = productRepository.save(testProduct);
+
+        assertThrows(IllegalStateException.class, () -> productRepository.update(savedProduct.getId(), product -> {
+            product.setName("Не сохранится");
+            throw new IllegalStateException();
+        }));
+        assertEquals("Тестовый товар", productRepository.findById(savedProduct.getId()).getName());
+    }
+
+    @Test
+    public void testWritesChangeProductAndCatalogVersions() {
+        long initialCatalogVersion = productRepository.catalogVersion();
+        Product saved = productRepository.save(product("Товар", 1.0, false));
+        long savedCatalogVersion = productRepository.catalogVersion();
+        assertNotEquals(initialCatalogVersion, savedCatalogVersion);
+        assertEquals(saved.getVersion(), productRepository.findById(saved.getId()).getVersion());
+
+        Product updated = productRepository.update(saved.getId(), product -> {
+            product.setPrice(2.0);
+            return product;
+        });
+        assertNotEquals(saved.getVersion(), updated.getVersion());
+        assertEquals(updated.getVersion(), productRepository.findById(saved.getId()).getVersion());
+        assertNotEquals(savedCatalogVersion, productRepository.catalogVersion());
+
+        long updatedCatalogVersion = productRepository.catalogVersion();
+        assertThrows(ProductNotFoundException.class, () -> productRepository.deleteById(999L));
+        assertEquals(updatedCatalogVersion, productRepository.catalogVersion());
+        productRepository.deleteById(saved.getId());
+        assertNotEquals(updatedCatalogVersion, productRepository.catalogVersion());
+    }
+
+    @Test
+    public void testUpdateWithExpectedVersion() throws ProductNotFoundException {
+        Product saved = productRepository.save(product("Товар", 1.0, false));
+        long version = saved.getVersion();
+
+        Product updated = productRepository.update(saved.getId(), version, product -> {
+            product.setPrice(2.0);
+            return product;
+        });
+        assertThrows(ProductVersionConflictException.class, () -> productRepository.update(saved.getId(), version, product -> {
+            product.setPrice(3.0);
+            return product;
+        }));
+        Product current = productRepository.findById(saved.getId());
+        assertEquals(2.0, current.getPrice());
+        assertEquals(updated.getVersion(), current.getVersion());
+    }
+
+    @Test
+    public void testUpdateNotFound() {
+        assertThrows(ProductNotFoundException.class, () -> productRepository.update(999L, product -> product));
+    }
+
+    @Test
+    public void testSaveWithExplicitIdAdvancesSequence() {
+        testProduct.setId(10L);
+        productRepository.save(testProduct);
+
+        Product newProduct = new Product();
+        newProduct.setName("Новый товар");
+        newProduct.setPrice(200.0);
+        assertEquals(11L, productRepository.save(newProduct).getId());
+    }
+
+    @Test
+    public void testConcurrentSaveAssignsUniqueIds() throws Exception {
+        int threads = Runtime.getRuntime().availableProcessors() * 2;
+        int perThread = 1_000;
+        Set<Long> ids = ConcurrentHashMap.newKeySet();
+
+        runConcurrently(threads, () -> {
+            for (int i = 0; i < perThread; i++) {
+                Product product = new Product();
+                product.setName("Товар " + i);
+                product.setPrice(1.0);
+                ids.add(productRepository.save(product).getId());
+            }
+        });
+
+        assertEquals(threads * perThread, ids.size());
+        assertEquals(threads * perThread, productRepository.findAll().size());
+    }
+
+    @Test
+    public void testConcurrentUpdatesAreNotLost() throws Exception {
+        testProduct.setPrice(0.0);
+        long id = productRepository.save(testProduct).getId();
+        int threads = Runtime.getRuntime().availableProcessors() * 2;
+        int perThread = 1_000;
+
+        runConcurrently(threads, () -> {
+            for (int i = 0; i < perThread; i++) {
+                productRepository.update(id, product -> {
+                    product.setPrice(product.getPrice() + 1);
+                    return product;
+                });
+                productRepository.findAll();
+            }
+        });
+
+        assertEquals((double) (threads * perThread), productRepository.findById(id).getPrice());
+    }
+
+    @Test
+    public void testConcurrentSavesOfOneIdNeverLowerVersion() throws Exception {
+        int threads = Runtime.getRuntime().availableProcessors() * 2;
+        int perThread = 1_000;
+
+        runConcurrently(threads, () -> {
+            for (int i = 0; i < perThread; i++) {
+                Product product = new Product();
+                product.setId(1L);
+                product.setName("Товар " + i);
+                product.setPrice(1.0);
+                long version = productRepository.save(product).getVersion();
+                assertTrue(productRepository.findById(1L).getVersion() >= version);
+            }
+        });
+    }
+
+    @Test
+    public void testTotalsFollowWrites() throws ProductNotFoundException {
+        long cheap = productRepository.save(product("Дешёвый", 0.1, true)).getId();
+        productRepository.save(product("Средний", 0.2, false));
+        long expensive = productRepository.save(product("Дорогой", 250.0, true)).getId();
+        Product unpriced = product("Без цены", 1.0, true);
+        unpriced.setPrice(null);
+        productRepository.save(unpriced);
+
+        CatalogTotals totals = productRepository.totals();
+        assertEquals(4, totals.count());
+        assertEquals(3, totals.inStock());
+        assertEquals(3, totals.priced());
+        assertEquals(25030, totals.priceSum());
+        assertEquals(10, totals.minPrice());
+        assertEquals(25000, totals.maxPrice());
+        assertEquals(2, totals.histogram()[CatalogTotals.bucket(10)]);
+
+        productRepository.update(cheap, product -> {
+            product.setPrice(5.0);
+            product.setInStock(false);
+            return product;
+        });
+        productRepository.deleteById(expensive);
+
+        totals = productRepository.totals();
+        assertEquals(3, totals.count());
+        assertEquals(1, totals.inStock());
+        assertEquals(520, totals.priceSum());
+        assertEquals(20, totals.minPrice());
+        assertEquals(500, totals.maxPrice());
+        assertEquals(0, totals.histogram()[CatalogTotals.bucket(25000)]);
+    }
+
+    @Test
+    public void testConcurrentWritesKeepTotalsExact() throws Exception {
+        int threads = Runtime.getRuntime().availableProcessors() * 2;
+        int perThread = 500;
+
+        runConcurrently(threads, () -> {
+            for (int i = 0; i < perThread; i++) {
+                long id = productRepository.save(product("Товар", 0.1, true)).getId();
+                productRepository.update(id, product -> {
+                    product.setPrice(product.getPrice() + 0.2);
+                    return product;
+                });
+                if (i % 2 == 0) {
+                    productRepository.deleteById(id);
+                }
+            }
+        });
+
+        CatalogTotals totals = productRepository.totals();
+        long remaining = threads * perThread / 2;
+        assertEquals(remaining, totals.count());
+        assertEquals(remaining, totals.inStock());
+        assertEquals(remaining * 30, totals.priceSum());
+        assertEquals(30, totals.minPrice());
+        assertEquals(30, totals.maxPrice());
+    }
+
+    private static Product product(String name, double price, boolean inStock) {
+        Product product = new Product();
+        product.setName(name);
+        product.setPrice(price);
+        product.setInStock(inStock);
+        return product;
+    }
+
+    private static List<Long> ids(List<Product> products) {
+        return products.stream().map(Product::getId).toList();
+    }
+
+    private void runConcurrently(int threads, Runnable task) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < threads; i++) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    task.run();
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,242 @@
+package ru.er1one.moyskladtask.repository;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+import ru.er1one.moyskladtask.exception.ProductNotFoundException;
+import ru.er1one.moyskladtask.model.CatalogTotals;
+import ru.er1one.moyskladtask.model.Product;
+import ru.er1one.moyskladtask.model.ProductQuery;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class JdbcProductRepositoryTest {
+
+    private DriverManagerDataSource dataSource;
+    private JdbcProductRepository productRepository;
+
+    @BeforeEach
+    public void setup() {
+        dataSource = new DriverManagerDataSource(
+                "jdbc:h2:mem:" + UUID.randomUUID() + ";MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1");
+        new ResourceDatabasePopulator(new ClassPathResource("db/product-schema.sql")).execute(dataSource);
+        productRepository = new JdbcProductRepository(dataSource);
+    }
+
+    @Test
+    public void testSaveAndFindById() {
+        Product savedProduct = productRepository.save(product("Тестовый товар", 100.0, true));
+        Product foundProduct = productRepository.findById(savedProduct.getId());
+        assertEquals(savedProduct, foundProduct);
+        assertThrows(ProductNotFoundException.class, () -> productRepository.findById(999L));
+    }
+
+    @Test
+    public void testIdsAreAllocatedFromBlocks() {
+        List<Product> saved = productRepository.saveAll(Stream.generate(() -> product("Товар", 1.0, false))
+                .limit(JdbcProductRepository.ID_BLOCK_SIZE + 10)
+                .toList());
+        List<Long> ids = saved.stream().map(Product::getId).toList();
+        assertEquals(ids.size(), ids.stream().distinct().count());
+        assertEquals(JdbcProductRepository.ID_BLOCK_SIZE + 10, productRepository.findAll().size());
+
+        JdbcProductRepository otherInstance = new JdbcProductRepository(dataSource);
+        Long otherId = otherInstance.save(product("Товар", 1.0, false)).getId();
+        assertFalse(ids.contains(otherId));
+    }
+
+    @Test
+    public void testInstancesDrawDistinctIds() {
+        assertFalse(productRepository.acceptsClientIds());
+
+        JdbcProductRepository otherInstance = new JdbcProductRepository(dataSource);
+        for (int i = 0; i < JdbcProductRepository.ID_BLOCK_SIZE * 3; i++) {
+            productRepository.save(product("Товар", 1.0, false));
+            otherInstance.save(product("Товар", 1.0, false));
+        }
+
+        assertEquals(JdbcProductRepository.ID_BLOCK_SIZE * 6, productRepository.count());
+    }
+
+    @Test
+    public void testSaveAllUpdatesExistingAndInsertsMissing() {
+        Product existing = productRepository.save(product("Старое название", 1.0, false));
+        existing.setName("Новое название");
+        Product explicit = product("С явным id", 2.0, true);
+        explicit.setId(1000L);
+
+        productRepository.saveAll(List.of(existing, explicit, product("Новый", 3.0, false)));
+
+        assertEquals("Новое название", productRepository.findById(existing.getId()).getName());
+        assertEquals("С явным id", productRepository.findById(1000L).getName());
+        assertEquals(3, productRepository.findAll().size());
+    }
+
+    @Test
+    public void testFindWithKeysetPagination() {
+        productRepository.saveAll(List.of(
+                product("Д", 50.0, true),
+                product("Г", 10.0, true),
+                product("В", 30.0, false),
+                product("Б", 20.0, true),
+                product("А", 30.0, true)));
+        List<Long> ids = productRepository.findAll().stream().map(Product::getId).toList();
+
+        ProductQuery byPrice = ProductQuery.of(null, null, null, "price");
+        List<Product> firstPage = productRepository.find(byPrice, null, 2);
+        assertEquals(List.of(ids.get(1), ids.get(3)), ids(firstPage));
+        assertEquals(List.of(ids.get(2), ids.get(4)), ids(productRepository.find(byPrice, firstPage.getLast(), 2)));
+
+        assertEquals(List.of(ids.get(3), ids.get(4)), ids(productRepository.find(ProductQuery.of(15.0, 40.0, true, null), null, 10)));
+
+        ProductQuery byName = ProductQuery.of(null, null, true, "name");
+        List<Product> namePage = productRepository.find(byName, null, 1);
+        assertEquals(List.of(ids.get(4)), ids(namePage));
+        assertEquals(List.of(ids.get(3), ids.get(1)), ids(productRepository.find(byName, namePage.getFirst(), 2)));
+    }
+
+    @Test
+    public void testStreamAll() {
+        productRepository.saveAll(Stream.generate(() -> product("Товар", 1.0, false)).limit(2500).toList());
+
+        try (Stream<Product> stream = productRepository.streamAll()) {
+            List<Long> ids = ids(stream.toList());
+            assertEquals(2500, ids.size());
+            assertEquals(ids.stream().sorted().toList(), ids);
+        }
+    }
+
+    @Test
+    public void testSearch() {
+        Product coffee = product("Кофе", 1.0, true);
+        coffee.setDescription("Подходит к чаю");
+        productRepository.save(coffee);
+        productRepository.save(product("Чёрный чай", 1.0, true));
+
+        List<Product> found = productRepository.search("ЧА", 10);
+        assertEquals(List.of("Чёрный чай", "Кофе"), found.stream().map(Product::getName).toList());
+        assertEquals(1, productRepository.search("черный", 10).size());
+    }
+
+    @Test
+    public void testUpdate() {
+        long id = productRepository.save(product("Товар", 1.0, false)).getId();
+
+        Product updated = productRepository.update(id, product -> {
+            product.setPrice(2.0);
+            return product;
+        });
+        assertEquals(2.0, updated.getPrice());
+        assertEquals(2.0, productRepository.findById(id).getPrice());
+
+        assertThrows(IllegalStateException.class, () -> productRepository.update(id, product -> {
+            product.setPrice(3.0);
+            throw new IllegalStateException();
+        }));
+        assertEquals(2.0, productRepository.findById(id).getPrice());
+        assertThrows(ProductNotFoundException.class, () -> productRepository.update(999L, product -> product));
+    }
+
+    @Test
+    public void testWritesChangeProductAndCatalogVersions() {
+        long initialCatalogVersion = productRepository.catalogVersion();
+        Product saved = productRepository.save(product("Товар", 1.0, false));
+        long savedCatalogVersion = productRepository.catalogVersion();
+        assertNotEquals(initialCatalogVersion, savedCatalogVersion);
+        assertEquals(saved.getVersion(), productRepository.findById(saved.getId()).getVersion());
+
+        Product updated = productRepository.update(saved.getId(), product -> {
+            product.setPrice(2.0);
+            return product;
+        });
+        assertNotEquals(saved.getVersion(), updated.getVersion());
+        assertEquals(updated.getVersion(), productRepository.findById(saved.getId()).getVersion());
+        assertNotEquals(savedCatalogVersion, productRepository.catalogVersion());
+
+        long updatedCatalogVersion = productRepository.catalogVersion();
+        assertThrows(ProductNotFoundException.class, () -> productRepository.deleteById(999L));
+        assertEquals(updatedCatalogVersion, productRepository.catalogVersion());
+        productRepository.deleteById(saved.getId());
+        assertNotEquals(updatedCatalogVersion, productRepository.catalogVersion());
+    }
+
+    @Test
+    public void testConcurrentWritesEachAdvanceCatalogVersion() throws Exception {
+        long initialCatalogVersion = productRepository.catalogVersion();
+        int threads = 4;
+        int perThread = 50;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < threads; i++) {
+                futures.add(executor.submit(() -> {
+                    for (int j = 0; j < perThread; j++) {
+                        productRepository.save(product("Товар", 1.0, false));
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(initialCatalogVersion + threads * perThread, productRepository.catalogVersion());
+        assertEquals(JdbcProductRepository.CATALOG_STRIPES,
+                new JdbcTemplate(dataSource).queryForObject("SELECT count(*) FROM product_catalog", Integer.class));
+    }
+
+    @Test
+    public void testDeleteById() {
+        long id = productRepository.save(product("Товар", 1.0, false)).getId();
+        productRepository.deleteById(id);
+        assertThrows(ProductNotFoundException.class, () -> productRepository.findById(id));
+        assertThrows(ProductNotFoundException.class, () -> productRepository.deleteById(id));
+    }
+
+    @Test
+    public void testTotalsMatchCatalogWalk() {
+        CatalogTotals empty = productRepository.totals();
+        assertEquals(0, empty.count());
+        assertEquals(CatalogTotals.EMPTY.minPrice(), empty.minPrice());
+
+        productRepository.saveAll(List.of(product("Копеечный", 0.01, true), product("Рубль", 1.0, false),
+                product("Граница", 2.0, true), product("Дорогой", 123_456.78, true), product("Средний", 4.99, false)));
+        ProductAggregates expected = new ProductAggregates();
+        productRepository.findAll().forEach(product -> expected.update(null, product));
+
+        CatalogTotals totals = productRepository.totals();
+        CatalogTotals walked = expected.totals();
+        assertEquals(walked.count(), totals.count());
+        assertEquals(walked.inStock(), totals.inStock());
+        assertEquals(walked.priced(), totals.priced());
+        assertEquals(walked.priceSum(), totals.priceSum());
+        assertEquals(walked.minPrice(), totals.minPrice());
+        assertEquals(walked.maxPrice(), totals.maxPrice());
+        assertArrayEquals(walked.histogram(), totals.histogram());
+    }
+
+    private static Product product(String name, double price, boolean inStock) {
+        Product product = new Product();
+        product.setName(name);
+        product.setPrice(price);
+        product.setInStock(inStock);
+        return product;
+    }
+
+    private static List<Long> ids(List<Product> products) {
+        return products.stream().map(Product::getId).toList();
+    }
+}
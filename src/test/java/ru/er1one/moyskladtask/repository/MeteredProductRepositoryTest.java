@@ -0,0 +1,121 @@
+package ru.er1one.moyskladtask.repository;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ru.er1one.moyskladtask.exception.ProductNotFoundException;
+import ru.er1one.moyskladtask.exception.ProductVersionConflictException;
+import ru.er1one.moyskladtask.model.Product;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.UnaryOperator;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MeteredProductRepositoryTest {
+
+    private SimpleMeterRegistry meterRegistry;
+    private MeteredProductRepository productRepository;
+
+    @BeforeEach
+    public void setup() {
+        meterRegistry = new SimpleMeterRegistry();
+        productRepository = new MeteredProductRepository(new InMemoryProductRepository(), meterRegistry);
+    }
+
+    @Test
+    public void testOperationsAreTimed() {
+        Product saved = productRepository.save(product("Товар"));
+        productRepository.findById(saved.getId());
+        productRepository.findById(saved.getId());
+
+        assertEquals(1, timerCount("save"));
+        assertEquals(2, timerCount("findById"));
+        assertEquals(1, meterRegistry.get("product.repository.saved").counter().count());
+    }
+
+    @Test
+    public void testMissesAreCounted() {
+        assertThrows(ProductNotFoundException.class, () -> productRepository.findById(1L));
+        assertThrows(ProductNotFoundException.class, () -> productRepository.update(1L, product -> product));
+        assertThrows(ProductNotFoundException.class, () -> productRepository.deleteById(1L));
+
+        assertEquals(1, missCount("findById"));
+        assertEquals(1, missCount("update"));
+        assertEquals(1, missCount("delete"));
+        assertEquals(1, timerCount("delete"));
+    }
+
+    @Test
+    public void testCatalogSizeGauge() {
+        List<Product> saved = productRepository.saveAll(List.of(product("Первый"), product("Второй"), product("Третий")));
+        productRepository.deleteById(saved.getFirst().getId());
+
+        assertEquals(2, meterRegistry.get("product.catalog.size").gauge().value());
+        assertEquals(3, meterRegistry.get("product.repository.saved").counter().count());
+        assertEquals(0, missCount("delete"));
+    }
+
+    @Test
+    public void testCatalogSizeGaugeIsCached() {
+        AtomicInteger counts = new AtomicInteger();
+        InMemoryProductRepository delegate = new InMemoryProductRepository() {
+            @Override
+            public long count() {
+                counts.incrementAndGet();
+                return super.count();
+            }
+        };
+        productRepository = new MeteredProductRepository(delegate, meterRegistry = new SimpleMeterRegistry());
+        productRepository.save(product("Первый"));
+
+        assertEquals(1, meterRegistry.get("product.catalog.size").gauge().value());
+        productRepository.save(product("Второй"));
+        assertEquals(1, meterRegistry.get("product.catalog.size").gauge().value());
+        assertEquals(1, counts.get());
+
+        productRepository.totals();
+        assertEquals(2, meterRegistry.get("product.catalog.size").gauge().value());
+        assertEquals(1, counts.get());
+    }
+
+    @Test
+    public void testVersionedUpdateIsForwarded() throws ProductNotFoundException, ProductVersionConflictException {
+        AtomicInteger versionedUpdates = new AtomicInteger();
+        InMemoryProductRepository delegate = new InMemoryProductRepository() {
+            @Override
+            public Product update(long id, long expectedVersion, UnaryOperator<Product> updater)
+                    throws ProductNotFoundException, ProductVersionConflictException {
+                versionedUpdates.incrementAndGet();
+                return super.update(id, expectedVersion, updater);
+            }
+        };
+        productRepository = new MeteredProductRepository(delegate, meterRegistry = new SimpleMeterRegistry());
+        Product saved = productRepository.save(product("Товар"));
+
+        productRepository.update(saved.getId(), saved.getVersion(), product -> product);
+        assertThrows(ProductVersionConflictException.class,
+                () -> productRepository.update(saved.getId(), saved.getVersion(), product -> product));
+        assertThrows(ProductNotFoundException.class, () -> productRepository.update(-1L, 1L, product -> product));
+
+        assertEquals(3, versionedUpdates.get());
+        assertEquals(3, timerCount("update"));
+        assertEquals(1, missCount("update"));
+    }
+
+    private long timerCount(String operation) {
+        return meterRegistry.get("product.repository.operations").tag("operation", operation).timer().count();
+    }
+
+    private double missCount(String operation) {
+        return meterRegistry.get("product.repository.misses").tag("operation", operation).counter().count();
+    }
+
+    private static Product product(String name) {
+        Product product = new Product();
+        product.setName(name);
+        product.setPrice(10.0);
+        return product;
+    }
+}
@@ -0,0 +1,46 @@
+package ru.er1one.moyskladtask.repository;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ProductIdGeneratorTest {
+
+    @Test
+    public void testNodesNeverCollide() {
+        ProductIdGenerator first = new ProductIdGenerator(1, () -> 1_800_000_000_000L);
+        ProductIdGenerator second = new ProductIdGenerator(2, () -> 1_800_000_000_000L);
+        Set<Long> ids = new HashSet<>();
+
+        // Больше 4096 id за одну миллисекунду: генератор занимает следующие
+        for (int i = 0; i < 10_000; i++) {
+            long a = first.next();
+            long b = second.next();
+            assertTrue(ids.add(a));
+            assertTrue(ids.add(b));
+        }
+    }
+
+    @Test
+    public void testIdsGrowWhenClockGoesBack() {
+        AtomicLong clock = new AtomicLong(1_800_000_000_000L);
+        ProductIdGenerator generator = new ProductIdGenerator(0, clock::get);
+
+        long before = generator.next();
+        clock.addAndGet(-60_000);
+        long after = generator.next();
+
+        assertTrue(after > before);
+        assertTrue(before > 0);
+    }
+
+    @Test
+    public void testInvalidNode() {
+        assertThrows(IllegalArgumentException.class, () -> new ProductIdGenerator(ProductIdGenerator.MAX_NODES));
+        assertThrows(IllegalArgumentException.class, () -> new ProductIdGenerator(-1));
+    }
+}
@@ -0,0 +1,86 @@
+package ru.er1one.moyskladtask.repository;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ru.er1one.moyskladtask.model.Product;
+
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ProductSearchIndexTest {
+
+    private ProductSearchIndex searchIndex;
+
+    @BeforeEach
+    public void setup() {
+        searchIndex = new ProductSearchIndex();
+        searchIndex.update(null, product(1L, "Чёрный чай", "Листовой, 100 г"));
+        searchIndex.update(null, product(2L, "Кофе зерновой", "Подходит к чайному столу"));
+        searchIndex.update(null, product(3L, "Чайник электрический", "Чёрный корпус"));
+    }
+
+    @Test
+    public void testTokenize() {
+        assertEquals(Set.of("черный", "чай", "100"), ProductSearchIndex.tokenize("ЧЁРНЫЙ чай, 100!"));
+        assertTrue(ProductSearchIndex.tokenize(null).isEmpty());
+    }
+
+    @Test
+    public void testPrefixSearchRanksNameAndExactMatchesFirst() {
+        assertEquals(List.of(1L, 3L, 2L), searchIndex.search("чай", 10));
+    }
+
+    @Test
+    public void testAllTermsMustMatch() {
+        assertEquals(List.of(1L, 3L), searchIndex.search("черн ча", 10));
+        assertTrue(searchIndex.search("черный кофе", 10).isEmpty());
+    }
+
+    @Test
+    public void testLimit() {
+        assertEquals(List.of(1L), searchIndex.search("ча", 1));
+    }
+
+    @Test
+    public void testUpdateAndRemove() {
+        Product previous = product(1L, "Чёрный чай", "Листовой, 100 г");
+        Product current = product(1L, "Зелёный чай", "Листовой, 100 г");
+        searchIndex.update(previous, current);
+
+        assertEquals(List.of(3L), searchIndex.search("черный", 10));
+        assertEquals(List.of(1L), searchIndex.search("зеленый", 10));
+
+        searchIndex.update(current, null);
+        assertTrue(searchIndex.search("зеленый", 10).isEmpty());
+        assertEquals(List.of(3L, 2L), searchIndex.search("чай", 10));
+    }
+
+    @Test
+    public void testShortTermsMatchWholeWordsOnly() {
+        assertTrue(searchIndex.search("ч", 10).isEmpty());
+        searchIndex.update(null, product(4L, "Витамин С", "Упаковка 100 г"));
+        assertEquals(List.of(1L, 4L), searchIndex.search("г", 10));
+    }
+
+    @Test
+    public void testExactMatchesAreCollectedBeforeCandidateLimit() {
+        for (long id = 10; id < 10 + ProductSearchIndex.MAX_CANDIDATES; id++) {
+            searchIndex.update(null, product(id, "Чайный набор " + id, null));
+        }
+        searchIndex.update(null, product(100_000L, "Чай", null));
+
+        assertEquals(List.of(1L, 100_000L), searchIndex.search("чай", 2));
+        assertEquals(3, searchIndex.search("чайный набор", 3).size());
+    }
+
+    private static Product product(long id, String name, String description) {
+        Product product = new Product();
+        product.setId(id);
+        product.setName(name);
+        product.setDescription(description);
+        product.setPrice(1.0);
+        return product;
+    }
+}
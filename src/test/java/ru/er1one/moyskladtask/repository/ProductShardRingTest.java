@@ -0,0 +1,43 @@
+package ru.er1one.moyskladtask.repository;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ProductShardRingTest {
+
+    private static final int IDS = 100_000;
+
+    @Test
+    public void testProductsAreSpreadAcrossNodes() {
+        ProductShardRing ring = new ProductShardRing(3, 128);
+        ProductIdGenerator ids = new ProductIdGenerator(0);
+        int[] owned = new int[3];
+
+        for (int i = 0; i < IDS; i++) {
+            owned[ring.owner(ids.next())]++;
+        }
+
+        for (int count : owned) {
+            assertTrue(count > IDS / 5 && count < IDS / 2, "Неравномерное распределение: " + count);
+        }
+    }
+
+    @Test
+    public void testAddedNodeTakesOnlyItsShare() {
+        ProductShardRing three = new ProductShardRing(3, 128);
+        ProductShardRing four = new ProductShardRing(4, 128);
+        int moved = 0;
+
+        for (long id = 1; id <= IDS; id++) {
+            int before = three.owner(id);
+            int after = four.owner(id);
+            if (before != after) {
+                assertEquals(3, after, "Товар перешёл между прежними узлами");
+                moved++;
+            }
+        }
+
+        assertTrue(moved > IDS / 8 && moved < IDS * 3 / 8, "Перешло товаров: " + moved);
+    }
+}
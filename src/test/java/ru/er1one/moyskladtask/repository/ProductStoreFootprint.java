@@ -0,0 +1,54 @@
+package ru.er1one.moyskladtask.repository;
+
+import org.openjdk.jol.info.GraphLayout;
+import ru.er1one.moyskladtask.model.Product;
+
+/**
+ * Сравнивает объём кучи, занятый хранилищами {@code memory} и {@code compact} на одном каталоге.
+ * Размер каталога задаётся первым аргументом (по умолчанию 1 000 000 товаров):
+ * <pre>
+ * mvn test-compile exec:java -Dexec.classpathScope=test \
+ *     -Dexec.mainClass=ru.er1one.moyskladtask.repository.ProductStoreFootprint -Dexec.args=1000000
+ * </pre>
+ * Для каталогов от нескольких миллионов товаров понадобится увеличить {@code -Xmx}.
+ * Если {@code compact} занимает не меньше половины объёма {@code memory}, программа завершается с кодом 1.
+ * <p>
+ * Замер обходит граф объектов через JOL и зависит от устройства JVM, поэтому он не входит в модульные тесты.
+ */
+public class ProductStoreFootprint {
+
+    public static void main(String[] args) {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+
+        InMemoryProductRepository inMemoryRepository = new InMemoryProductRepository();
+        fill(inMemoryRepository, count);
+        long inMemoryBytes = GraphLayout.parseInstance(inMemoryRepository).totalSize();
+        report("memory", inMemoryBytes, count);
+        inMemoryRepository = null;
+
+        CompactProductRepository compactRepository = new CompactProductRepository(false);
+        fill(compactRepository, count);
+        long compactBytes = GraphLayout.parseInstance(compactRepository).totalSize();
+        report("compact", compactBytes, count);
+
+        if (compactBytes * 2 >= inMemoryBytes) {
+            System.err.println("compact занимает не меньше половины объёма memory");
+            System.exit(1);
+        }
+    }
+
+    private static void fill(ProductRepository repository, int count) {
+        for (int i = 0; i < count; i++) {
+            Product product = new Product();
+            product.setName("Товар номер " + i);
+            product.setDescription("Описание товара " + i);
+            product.setPrice(i % 10_000 / 100.0);
+            product.setInStock(i % 3 != 0);
+            repository.save(product);
+        }
+    }
+
+    private static void report(String type, long bytes, int count) {
+        System.out.printf("%-8s %,15d байт  %,8.1f байт на товар%n", type, bytes, (double) bytes / count);
+    }
+}
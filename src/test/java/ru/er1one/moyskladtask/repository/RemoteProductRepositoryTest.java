@@ -0,0 +1,50 @@
+package ru.er1one.moyskladtask.repository;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import ru.er1one.moyskladtask.exception.ProductShardUnavailableException;
+import ru.er1one.moyskladtask.model.Product;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.*;
+
+public class RemoteProductRepositoryTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testUpdateGivesUpAfterRepeatedConflicts() throws IOException, InterruptedException {
+        Product stored = new Product();
+        stored.setId(1L);
+        stored.setName("Товар");
+        stored.setPrice(10.0);
+        stored.setVersion(5L);
+        HttpResponse<byte[]> found = mock(HttpResponse.class);
+        when(found.statusCode()).thenReturn(200);
+        when(found.body()).thenReturn(objectMapper.writeValueAsBytes(stored));
+        HttpResponse<byte[]> conflict = mock(HttpResponse.class);
+        when(conflict.statusCode()).thenReturn(412);
+        HttpClient client = mock(HttpClient.class);
+        when(client.send(any(HttpRequest.class), any(HttpResponse.BodyHandler.class)))
+                .thenAnswer(invocation -> invocation.<HttpRequest>getArgument(0).method().equals("GET") ? found : conflict);
+        RemoteProductRepository repository = new RemoteProductRepository(1, URI.create("http://localhost:1"), client,
+                objectMapper, Duration.ofSeconds(1), "secret");
+
+        assertThrows(ProductShardUnavailableException.class, () -> repository.update(1L, product -> {
+            product.setPrice(20.0);
+            return product;
+        }));
+        verify(client, times(16)).send(argThat(request -> request.headers()
+                .firstValue(ProductClusterProperties.FORWARDED_HEADER).orElse("").equals("secret")), any(HttpResponse.BodyHandler.class));
+    }
+}
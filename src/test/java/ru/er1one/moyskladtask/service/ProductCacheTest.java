@@ -0,0 +1,111 @@
+package ru.er1one.moyskladtask.service;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import ru.er1one.moyskladtask.model.Product;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ProductCacheTest {
+
+    @TempDir
+    Path directory;
+
+    private final ProductCache productCache = new ProductCache(100, Duration.ofSeconds(30));
+
+    @Test
+    public void testGetReturnsCopies() {
+        productCache.get(1L, id -> Optional.of(product(id, "Тестовый товар"))).orElseThrow().setName("Изменённая копия");
+
+        Product cachedProduct = productCache.get(1L, id -> fail("Товар должен браться из кэша")).orElseThrow();
+        assertEquals("Тестовый товар", cachedProduct.getName());
+        assertEquals(1, productCache.stats().hitCount());
+        assertEquals(1, productCache.stats().missCount());
+    }
+
+    @Test
+    public void testFailedLoadIsNotCached() {
+        assertThrows(IllegalStateException.class, () -> productCache.get(1L, id -> {
+            throw new IllegalStateException();
+        }));
+        assertEquals("Тестовый товар", productCache.get(1L, id -> Optional.of(product(id, "Тестовый товар"))).orElseThrow().getName());
+    }
+
+    @Test
+    public void testInvalidationDuringLoadDiscardsLoadedValue() throws Exception {
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch invalidated = new CountDownLatch(1);
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            Future<Optional<Product>> stale = executor.submit(() -> productCache.get(1L, id -> {
+                loading.countDown();
+                await(invalidated);
+                return Optional.of(product(id, "Старое название"));
+            }));
+            loading.await();
+            productCache.invalidate(1L);
+            invalidated.countDown();
+            assertEquals("Старое название", stale.get().orElseThrow().getName());
+        }
+
+        assertEquals("Новое название", productCache.get(1L, id -> Optional.of(product(id, "Новое название"))).orElseThrow().getName());
+    }
+
+    @Test
+    public void testSlowLoadDoesNotPinVirtualThreads() throws Exception {
+        AtomicInteger loads = new AtomicInteger();
+        Path events = directory.resolve("pinning.jfr");
+        try (Recording recording = new Recording()) {
+            recording.enable("jdk.VirtualThreadPinned").withThreshold(Duration.ZERO);
+            recording.start();
+            try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+                for (int i = 0; i < 1_000; i++) {
+                    executor.submit(() -> productCache.get(1L, id -> {
+                        loads.incrementAndGet();
+                        sleep(Duration.ofMillis(50));
+                        return Optional.of(product(id, "Тестовый товар"));
+                    }));
+                }
+            }
+            recording.stop();
+            recording.dump(events);
+        }
+
+        assertEquals(1, loads.get());
+        assertTrue(RecordingFile.readAllEvents(events).isEmpty());
+    }
+
+    private static Product product(long id, String name) {
+        Product product = new Product();
+        product.setId(id);
+        product.setName(name);
+        product.setPrice(1.0);
+        return product;
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void sleep(Duration duration) {
+        try {
+            Thread.sleep(duration);
+        } catch (InterruptedException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package ru.er1one.moyskladtask.service;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.util.unit.DataSize;
+import ru.er1one.moyskladtask.model.Product;
+import ru.er1one.moyskladtask.repository.InMemoryProductRepository;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ProductCatalogSnapshotTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private InMemoryProductRepository productRepository;
+
+    @BeforeEach
+    public void setup() {
+        productRepository = new InMemoryProductRepository();
+        productRepository.save(product("Первый"));
+        productRepository.save(product("Второй"));
+    }
+
+    @Test
+    public void testSnapshotMatchesCatalog() throws IOException {
+        ProductCatalogSnapshot.Snapshot snapshot = snapshot(DataSize.ofMegabytes(1)).current().orElseThrow();
+
+        assertEquals(productRepository.catalogVersion(), snapshot.version());
+        assertEquals(productRepository.findAll(), read(snapshot.json()));
+        try (GZIPInputStream gzip = new GZIPInputStream(new ByteArrayInputStream(snapshot.gzip()))) {
+            assertArrayEquals(snapshot.json(), gzip.readAllBytes());
+        }
+    }
+
+    @Test
+    public void testSnapshotIsRebuiltOnlyAfterWrites() throws IOException {
+        ProductCatalogSnapshot catalogSnapshot = snapshot(DataSize.ofMegabytes(1));
+        ProductCatalogSnapshot.Snapshot first = catalogSnapshot.current().orElseThrow();
+        assertSame(first, catalogSnapshot.current().orElseThrow());
+
+        productRepository.save(product("Третий"));
+        ProductCatalogSnapshot.Snapshot second = catalogSnapshot.current().orElseThrow();
+
+        assertNotSame(first, second);
+        assertEquals(3, read(second.json()).size());
+    }
+
+    @Test
+    public void testReadersGetStaleSnapshotWhileRebuildRuns() throws Exception {
+        AtomicBoolean blockRebuild = new AtomicBoolean();
+        CountDownLatch rebuilding = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        productRepository = new InMemoryProductRepository() {
+            @Override
+            public Stream<Product> streamAll() {
+                if (blockRebuild.get()) {
+                    rebuilding.countDown();
+                    try {
+                        release.await(10, TimeUnit.SECONDS);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+                return super.streamAll();
+            }
+        };
+        productRepository.save(product("Первый"));
+        ProductCatalogSnapshot catalogSnapshot = snapshot(DataSize.ofMegabytes(1));
+        ProductCatalogSnapshot.Snapshot stale = catalogSnapshot.current().orElseThrow();
+
+        productRepository.save(product("Второй"));
+        blockRebuild.set(true);
+        CompletableFuture<ProductCatalogSnapshot.Snapshot> rebuilt = CompletableFuture.supplyAsync(() -> catalogSnapshot.current().orElseThrow());
+        assertTrue(rebuilding.await(10, TimeUnit.SECONDS));
+
+        assertSame(stale, catalogSnapshot.current().orElseThrow());
+        assertEquals(1, read(stale.json()).size());
+
+        release.countDown();
+        ProductCatalogSnapshot.Snapshot fresh = rebuilt.get(10, TimeUnit.SECONDS);
+        assertEquals(productRepository.catalogVersion(), fresh.version());
+        assertEquals(2, read(fresh.json()).size());
+        assertSame(fresh, catalogSnapshot.current().orElseThrow());
+    }
+
+    @Test
+    public void testCatalogOverLimitIsNotCached() {
+        assertTrue(snapshot(DataSize.ofBytes(64)).current().isEmpty());
+        assertTrue(snapshot(DataSize.ofBytes(0)).current().isEmpty());
+    }
+
+    private ProductCatalogSnapshot snapshot(DataSize maxSize) {
+        return new ProductCatalogSnapshot(productRepository, objectMapper, maxSize);
+    }
+
+    private List<Product> read(byte[] json) throws IOException {
+        return objectMapper.readValue(json, new TypeReference<>() {
+        });
+    }
+
+    private static Product product(String name) {
+        Product product = new Product();
+        product.setName(name);
+        product.setPrice(10.0);
+        return product;
+    }
+}
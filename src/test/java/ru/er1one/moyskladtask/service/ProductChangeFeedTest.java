@@ -0,0 +1,129 @@
+package ru.er1one.moyskladtask.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import ru.er1one.moyskladtask.model.ProductChange;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ProductChangeFeedTest {
+
+    private final ProductChangeFeed feed = new ProductChangeFeed(4);
+
+    @AfterEach
+    public void close() {
+        feed.close();
+    }
+
+    @Test
+    public void testSubscriberReceivesNewChanges() throws Exception {
+        RecordingSubscriber subscriber = new RecordingSubscriber();
+        feed.subscribe(null, subscriber);
+
+        ProductChange first = feed.publish(ProductChange.deleted(1L, 1L));
+        ProductChange second = feed.publish(ProductChange.deleted(2L, 1L));
+
+        assertEquals(first, subscriber.next());
+        assertEquals(second, subscriber.next());
+        assertEquals(first.sequence() + 1, second.sequence());
+    }
+
+    @Test
+    public void testResumeAfterSequence() throws Exception {
+        ProductChange first = feed.publish(ProductChange.deleted(1L, 1L));
+        ProductChange second = feed.publish(ProductChange.deleted(2L, 1L));
+        ProductChange third = feed.publish(ProductChange.deleted(3L, 1L));
+
+        RecordingSubscriber subscriber = new RecordingSubscriber();
+        feed.subscribe(first.sequence(), subscriber);
+
+        assertEquals(second, subscriber.next());
+        assertEquals(third, subscriber.next());
+    }
+
+    @Test
+    public void testResumeFromEvictedSequenceResets() throws Exception {
+        ProductChange first = feed.publish(ProductChange.deleted(1L, 1L));
+        List<ProductChange> published = new ArrayList<>();
+        for (long id = 2; id <= 6; id++) {
+            published.add(feed.publish(ProductChange.deleted(id, 1L)));
+        }
+
+        RecordingSubscriber subscriber = new RecordingSubscriber();
+        feed.subscribe(first.sequence(), subscriber);
+
+        assertEquals(published.getLast().sequence(), subscriber.next().sequence());
+        assertTrue(subscriber.resets.contains(published.getLast().sequence()));
+        ProductChange next = feed.publish(ProductChange.deleted(7L, 1L));
+        assertEquals(next, subscriber.next());
+    }
+
+    @Test
+    public void testSlowSubscriberDoesNotBlockPublishing() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        RecordingSubscriber slow = new RecordingSubscriber() {
+            @Override
+            public void send(ProductChange change) throws IOException {
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                super.send(change);
+            }
+        };
+        RecordingSubscriber fast = new RecordingSubscriber();
+        feed.subscribe(null, slow);
+        feed.subscribe(null, fast);
+
+        ProductChange last = null;
+        for (long id = 1; id <= 20; id++) {
+            last = feed.publish(ProductChange.deleted(id, 1L));
+        }
+        ProductChange received;
+        do {
+            received = fast.next();
+        } while (received.sequence() != last.sequence());
+
+        release.countDown();
+        do {
+            received = slow.next();
+        } while (received.sequence() != last.sequence());
+        assertFalse(slow.resets.isEmpty());
+    }
+
+    /**
+     * Складывает события в очередь, а {@code reset} отмечает событием с номером сброса.
+     */
+    private static class RecordingSubscriber implements ProductChangeFeed.Subscriber {
+
+        private final BlockingQueue<ProductChange> received = new LinkedBlockingQueue<>();
+        private final List<Long> resets = new CopyOnWriteArrayList<>();
+
+        @Override
+        public void send(ProductChange change) throws IOException {
+            received.add(change);
+        }
+
+        @Override
+        public void reset(long sequence) {
+            resets.add(sequence);
+            received.add(new ProductChange(sequence, null, 0, null, null));
+        }
+
+        ProductChange next() throws InterruptedException {
+            ProductChange change = received.poll(5, TimeUnit.SECONDS);
+            assertNotNull(change, "Событие не доставлено");
+            return change;
+        }
+    }
+}
@@ -0,0 +1,166 @@
+package ru.er1one.moyskladtask.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ru.er1one.moyskladtask.exception.ProductValidationException;
+import ru.er1one.moyskladtask.model.ImportReport;
+import ru.er1one.moyskladtask.model.Product;
+import ru.er1one.moyskladtask.model.ProductChange;
+import ru.er1one.moyskladtask.repository.InMemoryProductRepository;
+import ru.er1one.moyskladtask.repository.ProductRepository;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+public class ProductImporterTest {
+
+    private InMemoryProductRepository productRepository;
+    private ProductChangeFeed productChangeFeed;
+    private ProductImporter importer;
+
+    @BeforeEach
+    public void setup() {
+        productRepository = new InMemoryProductRepository();
+        productChangeFeed = mock(ProductChangeFeed.class);
+        importer = importer(1000);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        importer.close();
+    }
+
+    @Test
+    public void testCsvImportReportsInvalidLines() throws IOException {
+        String csv = "\uFEFF" + """
+                name,description,price,inStock
+                Чайник,"Электрический,
+                2 л",10,true
+
+                ,Без названия,5,false
+                Лампа,,-1,false
+                Стул,,"1500",0
+                Стол,,дорого,0
+                """;
+
+        ImportReport report = importer.importProducts(input(csv), ProductImporter.Format.CSV, ProductImporter.Progress.NONE);
+
+        assertEquals(5, report.records());
+        assertEquals(2, report.imported());
+        assertEquals(3, report.failed());
+        assertEquals(List.of(5L, 6L, 8L), report.errors().stream().map(ImportReport.LineError::line).toList());
+        List<Product> products = productRepository.findAll();
+        assertEquals(List.of("Чайник", "Стул"), products.stream().map(Product::getName).toList());
+        assertEquals("Электрический,\n2 л", products.getFirst().getDescription());
+        verify(productChangeFeed, times(2)).publish(any(ProductChange.class));
+    }
+
+    @Test
+    public void testNdjsonImportKeepsFileOrder() throws IOException {
+        StringBuilder ndjson = new StringBuilder();
+        for (int i = 0; i < 1000; i++) {
+            ndjson.append(i == 500 ? "{\"name\":" : "{\"id\":7,\"name\":\"Товар " + i + "\",\"price\":" + i + "}").append('\n');
+        }
+        List<Long> progress = new ArrayList<>();
+
+        ImportReport report = importer.importProducts(input(ndjson.toString()), ProductImporter.Format.NDJSON,
+                (records, imported, failed) -> progress.add(records));
+
+        assertEquals(1000, report.records());
+        assertEquals(999, report.imported());
+        assertEquals(List.of(new ImportReport.LineError(501, "Некорректный JSON")), report.errors());
+        List<Product> products = productRepository.findAll();
+        assertEquals(999, products.size());
+        for (int i = 1; i < products.size(); i++) {
+            assertTrue(products.get(i).getPrice() > products.get(i - 1).getPrice());
+        }
+        assertEquals(500, progress.size());
+        assertEquals(1000L, progress.getLast());
+    }
+
+    @Test
+    public void testErrorsInReportAreLimited() throws IOException {
+        String csv = "name,price\n" + ",1\n".repeat(50);
+
+        ImportReport report = importer.importProducts(input(csv), ProductImporter.Format.CSV, ProductImporter.Progress.NONE);
+
+        assertEquals(50, report.failed());
+        assertEquals(10, report.errors().size());
+        assertEquals(2, report.errors().getFirst().line());
+    }
+
+    @Test
+    public void testUnclosedQuoteDoesNotSwallowRestOfFile() throws IOException {
+        importer.close();
+        importer = importer(50);
+        StringBuilder csv = new StringBuilder("name,price\n\"Чайник,10\n");
+        for (int i = 10; i < 30; i++) {
+            csv.append("Товар ").append(i).append(",5\n");
+        }
+
+        ImportReport report = importer.importProducts(input(csv.toString()), ProductImporter.Format.CSV, ProductImporter.Progress.NONE);
+
+        assertEquals(1, report.failed());
+        assertEquals(16, report.imported());
+        assertEquals(2, report.errors().getFirst().line());
+        assertTrue(report.errors().getFirst().error().contains("2–6"));
+        assertEquals("Товар 14", productRepository.findAll().getFirst().getName());
+    }
+
+    @Test
+    public void testTooLongLineIsRejected() throws IOException {
+        importer.close();
+        importer = importer(50);
+        String ndjson = "{\"name\":\"" + "Ч".repeat(100) + "\",\"price\":1}\n{\"name\":\"Чайник\",\"price\":1}\n";
+
+        ImportReport report = importer.importProducts(input(ndjson), ProductImporter.Format.NDJSON, ProductImporter.Progress.NONE);
+
+        assertEquals(List.of(new ImportReport.LineError(1, "Строка длиннее 50 символов")), report.errors());
+        assertEquals(1, report.imported());
+    }
+
+    @Test
+    public void testStorageFailureStopsImportWithPartialReport() throws IOException {
+        ProductRepository failing = spy(productRepository);
+        doCallRealMethod().doThrow(new IllegalStateException("Хранилище недоступно")).when(failing).saveAll(anyList());
+        importer.close();
+        importer = new ProductImporter(failing, new ProductCache(100, Duration.ofSeconds(30)), productChangeFeed,
+                new ObjectMapper(), new ProductImportProperties(null, 2, 1, 10, 1000), new SimpleMeterRegistry());
+        String csv = "name,price\n" + "Товар,1\n".repeat(10);
+
+        ImportReport report = importer.importProducts(input(csv), ProductImporter.Format.CSV, ProductImporter.Progress.NONE);
+
+        assertEquals(2, report.records());
+        assertEquals(2, report.imported());
+        assertEquals("Не удалось сохранить записи со строки 4: Хранилище недоступно", report.failure());
+        assertEquals(2, failing.count());
+    }
+
+    @Test
+    public void testCsvWithoutRequiredColumnsIsRejected() {
+        assertThrows(ProductValidationException.class, () -> importer.importProducts(input("name,cost\nЧайник,10\n"),
+                ProductImporter.Format.CSV, ProductImporter.Progress.NONE));
+        assertEquals(0, productRepository.count());
+    }
+
+    private ProductImporter importer(int maxRecordLength) {
+        return new ProductImporter(productRepository, new ProductCache(100, Duration.ofSeconds(30)), productChangeFeed,
+                new ObjectMapper(), new ProductImportProperties(null, 2, 3, 10, maxRecordLength), new SimpleMeterRegistry());
+    }
+
+    private static ByteArrayInputStream input(String text) {
+        return new ByteArrayInputStream(text.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -5,16 +5,29 @@ import org.junit.jupiter.api.Test;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.mockito.Spy;
 import ru.er1one.moyskladtask.exception.ProductNotFoundException;
 import ru.er1one.moyskladtask.exception.ProductValidationException;
+import ru.er1one.moyskladtask.exception.ProductVersionConflictException;
+import ru.er1one.moyskladtask.model.BulkOperation;
+import ru.er1one.moyskladtask.model.BulkResult;
 import ru.er1one.moyskladtask.model.Product;
+import ru.er1one.moyskladtask.model.ProductChange;
+import ru.er1one.moyskladtask.model.ProductPage;
+import ru.er1one.moyskladtask.model.ProductPatch;
+import ru.er1one.moyskladtask.model.ProductQuery;
+import ru.er1one.moyskladtask.model.ProductSort;
 import ru.er1one.moyskladtask.repository.ProductRepository;
+import ru.er1one.moyskladtask.util.ProductCursor;
 
+import java.time.Duration;
+import java.util.Collections;
 import java.util.List;
+import java.util.Optional;
+import java.util.function.UnaryOperator;
 
 import static org.junit.jupiter.api.Assertions.*;
-import static org.mockito.ArgumentMatchers.any;
-import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.*;
 import static org.mockito.Mockito.*;
 
 public class ProductServiceTest {
@@ -22,6 +35,12 @@ public class ProductServiceTest {
     @Mock
     private ProductRepository productRepository;
 
+    @Spy
+    private ProductCache productCache = new ProductCache(100, Duration.ofSeconds(30));
+
+    @Mock
+    private ProductChangeFeed productChangeFeed;
+
     @InjectMocks
     private ProductService productService;
 
@@ -47,9 +66,37 @@ public class ProductServiceTest {
         assertEquals(testProduct.getName(), products.getFirst().getName());
     }
 
+    @Test
+    public void testGetProductPage() {
+        Product nextProduct = testProduct.copy();
+        nextProduct.setId(2L);
+        when(productRepository.find(ProductQuery.ALL, null, 2)).thenReturn(List.of(testProduct, nextProduct));
+
+        ProductPage page = productService.getProductPage(ProductQuery.ALL, null, 1);
+        assertEquals(1, page.items().size());
+        assertEquals(1L, ProductCursor.decode(ProductSort.ID, page.nextCursor()).getId());
+    }
+
+    @Test
+    public void testGetLastProductPage() {
+        ProductQuery query = ProductQuery.of(null, null, null, "price");
+        when(productRepository.find(eq(query), any(Product.class), eq(3))).thenReturn(List.of(testProduct));
+
+        ProductPage page = productService.getProductPage(query, ProductCursor.encode(ProductSort.PRICE, testProduct), 2);
+        assertEquals(1, page.items().size());
+        assertNull(page.nextCursor());
+    }
+
+    @Test
+    public void testGetProductPageWithInvalidParameters() {
+        assertThrows(ProductValidationException.class, () -> productService.getProductPage(ProductQuery.ALL, null, 0));
+        assertThrows(ProductValidationException.class, () -> productService.getProductPage(ProductQuery.ALL, "не курсор", 10));
+        assertThrows(ProductValidationException.class, () -> ProductQuery.of(null, null, null, "weight"));
+    }
+
     @Test
     public void testGetProductById() throws ProductNotFoundException {
-        when(productRepository.findById(anyLong())).thenReturn(testProduct);
+        when(productRepository.lookup(anyLong())).thenReturn(Optional.of(testProduct));
 
         Product foundProduct = productService.getProductById(1L);
         assertNotNull(foundProduct);
@@ -58,11 +105,46 @@ public class ProductServiceTest {
 
     @Test
     public void testGetProductByIdNotFound() {
-        when(productRepository.findById(anyLong())).thenThrow(new ProductNotFoundException());
+        when(productRepository.lookup(anyLong())).thenReturn(Optional.empty());
 
         assertThrows(ProductNotFoundException.class, () -> productService.getProductById(999L));
     }
 
+    @Test
+    public void testGetProductByIdCached() throws ProductNotFoundException {
+        when(productRepository.lookup(1L)).thenReturn(Optional.of(testProduct));
+
+        productService.getProductById(1L).setName("Изменённая копия");
+        Product foundProduct = productService.getProductById(1L);
+
+        assertEquals("Тестовый товар", foundProduct.getName());
+        verify(productRepository, times(1)).lookup(1L);
+        assertEquals(1, productService.getCacheStats().hitCount());
+    }
+
+    @Test
+    public void testGetProductByIdNotFoundCached() throws ProductNotFoundException {
+        when(productRepository.lookup(999L)).thenReturn(Optional.empty());
+
+        assertThrows(ProductNotFoundException.class, () -> productService.getProductById(999L));
+        assertThrows(ProductNotFoundException.class, () -> productService.getProductById(999L));
+        verify(productRepository, times(1)).lookup(999L);
+    }
+
+    @Test
+    public void testUpdateProductInvalidatesCache() throws ProductNotFoundException, ProductValidationException {
+        when(productRepository.lookup(1L)).thenReturn(Optional.of(testProduct));
+        when(productRepository.update(anyLong(), any())).thenAnswer(invocation ->
+                invocation.<UnaryOperator<Product>>getArgument(1).apply(testProduct.copy()));
+
+        productService.getProductById(1L);
+        productService.updateProduct(1L, testProduct);
+        productService.getProductById(1L);
+
+        verify(productRepository, times(2)).lookup(1L);
+        verify(productCache).invalidate(1L);
+    }
+
     @Test
     public void testAddProduct() throws ProductValidationException {
         Product newProduct = new Product();
@@ -71,7 +153,11 @@ public class ProductServiceTest {
         newProduct.setDescription("Новое описание");
         newProduct.setInStock(true);
 
-        when(productRepository.save(any(Product.class))).thenReturn(newProduct);
+        when(productRepository.save(any(Product.class))).thenAnswer(invocation -> {
+            Product product = invocation.getArgument(0);
+            product.setId(2L);
+            return product;
+        });
 
         Product savedProduct = productService.addProduct(newProduct);
 
@@ -80,6 +166,26 @@ public class ProductServiceTest {
         assertEquals(200.0, savedProduct.getPrice());
         assertEquals("Новое описание", savedProduct.getDescription());
         assertTrue(savedProduct.getInStock());
+        verify(productChangeFeed).publish(argThat(change ->
+                change.type() == ProductChange.Type.CREATED && change.id() == 2L && "Новый товар".equals(change.product().getName())));
+    }
+
+    @Test
+    public void testAddProductRejectsClientIdWhenStoreAssignsIds() {
+        when(productRepository.acceptsClientIds()).thenReturn(false);
+
+        assertThrows(ProductValidationException.class, () -> productService.addProduct(testProduct));
+        verify(productRepository, never()).save(any(Product.class));
+    }
+
+    @Test
+    public void testCheckNewProductReturnsErrorWithoutSaving() {
+        when(productRepository.acceptsClientIds()).thenReturn(true);
+        Product invalidProduct = new Product();
+
+        assertEquals("Название товара не может быть пустым", productService.checkNewProduct(invalidProduct));
+        assertNull(productService.checkNewProduct(testProduct));
+        verify(productRepository, never()).save(any(Product.class));
     }
 
     @Test
@@ -87,6 +193,11 @@ public class ProductServiceTest {
         Product invalidProduct = new Product();
 
         assertThrows(ProductValidationException.class, () -> productService.addProduct(invalidProduct));
+
+        Product tooExpensive = new Product();
+        tooExpensive.setName("Дорогой товар");
+        tooExpensive.setPrice(1e17);
+        assertThrows(ProductValidationException.class, () -> productService.addProduct(tooExpensive));
     }
 
     @Test
@@ -98,8 +209,8 @@ public class ProductServiceTest {
         updatedProduct.setDescription("Обновленное описание");
         updatedProduct.setInStock(true);
 
-        when(productRepository.findById(anyLong())).thenReturn(testProduct);
-        when(productRepository.save(any(Product.class))).thenReturn(updatedProduct);
+        when(productRepository.update(anyLong(), any())).thenAnswer(invocation ->
+                invocation.<UnaryOperator<Product>>getArgument(1).apply(testProduct.copy()));
 
         Product result = productService.updateProduct(1L, updatedProduct);
 
@@ -108,9 +219,31 @@ public class ProductServiceTest {
         assertEquals(250.0, result.getPrice());
     }
 
+    @Test
+    public void testUpdateProductWithExpectedVersion() throws ProductNotFoundException, ProductValidationException {
+        when(productRepository.update(eq(1L), eq(7L), any())).thenThrow(new ProductVersionConflictException());
+
+        assertThrows(ProductVersionConflictException.class, () -> productService.updateProduct(1L, testProduct, 7L));
+        verify(productRepository, never()).update(anyLong(), any());
+        verifyNoInteractions(productChangeFeed);
+    }
+
+    @Test
+    public void testPatchProduct() throws ProductNotFoundException, ProductValidationException {
+        when(productRepository.update(anyLong(), any())).thenAnswer(invocation ->
+                invocation.<UnaryOperator<Product>>getArgument(1).apply(testProduct.copy()));
+
+        Product result = productService.updateProduct(1L, new ProductPatch(ProductPatch.PRICE, null, null, 250.0, null));
+
+        assertEquals("Тестовый товар", result.getName());
+        assertEquals(250.0, result.getPrice());
+        assertThrows(ProductValidationException.class, () ->
+                productService.updateProduct(1L, new ProductPatch(ProductPatch.NAME, null, null, null, null)));
+    }
+
     @Test
     public void testUpdateProductNotFound() {
-        when(productRepository.findById(anyLong())).thenThrow(new ProductNotFoundException());
+        when(productRepository.update(anyLong(), any())).thenThrow(new ProductNotFoundException());
 
         assertThrows(ProductNotFoundException.class, () -> productService.updateProduct(999L, testProduct));
     }
@@ -119,18 +252,56 @@ public class ProductServiceTest {
     public void testUpdateProductWithInvalidData() throws ProductNotFoundException {
         Product invalidProduct = new Product();
 
-        when(productRepository.findById(anyLong())).thenReturn(testProduct);
+        when(productRepository.update(anyLong(), any())).thenAnswer(invocation ->
+                invocation.<UnaryOperator<Product>>getArgument(1).apply(testProduct.copy()));
 
         assertThrows(ProductValidationException.class, () -> productService.updateProduct(1L, invalidProduct));
     }
 
     @Test
     public void testDeleteProduct() throws ProductNotFoundException {
-        doNothing().when(productRepository).deleteById(anyLong());
+        when(productRepository.deleteById(anyLong())).thenReturn(42L);
 
         productService.deleteProduct(1L);
 
         verify(productRepository, times(1)).deleteById(1L);
+        verify(productChangeFeed).publish(ProductChange.deleted(1L, 42L));
+    }
+
+    @Test
+    public void testApplyBulk() {
+        Product newProduct = testProduct.copy();
+        newProduct.setId(null);
+        List<BulkOperation> operations = List.of(
+                new BulkOperation(BulkOperation.Action.CREATE, null, newProduct),
+                new BulkOperation(BulkOperation.Action.UPDATE, 1L, testProduct),
+                new BulkOperation(BulkOperation.Action.DELETE, 2L, null),
+                new BulkOperation(BulkOperation.Action.CREATE, null, new Product()),
+                new BulkOperation(BulkOperation.Action.DELETE, null, null));
+
+        when(productRepository.saveAll(anyList())).thenAnswer(invocation -> {
+            List<Product> batch = invocation.getArgument(0);
+            batch.getFirst().setId(10L);
+            return batch;
+        });
+        when(productRepository.update(anyLong(), any())).thenReturn(testProduct);
+        doThrow(new ProductNotFoundException()).when(productRepository).deleteById(2L);
+
+        List<BulkResult> results = productService.applyBulk(operations);
+
+        assertEquals(List.of(BulkResult.Status.CREATED, BulkResult.Status.UPDATED, BulkResult.Status.NOT_FOUND,
+                BulkResult.Status.INVALID, BulkResult.Status.INVALID), results.stream().map(BulkResult::status).toList());
+        assertEquals(10L, results.getFirst().id());
+        verify(productRepository, times(1)).saveAll(argThat(batch -> batch.size() == 1));
+    }
+
+    @Test
+    public void testApplyBulkTooLarge() {
+        List<BulkOperation> operations = Collections.nCopies(ProductService.MAX_BULK_SIZE + 1,
+                new BulkOperation(BulkOperation.Action.DELETE, 1L, null));
+
+        assertThrows(ProductValidationException.class, () -> productService.applyBulk(operations));
+        verifyNoInteractions(productRepository);
     }
 
     @Test
@@ -138,5 +309,6 @@ public class ProductServiceTest {
         doThrow(new ProductNotFoundException()).when(productRepository).deleteById(anyLong());
 
         assertThrows(ProductNotFoundException.class, () -> productService.deleteProduct(999L));
+        verifyNoInteractions(productChangeFeed);
     }
 }
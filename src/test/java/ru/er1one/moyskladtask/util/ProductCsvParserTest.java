@@ -0,0 +1,72 @@
+package ru.er1one.moyskladtask.util;
+
+import org.junit.jupiter.api.Test;
+import ru.er1one.moyskladtask.exception.ProductValidationException;
+import ru.er1one.moyskladtask.model.Product;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ProductCsvParserTest {
+
+    @Test
+    public void testColumnsInAnyOrder() {
+        ProductCsvParser.Columns columns = ProductCsvParser.header("sku,price,Name,inStock");
+
+        Product product = ProductCsvParser.parse(columns, "A-1,12.5,Чайник,true");
+
+        assertEquals("Чайник", product.getName());
+        assertEquals(12.5, product.getPrice());
+        assertTrue(product.getInStock());
+        assertEquals("", product.getDescription());
+    }
+
+    @Test
+    public void testQuotedFields() {
+        ProductCsvParser.Columns columns = ProductCsvParser.header("name,description,price");
+
+        Product product = ProductCsvParser.parse(columns, "\"Чайник, 2 л\",\"Строка 1\nСтрока \"\"2\"\"\",100");
+
+        assertEquals("Чайник, 2 л", product.getName());
+        assertEquals("Строка 1\nСтрока \"2\"", product.getDescription());
+        assertEquals(100.0, product.getPrice());
+        assertFalse(product.getInStock());
+    }
+
+    @Test
+    public void testSemicolonSeparatorAndDecimalComma() {
+        ProductCsvParser.Columns columns = ProductCsvParser.header("name;price;inStock");
+
+        Product product = ProductCsvParser.parse(columns, "Чайник;99,90;1");
+
+        assertEquals(99.9, product.getPrice());
+        assertTrue(product.getInStock());
+    }
+
+    @Test
+    public void testMissingTrailingFieldsAreEmpty() {
+        Product product = ProductCsvParser.parse(ProductCsvParser.header("name,price,description"), "Чайник");
+
+        assertEquals("Чайник", product.getName());
+        assertNull(product.getPrice());
+        assertNotNull(ProductValidator.check(product));
+    }
+
+    @Test
+    public void testRejectsInvalidRecords() {
+        ProductCsvParser.Columns columns = ProductCsvParser.header("name,price,inStock");
+
+        assertThrows(ProductValidationException.class, () -> ProductCsvParser.header("name,description"));
+        assertThrows(ProductValidationException.class, () -> ProductCsvParser.parse(columns, "Чайник,дорого,true"));
+        assertThrows(ProductValidationException.class, () -> ProductCsvParser.parse(columns, "Чайник,NaN,true"));
+        assertThrows(ProductValidationException.class, () -> ProductCsvParser.parse(columns, "Чайник,10,да"));
+        assertThrows(ProductValidationException.class, () -> ProductCsvParser.parse(columns, "\"Чайник,10,true"));
+        assertThrows(ProductValidationException.class, () -> ProductCsvParser.parse(columns, "\"Чайник\"2,10,true"));
+    }
+
+    @Test
+    public void testIsComplete() {
+        assertTrue(ProductCsvParser.isComplete("Чайник,10"));
+        assertTrue(ProductCsvParser.isComplete("\"Чайник \"\"Мир\"\"\",10"));
+        assertFalse(ProductCsvParser.isComplete("Чайник,\"Строка 1"));
+    }
+}
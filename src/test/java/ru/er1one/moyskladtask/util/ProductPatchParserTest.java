@@ -0,0 +1,78 @@
+package ru.er1one.moyskladtask.util;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import org.junit.jupiter.api.Test;
+import ru.er1one.moyskladtask.exception.ProductValidationException;
+import ru.er1one.moyskladtask.model.Product;
+import ru.er1one.moyskladtask.model.ProductPatch;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ProductPatchParserTest {
+
+    private final JsonFactory factory = new JsonFactory();
+
+    @Test
+    public void testParsesOnlyPresentFields() throws IOException {
+        ProductPatch patch = parse("{\"name\":\"Новое название\",\"price\":100,\"inStock\":true}");
+
+        assertTrue(patch.has(ProductPatch.NAME));
+        assertTrue(patch.has(ProductPatch.PRICE));
+        assertTrue(patch.has(ProductPatch.IN_STOCK));
+        assertFalse(patch.has(ProductPatch.DESCRIPTION));
+        assertEquals(100.0, patch.price());
+
+        Product product = patch.applyTo(product());
+        assertEquals("Новое название", product.getName());
+        assertEquals("Описание", product.getDescription());
+        assertEquals(100.0, product.getPrice());
+        assertTrue(product.getInStock());
+    }
+
+    @Test
+    public void testNullRemovesValue() throws IOException {
+        Product product = parse("{\"description\":null,\"inStock\":null,\"price\":null}").applyTo(product());
+
+        assertEquals("", product.getDescription());
+        assertFalse(product.getInStock());
+        assertNull(product.getPrice());
+        assertNotNull(ProductValidator.check(product));
+    }
+
+    @Test
+    public void testEmptyPatchChangesNothing() throws IOException {
+        Product product = parse("{}").applyTo(product());
+
+        assertEquals(product(), product);
+    }
+
+    @Test
+    public void testRejectsInvalidPatches() {
+        assertThrows(ProductValidationException.class, () -> parse("{\"weight\":1}"));
+        assertThrows(ProductValidationException.class, () -> parse("{\"price\":\"100\"}"));
+        assertThrows(ProductValidationException.class, () -> parse("{\"name\":{\"ru\":\"Товар\"}}"));
+        assertThrows(ProductValidationException.class, () -> parse("{\"inStock\":1}"));
+        assertThrows(ProductValidationException.class, () -> parse("[]"));
+        assertThrows(ProductValidationException.class, () -> parse(""));
+        assertThrows(ProductValidationException.class, () -> parse("{\"price\":1"));
+        assertThrows(ProductValidationException.class, () -> parse("{} {}"));
+    }
+
+    private ProductPatch parse(String json) throws IOException {
+        return ProductPatchParser.parse(factory, new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    private static Product product() {
+        Product product = new Product();
+        product.setId(1L);
+        product.setName("Товар");
+        product.setDescription("Описание");
+        product.setPrice(10.0);
+        product.setInStock(false);
+        return product;
+    }
+}